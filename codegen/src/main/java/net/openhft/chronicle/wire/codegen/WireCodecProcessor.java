@@ -0,0 +1,274 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@code <ClassName>WireCodec} for each class annotated with
+ * net.openhft.chronicle.wire.WireCodec.
+ * <p>
+ * The codec calls the ValueIn/ValueOut primitives directly, with the keys encoded once as
+ * EncodedWireKeys, so there is no lambda per field on either side. The same code works for
+ * BinaryWire, TextWire and RawWire.
+ * <p>
+ * Text is read back into the field for a StringBuilder or Bytes, which must not be null, and as
+ * a String for a String or CharSequence. Other CharSequences are an error as they can't be read.
+ */
+public class WireCodecProcessor extends AbstractProcessor {
+    static final String WIRE_CODEC = "net.openhft.chronicle.wire.WireCodec";
+    static final String BYTES = "net.openhft.chronicle.bytes.Bytes";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(WIRE_CODEC);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations)
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation)))
+                generate(type);
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        if (!collectFields(type, fields) || !uniqueKeyNames(fields))
+            return;
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String codecName = codecName(type);
+        String className = type.getQualifiedName().toString();
+        try (Writer out = processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? codecName : packageName + "." + codecName, type)
+                .openWriter()) {
+            out.write(codecSource(packageName, codecName, className, fields));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + codecName + ": " + e, type);
+        }
+    }
+
+    static String codecName(TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement())
+            sb.insert(0, '_').insert(0, e.getSimpleName());
+        return sb.append("WireCodec").toString();
+    }
+
+    private boolean collectFields(TypeElement type, List<VariableElement> fields) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement superType = (TypeElement) ((DeclaredType) superclass).asElement();
+            if (!superType.getQualifiedName().contentEquals("java.lang.Object") && !collectFields(superType, fields))
+                return false;
+        }
+        boolean ok = true;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+                continue;
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@WireCodec fields cannot be private or final, make it transient to ignore it", field);
+                ok = false;
+                continue;
+            }
+            if (isCharSequence(field.asType()) && textReader(field.asType()) == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@WireCodec text fields must be a String, CharSequence, StringBuilder or Bytes", field);
+                ok = false;
+                continue;
+            }
+            fields.add(field);
+        }
+        return ok;
+    }
+
+    /**
+     * The key constants are the field names in upper snake case, so e.g. fooBar and foo_bar clash.
+     */
+    private boolean uniqueKeyNames(List<VariableElement> fields) {
+        Map<String, VariableElement> keys = new HashMap<>();
+        boolean ok = true;
+        for (VariableElement field : fields) {
+            String keyName = keyName(field.getSimpleName().toString());
+            VariableElement other = keys.putIfAbsent(keyName, field);
+            if (other != null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@WireCodec fields " + other.getSimpleName() + " and " + field.getSimpleName()
+                                + " would both have the key " + keyName + ", rename one or make it transient", field);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    String codecSource(String packageName, String codecName, String className, List<VariableElement> fields) {
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty())
+            sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import net.openhft.chronicle.wire.EncodedWireKey;\n")
+                .append("import net.openhft.chronicle.wire.WireIn;\n")
+                .append("import net.openhft.chronicle.wire.WireOut;\n\n")
+                .append("/**\n * Generated by ").append(getClass().getSimpleName())
+                .append(" from ").append(className).append(", do not edit.\n */\n")
+                .append("public final class ").append(codecName).append(" {\n");
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            sb.append("    static final EncodedWireKey ").append(keyName(name))
+                    .append(" = EncodedWireKey.of(() -> \"").append(name).append("\");\n");
+        }
+        sb.append("\n    private ").append(codecName).append("() {\n    }\n\n");
+
+        sb.append("    public static void writeMarshallable(").append(className).append(" o, WireOut wire) {\n");
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            sb.append("        wire.write(").append(keyName(name)).append(").")
+                    .append(writeValue(field.asType(), "o." + name)).append(";\n");
+        }
+        sb.append("    }\n\n");
+
+        sb.append("    public static void readMarshallable(").append(className).append(" o, WireIn wire) {\n");
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            sb.append("        ").append(readValue(field.asType(), "o." + name, "wire.read(" + keyName(name) + ")"))
+                    .append(";\n");
+        }
+        sb.append("    }\n}\n");
+        return sb.toString();
+    }
+
+    static String keyName(String fieldName) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fieldName.length(); i++) {
+            char ch = fieldName.charAt(i);
+            if (Character.isUpperCase(ch) && i > 0)
+                sb.append('_');
+            sb.append(Character.toUpperCase(ch));
+        }
+        return sb.toString();
+    }
+
+    private String writeValue(TypeMirror type, String field) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                // the constants rather than boxing.
+                return "bool(" + field + " ? Boolean.TRUE : Boolean.FALSE)";
+            case BYTE:
+                return "int8(" + field + ")";
+            case SHORT:
+                return "int16(" + field + ")";
+            case CHAR:
+                return "uint16checked(" + field + ")";
+            case INT:
+                return "int32(" + field + ")";
+            case LONG:
+                return "int64(" + field + ")";
+            case FLOAT:
+                return "float32(" + field + ")";
+            case DOUBLE:
+                return "float64(" + field + ")";
+            default:
+                // Bytes is also a BytesStore, which has a text() of its own.
+                if (isBytes(type))
+                    return "text((net.openhft.chronicle.bytes.BytesStore) " + field + ")";
+                if (isCharSequence(type))
+                    return "text(" + field + ")";
+                if (isEnum(type))
+                    return "asEnum(" + field + ")";
+                return "object(" + field + ")";
+        }
+    }
+
+    private String readValue(TypeMirror type, String field, String valueIn) {
+        String assign = field + " = " + valueIn + ".";
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return assign + "bool()";
+            case BYTE:
+                return assign + "int8()";
+            case SHORT:
+                return assign + "int16()";
+            case CHAR:
+                return field + " = (char) " + valueIn + ".uint16()";
+            case INT:
+                return assign + "int32()";
+            case LONG:
+                return assign + "int64()";
+            case FLOAT:
+                return assign + "float32()";
+            case DOUBLE:
+                return assign + "float64()";
+            default:
+                String erasure = processingEnv.getTypeUtils().erasure(type).toString();
+                if (isCharSequence(type))
+                    return textReader(type).equals("text") ? assign + "text()" : valueIn + ".textTo(" + field + ")";
+                if (isEnum(type))
+                    return assign + "asEnum(" + erasure + ".class)";
+                return assign + "object(" + field + ", " + erasure + ".class)";
+        }
+    }
+
+    /**
+     * @return text to read a String, textTo to read into the field, or null if it can't be read.
+     */
+    private String textReader(TypeMirror type) {
+        String erasure = processingEnv.getTypeUtils().erasure(type).toString();
+        if (erasure.equals("java.lang.String") || erasure.equals("java.lang.CharSequence"))
+            return "text";
+        if (erasure.equals("java.lang.StringBuilder") || isBytes(type))
+            return "textTo";
+        return null;
+    }
+
+    private boolean isBytes(TypeMirror type) {
+        TypeElement bytes = processingEnv.getElementUtils().getTypeElement(BYTES);
+        return bytes != null && processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type), processingEnv.getTypeUtils().erasure(bytes.asType()));
+    }
+
+    private boolean isCharSequence(TypeMirror type) {
+        TypeMirror charSequence = processingEnv.getElementUtils().getTypeElement("java.lang.CharSequence").asType();
+        return processingEnv.getTypeUtils().isAssignable(type, charSequence);
+    }
+
+    private boolean isEnum(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+    }
+}
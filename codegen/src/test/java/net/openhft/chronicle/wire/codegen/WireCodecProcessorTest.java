@@ -0,0 +1,228 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire.codegen;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.wire.BinaryWire;
+import net.openhft.chronicle.wire.TextWire;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.junit.Test;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class WireCodecProcessorTest {
+    private final Map<String, ByteArrayOutputStream> generated = new HashMap<>();
+    private final Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    /**
+     * Compile the source and the codecs generated for it against chronicle-wire.
+     */
+    private boolean process(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(
+                compiler.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                (kind == JavaFileObject.Kind.CLASS ? classes : generated).put(name, out);
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return out;
+                    }
+
+                    @Override
+                    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                        return out.toString();
+                    }
+                };
+            }
+        };
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                Arrays.asList("-classpath", System.getProperty("java.class.path")),
+                null, Collections.singletonList(source(className, source)));
+        task.setProcessors(Collections.singletonList(new WireCodecProcessor()));
+        return task.call();
+    }
+
+    private static JavaFileObject source(String className, String source) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+                return source;
+            }
+        };
+    }
+
+    private ClassLoader loader() {
+        return new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream out = classes.get(name);
+                if (out == null)
+                    throw new ClassNotFoundException(name);
+                byte[] bytes = out.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+    }
+
+    private static final String ORDER = "package demo;\n" +
+            "@net.openhft.chronicle.wire.WireCodec\n" +
+            "public class Order {\n" +
+            "    public int count;\n" +
+            "    long timeStamp;\n" +
+            "    char side;\n" +
+            "    boolean active;\n" +
+            "    String symbol;\n" +
+            "    CharSequence venue;\n" +
+            "    StringBuilder text = new StringBuilder();\n" +
+            "    net.openhft.chronicle.bytes.Bytes<?> note = net.openhft.chronicle.bytes.Bytes.elasticByteBuffer();\n" +
+            "    java.util.concurrent.TimeUnit unit;\n" +
+            "    transient int ignored;\n" +
+            "    static int alsoIgnored;\n" +
+            "}\n";
+
+    @Test
+    public void generatesCodec() {
+        assertTrue(diagnostics.getDiagnostics().toString(), process("demo.Order", ORDER));
+
+        String codec = generated.get("demo.OrderWireCodec").toString();
+        assertTrue(codec, codec.contains("public final class OrderWireCodec {"));
+        assertTrue(codec, codec.contains("static final EncodedWireKey TIME_STAMP = EncodedWireKey.of(() -> \"timeStamp\");"));
+        assertTrue(codec, codec.contains("wire.write(COUNT).int32(o.count);\n" +
+                "        wire.write(TIME_STAMP).int64(o.timeStamp);\n" +
+                "        wire.write(SIDE).uint16checked(o.side);\n" +
+                "        wire.write(ACTIVE).bool(o.active ? Boolean.TRUE : Boolean.FALSE);\n" +
+                "        wire.write(SYMBOL).text(o.symbol);\n" +
+                "        wire.write(VENUE).text(o.venue);\n" +
+                "        wire.write(TEXT).text(o.text);\n" +
+                "        wire.write(NOTE).text((net.openhft.chronicle.bytes.BytesStore) o.note);\n" +
+                "        wire.write(UNIT).asEnum(o.unit);\n"));
+        assertTrue(codec, codec.contains("o.count = wire.read(COUNT).int32();\n" +
+                "        o.timeStamp = wire.read(TIME_STAMP).int64();\n" +
+                "        o.side = (char) wire.read(SIDE).uint16();\n" +
+                "        o.active = wire.read(ACTIVE).bool();\n" +
+                "        o.symbol = wire.read(SYMBOL).text();\n" +
+                "        o.venue = wire.read(VENUE).text();\n" +
+                "        wire.read(TEXT).textTo(o.text);\n" +
+                "        wire.read(NOTE).textTo(o.note);\n" +
+                "        o.unit = wire.read(UNIT).asEnum(java.util.concurrent.TimeUnit.class);\n"));
+        assertFalse(codec, codec.contains("ignored"));
+        assertFalse(codec, codec.contains("IGNORED"));
+    }
+
+    @Test
+    public void roundTrips() throws Exception {
+        assertTrue(diagnostics.getDiagnostics().toString(), process("demo.Order", ORDER));
+        ClassLoader loader = loader();
+        Class<?> orderClass = loader.loadClass("demo.Order");
+        Class<?> codec = loader.loadClass("demo.OrderWireCodec");
+        Method write = codec.getMethod("writeMarshallable", orderClass, WireOut.class);
+        Method read = codec.getMethod("readMarshallable", orderClass, WireIn.class);
+
+        Object order = orderClass.getConstructor().newInstance();
+        set(order, "count", 3);
+        set(order, "timeStamp", 123456789L);
+        set(order, "side", 'B');
+        set(order, "active", true);
+        set(order, "symbol", "EURUSD");
+        set(order, "venue", "XLON");
+        ((StringBuilder) get(order, "text")).append("hello");
+        ((Bytes) get(order, "note")).append("note");
+        set(order, "unit", java.util.concurrent.TimeUnit.SECONDS);
+
+        for (Wire wire : new Wire[]{new BinaryWire(Bytes.elasticByteBuffer()), new TextWire(Bytes.elasticByteBuffer())}) {
+            write.invoke(null, order, wire);
+            Object copy = orderClass.getConstructor().newInstance();
+            read.invoke(null, copy, wire);
+            for (String field : new String[]{"count", "timeStamp", "side", "active", "symbol", "unit"})
+                assertEquals(field, get(order, field), get(copy, field));
+            for (String field : new String[]{"venue", "text", "note"})
+                assertEquals(field, get(order, field).toString(), get(copy, field).toString());
+        }
+    }
+
+    private static void set(Object o, String name, Object value) throws ReflectiveOperationException {
+        Field field = o.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(o, value);
+    }
+
+    private static Object get(Object o, String name) throws ReflectiveOperationException {
+        Field field = o.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(o);
+    }
+
+    @Test
+    public void superClassFieldsFirst() {
+        assertTrue(diagnostics.getDiagnostics().toString(), process("demo.Child", "package demo;\n" +
+                "class Parent { int id; }\n" +
+                "@net.openhft.chronicle.wire.WireCodec\n" +
+                "public class Child extends Parent {\n" +
+                "    double price;\n" +
+                "    @net.openhft.chronicle.wire.WireCodec\n" +
+                "    public static class Leg { boolean active; }\n" +
+                "}\n"));
+
+        String codec = generated.get("demo.ChildWireCodec").toString();
+        assertTrue(codec, codec.contains("wire.write(ID).int32(o.id);\n" +
+                "        wire.write(PRICE).float64(o.price);\n"));
+        String leg = generated.get("demo.Child_LegWireCodec").toString();
+        assertTrue(leg, leg.contains("public static void readMarshallable(demo.Child.Leg o, WireIn wire) {\n" +
+                "        o.active = wire.read(ACTIVE).bool();\n"));
+    }
+
+    @Test
+    public void privateFieldIsAnError() {
+        assertFalse(process("demo.Hidden", "package demo;\n" +
+                "@net.openhft.chronicle.wire.WireCodec\n" +
+                "public class Hidden { private int secret; }\n"));
+        assertFalse(generated.containsKey("demo.HiddenWireCodec"));
+        assertEquals(Diagnostic.Kind.ERROR, diagnostics.getDiagnostics().get(0).getKind());
+    }
+
+    @Test
+    public void unreadableTextIsAnError() {
+        assertFalse(process("demo.Unreadable", "package demo;\n" +
+                "@net.openhft.chronicle.wire.WireCodec\n" +
+                "public class Unreadable { StringBuffer text; }\n"));
+        assertFalse(generated.containsKey("demo.UnreadableWireCodec"));
+    }
+
+    @Test
+    public void clashingKeyNamesAreAnError() {
+        assertFalse(process("demo.Clash", "package demo;\n" +
+                "@net.openhft.chronicle.wire.WireCodec\n" +
+                "public class Clash { int fooBar; int foo_bar; }\n"));
+        assertFalse(generated.containsKey("demo.ClashWireCodec"));
+        assertEquals(Diagnostic.Kind.ERROR, diagnostics.getDiagnostics().get(0).getKind());
+    }
+}
@@ -71,6 +71,8 @@ public class Main {
     final Data2 data2 = new Data2(123, 1234567890L, 1234, true, "Hello World!", Side.Sell);
     final Data dataB = new Data();
     final Data2 data2B = new Data2();
+    final CompiledBinaryReader compiledReader = new CompiledBinaryReader();
+    final ReadMarshallable compiledDataB = w -> compiledReader.read(w, dataB);
 
     public static void main(String... args) throws RunnerException, InvocationTargetException, IllegalAccessException {
         Affinity.setAffinity(2);
@@ -145,6 +147,15 @@ public class Main {
         return writeReadTest(bwireTTF);
     }
 
+    @Benchmark
+    @PrintAsText
+    public Data bwireTFFCompiled() {
+        bytes.clear();
+        bwireTFF.writeDocument(false, data);
+        bwireTFF.rawReadData(compiledDataB);
+        return dataB;
+    }
+
     @Benchmark
     public Data rwire8bit() {
         return writeReadTest(rwire8bit);
@@ -0,0 +1,133 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.wire.benchmarks;
+
+import net.openhft.affinity.Affinity;
+import net.openhft.chronicle.core.util.CharSequenceComparator;
+import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.WireKey;
+import net.openhft.chronicle.wire.WireParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compares event lookup in VanillaWireParser with the TreeMap/HashMap lookup it replaced.
+ */
+@State(Scope.Thread)
+public class WireParserMain {
+    static final int EVENTS = 150;
+
+    final WireParser parser = WireParser.wireParser();
+    final TreeMapWireParser treeMapParser = new TreeMapWireParser();
+    final StringBuilder[] names = new StringBuilder[EVENTS];
+    int next = 0;
+
+    public WireParserMain() {
+        for (int i = 0; i < EVENTS; i++) {
+            String name = "eventName" + i;
+            int code = i;
+            WireKey key = new WireKey() {
+                @Override
+                public CharSequence name() {
+                    return name;
+                }
+
+                @Override
+                public int code() {
+                    return code;
+                }
+            };
+            Consumer<ValueIn> consumer = v -> {
+            };
+            parser.register(key, consumer);
+            treeMapParser.register(key, consumer);
+            names[i] = new StringBuilder(name);
+        }
+    }
+
+    public static void main(String... args) throws RunnerException {
+        Affinity.setAffinity(2);
+        int time = Boolean.getBoolean("longTest") ? 30 : 2;
+        System.out.println("measurementTime: " + time + " secs");
+        Options opt = new OptionsBuilder()
+                .include(WireParserMain.class.getSimpleName())
+                .measurementIterations(5)
+                .forks(10)
+                .mode(Mode.AverageTime)
+                .measurementTime(TimeValue.seconds(time))
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private int nextIndex() {
+        int n = next + 1;
+        return next = n == EVENTS ? 0 : n;
+    }
+
+    @Benchmark
+    public Consumer<ValueIn> lookupName() {
+        return parser.lookup(names[nextIndex()]);
+    }
+
+    @Benchmark
+    public Consumer<ValueIn> lookupNameTreeMap() {
+        return treeMapParser.lookup(names[nextIndex()]);
+    }
+
+    @Benchmark
+    public Consumer<ValueIn> lookupCode() {
+        return parser.lookup(nextIndex());
+    }
+
+    @Benchmark
+    public Consumer<ValueIn> lookupCodeHashMap() {
+        return treeMapParser.lookup(nextIndex());
+    }
+
+    static class TreeMapWireParser {
+        private final Map<CharSequence, Consumer<ValueIn>> namedConsumer = new TreeMap<>(CharSequenceComparator.INSTANCE);
+        private final Map<Integer, Consumer<ValueIn>> numberedConsumer = new HashMap<>();
+
+        void register(WireKey key, Consumer<ValueIn> valueInConsumer) {
+            namedConsumer.put(key.name(), valueInConsumer);
+            numberedConsumer.put(key.code(), valueInConsumer);
+        }
+
+        Consumer<ValueIn> lookup(CharSequence name) {
+            return namedConsumer.get(name);
+        }
+
+        Consumer<ValueIn> lookup(int number) {
+            return numberedConsumer.get(number);
+        }
+    }
+}
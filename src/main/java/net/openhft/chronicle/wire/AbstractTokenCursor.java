@@ -0,0 +1,188 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the current token of a TokenCursor.
+ */
+abstract class AbstractTokenCursor implements TokenCursor {
+    final StringBuilder text = new StringBuilder();
+    @NotNull
+    WireToken tokenType = WireToken.NONE;
+    int depth;
+    private long int64;
+    private double float64;
+    private boolean bool;
+    @Nullable
+    private Bytes<?> bytesValue;
+
+    @NotNull
+    @Override
+    public WireToken tokenType() {
+        return tokenType;
+    }
+
+    @Override
+    public int depth() {
+        return depth;
+    }
+
+    @NotNull
+    @Override
+    public CharSequence text() {
+        return text;
+    }
+
+    @Override
+    public long int64() {
+        switch (tokenType) {
+            case INT64:
+                return int64;
+            case FLOAT64:
+                return (long) float64;
+            default:
+                throw new IllegalStateException("Not a number: " + tokenType);
+        }
+    }
+
+    @Override
+    public double float64() {
+        switch (tokenType) {
+            case INT64:
+                return int64;
+            case FLOAT64:
+                return float64;
+            default:
+                throw new IllegalStateException("Not a number: " + tokenType);
+        }
+    }
+
+    @Override
+    public boolean bool() {
+        if (tokenType != WireToken.BOOL)
+            throw new IllegalStateException("Not a bool: " + tokenType);
+        return bool;
+    }
+
+    @NotNull
+    @Override
+    public Bytes<?> bytes() {
+        if (tokenType != WireToken.BYTES || bytesValue == null)
+            throw new IllegalStateException("Not bytes: " + tokenType);
+        return bytesValue;
+    }
+
+    @NotNull
+    WireToken token(@NotNull WireToken tokenType) {
+        return this.tokenType = tokenType;
+    }
+
+    @NotNull
+    WireToken int64Token(long value) {
+        int64 = value;
+        return token(WireToken.INT64);
+    }
+
+    @NotNull
+    WireToken float64Token(double value) {
+        float64 = value;
+        return token(WireToken.FLOAT64);
+    }
+
+    @NotNull
+    WireToken boolToken(boolean value) {
+        bool = value;
+        return token(WireToken.BOOL);
+    }
+
+    @NotNull
+    WireToken bytesToken(@NotNull BytesStore from, long start, long length) {
+        if (bytesValue == null)
+            bytesValue = Bytes.elasticByteBuffer();
+        bytesValue.clear();
+        bytesValue.write(from, start, length);
+        return token(WireToken.BYTES);
+    }
+
+    /**
+     * Infer the type of an unquoted scalar in text, as TextWire.readNumber would, without boxing
+     * it. A float is read again from the bytes it was parsed from.
+     *
+     * @param start where the scalar starts in the bytes.
+     */
+    @NotNull
+    WireToken plainToken(@NotNull Bytes<?> bytes, long start) {
+        StringBuilder sb = text;
+        int length = sb.length();
+        if (StringUtils.isEqual(sb, "true"))
+            return boolToken(true);
+        if (StringUtils.isEqual(sb, "false"))
+            return boolToken(false);
+        if (StringUtils.isEqual(sb, "null") || StringUtils.isEqual(sb, "~"))
+            return token(WireToken.NULL);
+        if (length == 0)
+            return token(WireToken.TEXT);
+        char first = sb.charAt(0);
+        if (first != '-' && first != '+' && (first < '0' || first > '9'))
+            return token(WireToken.TEXT);
+
+        int i = length > 1 && (first == '-' || first == '+') ? 1 : 0;
+        long value = 0;
+        int digits = 0;
+        boolean underscore = false, dot = false, exponent = false;
+        for (; i < length; i++) {
+            char ch = sb.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                value = value * 10 + ch - '0';
+                digits++;
+            } else if (ch == '_' && !exponent) {
+                underscore = true;
+            } else if (ch == '.' && !dot && !exponent) {
+                dot = true;
+            } else if ((ch == 'e' || ch == 'E') && !exponent && digits > 0) {
+                exponent = true;
+                if (i + 1 < length && (sb.charAt(i + 1) == '-' || sb.charAt(i + 1) == '+'))
+                    i++;
+            } else {
+                return token(WireToken.TEXT);
+            }
+        }
+        if (digits == 0 || (exponent && (sb.charAt(length - 1) < '0' || sb.charAt(length - 1) > '9')))
+            return token(WireToken.TEXT);
+        if (!dot && !exponent) {
+            if (digits <= 18)
+                return int64Token(first == '-' ? -value : value);
+            try {
+                return int64Token(Long.parseLong(underscore ? sb.toString().replace("_", "") : sb.toString()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        if (underscore)
+            return float64Token(Double.parseDouble(sb.toString().replace("_", "")));
+
+        long end = bytes.readPosition();
+        bytes.readPosition(start);
+        double d = DoubleText.parse(bytes);
+        bytes.readPosition(end);
+        return float64Token(d);
+    }
+}
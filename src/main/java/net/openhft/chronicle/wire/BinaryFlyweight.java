@@ -0,0 +1,439 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.openhft.chronicle.wire.BinaryWireCode.*;
+
+/**
+ * A view of the fields of a BinaryWire document or marshallable which reads each value from the
+ * bytes it is bound to, rather than copying them into an object.
+ * <p>
+ * Binding with bytesStore(bytes, offset, length) only records where the fields are. The first read
+ * of a field walks the field headers until it is found, skipping values without decoding them,
+ * and later reads of it go straight to its offset. A subclass names the fields it reads and
+ * calls int64(field) etc. with their index e.g.
+ * <pre>
+ * class PositionView extends BinaryFlyweight {
+ *     PositionView() { super("symbol", "qty", "price"); }
+ *     long qty() { return int64(1); }
+ * }
+ * wire.readDocument(null, w -> view.bytesStore(w.bytes(), w.bytes().readPosition(), w.bytes().readRemaining()));
+ * </pre>
+ * A missing field reads as 0, false or null. Strings written to a string table with STRING_REF
+ * need the wire which read the stream, so they can't be read here. Likewise, the FIELD_NUMBER ids
+ * of a field dictionary are only known to that wire. A FIELD_NUMBER is matched to the hashCode of
+ * each name, as written with numericFields, so a field written with a dictionary id isn't found
+ * and reads as missing.
+ */
+public abstract class BinaryFlyweight implements Byteable {
+    static final long NOT_FOUND = -1;
+
+    private final byte[][] names;
+    private final int[] codes;
+    private final long[] values;
+    private BytesStore bytes;
+    private long offset;
+    private long limit;
+    // where to carry on looking for the fields not found yet.
+    private long scanned;
+
+    protected BinaryFlyweight(@NotNull String... fieldNames) {
+        names = new byte[fieldNames.length][];
+        codes = new int[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            names[i] = fieldNames[i].getBytes(StandardCharsets.UTF_8);
+            // as written with numericFields, the id is the WireKey's code(), its name's hashCode by default.
+            codes[i] = fieldNames[i].hashCode();
+        }
+        values = new long[fieldNames.length];
+        Arrays.fill(values, NOT_FOUND);
+    }
+
+    /**
+     * A view implementing the getters of an interface, each of which reads the field with the
+     * method's name. The view also implements Byteable, to bind it. A getter may return a
+     * primitive, String, CharSequence (reused by the view) or another interface for a nested
+     * marshallable. Unlike a subclass, the view boxes the primitives it returns.
+     *
+     * @throws IllegalArgumentException if a method of the interface isn't such a getter.
+     */
+    @NotNull
+    public static <T> T view(@NotNull Class<T> type) {
+        if (!type.isInterface())
+            throw new IllegalArgumentException(type + " is not an interface");
+        InterfaceView view = new InterfaceView(type, getters(type));
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type, Byteable.class}, view));
+    }
+
+    @NotNull
+    private static Method[] getters(@NotNull Class<?> type) {
+        List<Method> getters = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Byteable.class)
+                continue;
+            Class<?> returnType = method.getReturnType();
+            if (method.getParameterCount() != 0 || !(returnType.isPrimitive() && returnType != void.class
+                    || returnType == String.class || returnType == CharSequence.class || returnType.isInterface()))
+                throw new IllegalArgumentException(method + " is not a getter of a field");
+            getters.add(method);
+        }
+        return getters.toArray(new Method[getters.size()]);
+    }
+
+    @NotNull
+    private static String[] names(@NotNull Method[] getters) {
+        String[] names = new String[getters.length];
+        for (int i = 0; i < getters.length; i++)
+            names[i] = getters[i].getName();
+        return names;
+    }
+
+    @Override
+    public void bytesStore(@NotNull BytesStore bytes, long offset, long length) {
+        this.bytes = bytes.bytesStore();
+        this.offset = offset;
+        this.limit = offset + length;
+        scanned = offset;
+        Arrays.fill(values, NOT_FOUND);
+    }
+
+    @Override
+    public BytesStore bytesStore() {
+        return bytes;
+    }
+
+    @Override
+    public long offset() {
+        return offset;
+    }
+
+    @Override
+    public long maxSize() {
+        return limit - offset;
+    }
+
+    protected boolean hasField(int field) {
+        return valueOffset(field) != NOT_FOUND;
+    }
+
+    protected long int64(int field) {
+        long position = valueOffset(field);
+        if (position == NOT_FOUND)
+            return 0;
+        BytesStore bytes = this.bytes;
+        int code = bytes.readUnsignedByte(position++);
+        if (code < 0x80)
+            return code;
+        switch (code) {
+            case INT8:
+                return bytes.readByte(position);
+            case UINT8:
+                return bytes.readUnsignedByte(position);
+            case INT16:
+                return bytes.readShort(position);
+            case UINT16:
+                return bytes.readUnsignedShort(position);
+            case INT32:
+                return bytes.readInt(position);
+            case UINT32:
+                return bytes.readUnsignedInt(position);
+            case INT64:
+                return bytes.readLong(position);
+            case FLOAT32:
+                return (long) bytes.readFloat(position);
+            case FLOAT64:
+                return (long) bytes.readDouble(position);
+            case NULL:
+                return 0;
+            default:
+                throw new UnsupportedOperationException(stringForCode(code));
+        }
+    }
+
+    protected int int32(int field) {
+        return Maths.toInt32(int64(field));
+    }
+
+    protected double float64(int field) {
+        long position = valueOffset(field);
+        if (position == NOT_FOUND)
+            return 0;
+        switch (bytes.readUnsignedByte(position)) {
+            case FLOAT32:
+                return bytes.readFloat(position + 1);
+            case FLOAT64:
+                return bytes.readDouble(position + 1);
+            default:
+                return int64(field);
+        }
+    }
+
+    protected boolean bool(int field) {
+        long position = valueOffset(field);
+        if (position == NOT_FOUND)
+            return false;
+        int code = bytes.readUnsignedByte(position);
+        switch (code) {
+            case TRUE:
+                return true;
+            case FALSE:
+            case NULL:
+                return false;
+            default:
+                throw new UnsupportedOperationException(stringForCode(code));
+        }
+    }
+
+    /**
+     * @return sb holding the text, or null if the field is missing or null.
+     */
+    @Nullable
+    protected StringBuilder text(int field, @NotNull StringBuilder sb) {
+        sb.setLength(0);
+        long position = valueOffset(field);
+        if (position == NOT_FOUND)
+            return null;
+        int code = bytes.readUnsignedByte(position++);
+        long end;
+        if (code >= STRING_0) {
+            end = BinaryLengths.utf8End(bytes, position, code & 0x1f);
+        } else {
+            switch (code) {
+                case NULL:
+                    return null;
+                case STRING_DEFINE:
+                    position = BinaryLengths.stopBitEnd(bytes, position);
+                    // fall through
+                case STRING_ANY: {
+                    long length = BinaryLengths.readStopBit(bytes, position);
+                    if (length < 0)
+                        return null;
+                    position = BinaryLengths.stopBitEnd(bytes, position);
+                    end = position + length;
+                    break;
+                }
+                default:
+                    throw new UnsupportedOperationException(stringForCode(code));
+            }
+        }
+        try {
+            JSONTokenizer.append(bytes, position, end, sb, false);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return sb;
+    }
+
+    /**
+     * Bind view to the fields of a nested marshallable.
+     *
+     * @return view, or null if the field is missing or null.
+     */
+    @Nullable
+    protected <B extends Byteable> B marshallable(int field, @NotNull B view) {
+        long position = valueOffset(field);
+        if (position == NOT_FOUND)
+            return null;
+        int code = bytes.readUnsignedByte(position);
+        if (code == NULL)
+            return null;
+        if (code != BYTES_LENGTH32)
+            throw new UnsupportedOperationException(stringForCode(code));
+        view.bytesStore(bytes, position + 5, bytes.readUnsignedInt(position + 1));
+        return view;
+    }
+
+    /**
+     * @return the offset of the field's value, or NOT_FOUND if there isn't one.
+     */
+    long valueOffset(int field) {
+        if (bytes == null)
+            throw new IllegalStateException("Not bound to any bytes");
+        long value = values[field];
+        return value == NOT_FOUND ? find(field) : value;
+    }
+
+    private long find(int field) {
+        BytesStore bytes = this.bytes;
+        long position = scanned;
+        while ((position = skipSpecial(position)) < limit) {
+            int code = bytes.readUnsignedByte(position);
+            int match;
+            long nameEnd;
+            if (code >= FIELD_NAME0 && code <= FIELD_NAME31) {
+                nameEnd = position + 1 + (code & 0x1f);
+                match = matchName(position + 1, nameEnd);
+
+            } else if (code == FIELD_NAME_ANY || code == EVENT_NAME) {
+                long start = BinaryLengths.stopBitEnd(bytes, position + 1);
+                nameEnd = start + BinaryLengths.readStopBit(bytes, position + 1);
+                match = matchName(start, nameEnd);
+
+            } else if (code == FIELD_NUMBER) {
+                match = matchCode(BinaryLengths.readStopBit(bytes, position + 1));
+                nameEnd = BinaryLengths.stopBitEnd(bytes, position + 1);
+
+            } else {
+                throw new IllegalStateException("Expected a field but found " + stringForCode(code) + " at " + position);
+            }
+            long value = skipSpecial(nameEnd);
+            position = BinaryLengths.valueEnd(bytes, value);
+            if (match >= 0) {
+                values[match] = value;
+                if (match == field) {
+                    scanned = position;
+                    return value;
+                }
+            }
+        }
+        scanned = limit;
+        return NOT_FOUND;
+    }
+
+    private int matchName(long start, long end) {
+        long length = end - start;
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length != length || values[i] != NOT_FOUND)
+                continue;
+            int j = 0;
+            while (j < name.length && bytes.readByte(start + j) == name[j])
+                j++;
+            if (j == name.length)
+                return i;
+        }
+        return -1;
+    }
+
+    private int matchCode(long code) {
+        for (int i = 0; i < codes.length; i++)
+            if (codes[i] == code && values[i] == NOT_FOUND)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return the position after any padding, comments, hints and type prefix.
+     */
+    private long skipSpecial(long position) {
+        while (position < limit) {
+            switch (bytes.readUnsignedByte(position)) {
+                case PADDING:
+                    position++;
+                    break;
+                case PADDING32:
+                    position += 5 + bytes.readUnsignedInt(position + 1);
+                    break;
+                case TYPE_PREFIX:
+                case COMMENT:
+                case HINT: {
+                    position = BinaryLengths.stopBitEnd(bytes, position + 1) + BinaryLengths.readStopBit(bytes, position + 1);
+                    break;
+                }
+                default:
+                    return position;
+            }
+        }
+        return position;
+    }
+
+    private static final class InterfaceView extends BinaryFlyweight implements InvocationHandler {
+        private final Class<?> type;
+        private final Map<Method, Integer> fields = new HashMap<>();
+        private final Class<?>[] types;
+        private final StringBuilder[] texts;
+        private final Byteable[] nested;
+
+        InterfaceView(@NotNull Class<?> type, @NotNull Method[] getters) {
+            super(names(getters));
+            this.type = type;
+            types = new Class[getters.length];
+            for (int i = 0; i < getters.length; i++) {
+                fields.put(getters[i], i);
+                types[i] = getters[i].getReturnType();
+            }
+            texts = new StringBuilder[getters.length];
+            nested = new Byteable[getters.length];
+        }
+
+        @Override
+        public Object invoke(Object proxy, @NotNull Method method, Object[] args) throws Throwable {
+            Integer field = fields.get(method);
+            if (field != null)
+                return get(field);
+            if (method.getDeclaringClass() == Byteable.class)
+                return method.invoke(this, args);
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName() + " at " + offset();
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        }
+
+        @Nullable
+        private Object get(int field) {
+            Class<?> type = types[field];
+            if (type == long.class)
+                return int64(field);
+            if (type == int.class)
+                return int32(field);
+            if (type == double.class)
+                return float64(field);
+            if (type == boolean.class)
+                return bool(field);
+            if (type == float.class)
+                return (float) float64(field);
+            if (type == short.class)
+                return (short) int64(field);
+            if (type == byte.class)
+                return (byte) int64(field);
+            if (type == char.class)
+                return (char) int64(field);
+            if (type == String.class || type == CharSequence.class) {
+                if (texts[field] == null)
+                    texts[field] = new StringBuilder();
+                StringBuilder sb = text(field, texts[field]);
+                return sb == null || type == CharSequence.class ? sb : sb.toString();
+            }
+            if (nested[field] == null)
+                nested[field] = (Byteable) view(type);
+            return marshallable(field, nested[field]);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+
+import static net.openhft.chronicle.wire.BinaryWireCode.*;
+
+/**
+ * The lengths of BinaryWire values, read from absolute positions without decoding the values.
+ */
+final class BinaryLengths {
+    private BinaryLengths() {
+    }
+
+    /**
+     * @return the number of bytes after the code of a value of fixed length, or -1 if the length
+     * is encoded in the value.
+     */
+    static int fixedLength(int code) {
+        if (code < 0x80)
+            return 0;
+        switch (code) {
+            case NULL:
+            case FALSE:
+            case TRUE:
+                return 0;
+            case INT8:
+            case UINT8:
+                return 1;
+            case INT16:
+            case UINT16:
+                return 2;
+            case INT32:
+            case UINT32:
+            case FLOAT32:
+                return 4;
+            case INT64:
+            case FLOAT64:
+                return 8;
+            case UUID:
+                return 16;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @param position of the value's code, after any padding, comments or type prefix.
+     * @return the position after the value.
+     */
+    static long valueEnd(@NotNull BytesStore bytes, long position) {
+        int code = bytes.readUnsignedByte(position++);
+        if (code >= STRING_0 && code <= STRING_31)
+            return utf8End(bytes, position, code & 0x1f);
+        switch (code) {
+            case BYTES_LENGTH32:
+                return position + 4 + bytes.readUnsignedInt(position);
+            case I64_ARRAY:
+                return position + BinaryLongArrayReference.peakLength(bytes, position);
+            case STRING_REF:
+                return stopBitEnd(bytes, position);
+            case STRING_DEFINE:
+                position = stopBitEnd(bytes, position);
+                // fall through
+            case TIME:
+            case DATE:
+            case DATE_TIME:
+            case ZONED_DATE_TIME:
+            case TYPE_LITERAL:
+            case STRING_ANY: {
+                long length = readStopBit(bytes, position);
+                return stopBitEnd(bytes, position) + Math.max(0, length);
+            }
+            default:
+                int length = fixedLength(code);
+                if (length < 0)
+                    throw new UnsupportedOperationException(stringForCode(code));
+                return position + length;
+        }
+    }
+
+    /**
+     * STRING_0 to STRING_31 give the length in chars, not bytes, so an ASCII string is checked a
+     * word at a time, otherwise only the lead byte of each char is read. A four byte sequence is
+     * a surrogate pair, two chars.
+     */
+    static long utf8End(@NotNull BytesStore bytes, long position, int chars) {
+        if (position + chars <= bytes.readLimit() && ByteScanner.isAscii(bytes, position, position + chars))
+            return position + chars;
+        for (int i = 0; i < chars; i++) {
+            int b = bytes.readUnsignedByte(position);
+            if (b >= 0xF0) {
+                position += 4;
+                i++;
+            } else {
+                position += b < 0x80 ? 1 : b < 0xE0 ? 2 : 3;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Reads a stop bit encoded number as StreamingDataInput.readStopBit does.
+     */
+    static long readStopBit(@NotNull BytesStore bytes, long position) {
+        long l = bytes.readByte(position++);
+        if (l >= 0)
+            return l;
+        l &= 0x7F;
+        int shift = 7;
+        int b;
+        while ((b = bytes.readByte(position++)) < 0) {
+            l |= (b & 0x7FL) << shift;
+            shift += 7;
+        }
+        return b == 0 ? ~l : l | ((long) b << shift);
+    }
+
+    static long stopBitEnd(@NotNull BytesStore bytes, long position) {
+        // all but the last byte have the top bit set.
+        while (bytes.readByte(position) < 0)
+            position++;
+        return position + 1;
+    }
+}
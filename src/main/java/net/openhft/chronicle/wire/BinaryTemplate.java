@@ -0,0 +1,160 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static net.openhft.chronicle.wire.BinaryWireCode.*;
+
+/**
+ * The byte shape of one BinaryWire encoding of a message, recorded by a CompiledBinaryReader.
+ * <p>
+ * Every byte which isn't a value, field headers, type codes and lengths, must be the same for
+ * another message to match. Values which can change without changing the shape are masked out,
+ * so a match is a length check and a masked comparison, eight bytes at a time. The values are
+ * then at the offsets recorded, in the order they were read.
+ */
+final class BinaryTemplate {
+    private WireKey[] keys = new WireKey[8];
+    // where read(key) was called, and where the value was found, relative to the start.
+    private long[] fieldPositions = new long[8];
+    private long[] valuePositions = new long[8];
+    private int size;
+
+    private long length;
+    private long end;
+    private long[] image;
+    private long[] care;
+    private byte[] tailImage;
+    private byte[] tailCare;
+
+    /**
+     * @return the number of bytes in the value after the code, or -1 if the code is not a value
+     * which can vary without changing the shape.
+     */
+    static int payloadLength(int code) {
+        if (code >= STRING_0 && code <= STRING_31)
+            return code & 0x1f;
+        return BinaryLengths.fixedLength(code);
+    }
+
+    /**
+     * @return the bits of the code itself which can vary without changing the shape.
+     */
+    private static int variableCodeBits(int code) {
+        if (code < 0x80)
+            return 0x7F;
+        // TRUE and FALSE differ in the lowest bit only.
+        if (code == TRUE || code == FALSE)
+            return 0x01;
+        return 0;
+    }
+
+    void add(@NotNull WireKey key, long fieldPosition, long valuePosition) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            fieldPositions = Arrays.copyOf(fieldPositions, size * 2);
+            valuePositions = Arrays.copyOf(valuePositions, size * 2);
+        }
+        keys[size] = key;
+        fieldPositions[size] = fieldPosition;
+        valuePositions[size] = valuePosition;
+        size++;
+    }
+
+    /**
+     * Take the image of the bytes from start to limit, once all the fields have been read.
+     *
+     * @param end where reading finished, relative to start.
+     */
+    void complete(@NotNull Bytes<?> bytes, long start, long limit, long end) {
+        this.end = end;
+        length = limit - start;
+        int len = Maths.toInt32(length);
+        byte[] imageBytes = new byte[(len + 7) & ~7];
+        byte[] careBytes = new byte[imageBytes.length];
+        for (int i = 0; i < len; i++) {
+            imageBytes[i] = bytes.readByte(start + i);
+            careBytes[i] = (byte) 0xFF;
+        }
+        for (int i = 0; i < size; i++) {
+            int pos = Maths.toInt32(valuePositions[i]);
+            int code = imageBytes[pos] & 0xFF;
+            int payload = payloadLength(code);
+            if (payload < 0)
+                continue;
+            careBytes[pos] &= ~variableCodeBits(code);
+            Arrays.fill(careBytes, pos + 1, pos + 1 + payload, (byte) 0);
+        }
+        ByteBuffer imageBuffer = ByteBuffer.wrap(imageBytes).order(ByteOrder.nativeOrder());
+        ByteBuffer careBuffer = ByteBuffer.wrap(careBytes).order(ByteOrder.nativeOrder());
+        int words = len >>> 3;
+        image = new long[words];
+        care = new long[words];
+        for (int i = 0; i < words; i++) {
+            care[i] = careBuffer.getLong(i << 3);
+            image[i] = imageBuffer.getLong(i << 3) & care[i];
+        }
+        // the last few bytes are compared one at a time.
+        tailImage = Arrays.copyOfRange(imageBytes, words << 3, len);
+        tailCare = Arrays.copyOfRange(careBytes, words << 3, len);
+        for (int i = 0; i < tailImage.length; i++)
+            tailImage[i] &= tailCare[i];
+    }
+
+    boolean matches(@NotNull Bytes<?> bytes, long start, long limit) {
+        if (limit - start != length)
+            return false;
+        long[] image = this.image;
+        long[] care = this.care;
+        for (int i = 0; i < image.length; i++)
+            if ((bytes.readLong(start + (i << 3)) & care[i]) != image[i])
+                return false;
+        long tailStart = start + (image.length << 3);
+        for (int i = 0; i < tailImage.length; i++)
+            if ((bytes.readByte(tailStart + i) & tailCare[i]) != tailImage[i])
+                return false;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isKey(int slot, @NotNull WireKey key) {
+        WireKey key0 = keys[slot];
+        return key0 == key || StringUtils.isEqual(key0.name(), key.name());
+    }
+
+    long fieldPosition(int slot) {
+        return fieldPositions[slot];
+    }
+
+    long valuePosition(int slot) {
+        return valuePositions[slot];
+    }
+
+    long end() {
+        return end;
+    }
+}
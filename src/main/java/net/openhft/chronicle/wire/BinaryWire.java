@@ -30,6 +30,7 @@ import java.nio.BufferUnderflowException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -44,6 +45,11 @@ import static net.openhft.chronicle.wire.BinaryWireCode.*;
 public class BinaryWire implements Wire, InternalWireIn {
     private static final int ANY_CODE_MATCH = -1;
     private static final int END_OF_BYTES = -1;
+    // the header, event name "strings" and empty marshallable padding the room for definitions.
+    private static final int EMPTY_DEFINITIONS = 4 + 1 + 1 + 7 + 1 + 4;
+    // room for a few more strings than the last batch defined.
+    private static final int DEFINITIONS_SLACK = 64;
+    private static final int MAX_DEFINITIONS_RESERVE = 4 << 10;
     private static final UTF8StringInterner UTF8_INTERNER = new UTF8StringInterner(128);
 
     private final Bytes<?> bytes;
@@ -55,6 +61,27 @@ public class BinaryWire implements Wire, InternalWireIn {
     private final boolean numericFields;
     private final boolean fieldLess;
     private boolean ready;
+    private boolean unorderedFields;
+    // one index per level of nested marshallable, created on demand.
+    private FieldOffsetIndex[] fieldIndexes;
+    private int fieldIndexDepth;
+    private boolean fieldDictionary;
+    @Nullable
+    private BinaryTokenCursor tokens;
+    private boolean inDocument;
+    // the field ids of this stream, created when writing with fieldDictionary or reading a dictionary.
+    @Nullable
+    private FieldNameDictionary fieldNames;
+    // the strings to write as a STRING_REF, when enabled, and those defined for reading by slot.
+    @Nullable
+    private StringTable writeStrings;
+    @Nullable
+    private String[] readStrings;
+    // a copy of the documents written, when the definitions ahead of them don't fit the room
+    // reserved.
+    @Nullable
+    private Bytes<?> documents;
+    private int definitionsReserve;
 
     public BinaryWire(Bytes bytes) {
         this(bytes, false, false, false);
@@ -79,6 +106,157 @@ public class BinaryWire implements Wire, InternalWireIn {
         return ready;
     }
 
+    public boolean unorderedFields() {
+        return unorderedFields;
+    }
+
+    /**
+     * When enabled, a read(WireKey) for a field which is not next indexes the fields of the current
+     * document or marshallable and reads it from there, instead of throwing. Reading fields in the
+     * order written costs the same either way.
+     */
+    @NotNull
+    public BinaryWire unorderedFields(boolean unorderedFields) {
+        this.unorderedFields = unorderedFields;
+        return this;
+    }
+
+    boolean numericFields() {
+        return numericFields;
+    }
+
+    boolean fieldLess() {
+        return fieldLess;
+    }
+
+    /**
+     * Read with the same options and definitions as another BinaryWire over the same bytes.
+     */
+    void readStateFrom(@NotNull BinaryWire wire) {
+        unorderedFields = wire.unorderedFields;
+        fieldNames = wire.fieldNames;
+        readStrings = wire.readStrings;
+    }
+
+    public boolean fieldDictionary() {
+        return fieldDictionary;
+    }
+
+    /**
+     * When enabled, field names written in a document are written as FIELD_NUMBER ids. The first
+     * document to use a name is preceded by a "fieldNames" meta-data document giving the ids of
+     * its new names. This takes precedence over numericFields.
+     * <p>
+     * Any BinaryWire reads these meta-data documents in readDocument, so it can read the fields
+     * by name, provided it reads the stream from the start.
+     */
+    @NotNull
+    public BinaryWire fieldDictionary(boolean fieldDictionary) {
+        this.fieldDictionary = fieldDictionary;
+        return this;
+    }
+
+    @NotNull
+    private FieldNameDictionary fieldNames() {
+        if (fieldNames == null)
+            fieldNames = new FieldNameDictionary();
+        return fieldNames;
+    }
+
+    @Nullable
+    private String readFieldName(long id) {
+        return fieldNames == null ? null : fieldNames.readName(id);
+    }
+
+    /**
+     * Write text values written before as a STRING_REF to the slot they were added to, evicting
+     * the least recently used when the table is full.
+     *
+     * @param capacity the number of strings in the table, or 0 to not use one.
+     */
+    @NotNull
+    public BinaryWire stringTable(int capacity) {
+        return stringTable(capacity, 128, true);
+    }
+
+    /**
+     * Write text values in documents as a STRING_REF to the slot they were added to. Text of up
+     * to maxLength is added the first time it is written, and defined by a meta-data document
+     * inserted ahead of the document which uses it.
+     * <p>
+     * Any BinaryWire reads these as the same String each time, provided it reads, or skips, the
+     * stream from the start.
+     *
+     * @param capacity          the number of strings in the table, or 0 to not use one.
+     * @param maxLength         the longest text to add.
+     * @param leastRecentlyUsed when full, replace a string which hasn't been used recently rather
+     *                          than the oldest.
+     */
+    @NotNull
+    public BinaryWire stringTable(int capacity, int maxLength, boolean leastRecentlyUsed) {
+        writeStrings = capacity == 0 ? null : new StringTable(capacity, maxLength, leastRecentlyUsed);
+        return this;
+    }
+
+    private boolean isTableString(int code) {
+        return code == STRING_REF || code == STRING_DEFINE;
+    }
+
+    /**
+     * @return the slot to write a reference to, or -1 to write the text.
+     */
+    private int tableSlot(@NotNull CharSequence s) {
+        // outside a document there is nowhere to define it.
+        StringTable writeStrings = this.writeStrings;
+        if (writeStrings == null || !inDocument || !writeStrings.accepts(s))
+            return -1;
+        int slot = writeStrings.slotOf(s);
+        return slot >= 0 ? slot : writeStrings.add(s);
+    }
+
+    @NotNull
+    private String readTableString(int code) {
+        long slot = bytes.readStopBit();
+        if (code == STRING_DEFINE) {
+            StringBuilder sb = WireInternal.acquireStringBuilder();
+            bytes.readUtf8(sb);
+            return defineString(slot, sb);
+        }
+        String s = readStrings != null && slot >= 0 && slot < readStrings.length ? readStrings[(int) slot] : null;
+        if (s == null)
+            throw new IORuntimeException("No string defined for slot " + slot + ", the stream must be read from the start");
+        return s;
+    }
+
+    private long readTableStringAsLong(int code) {
+        String text = readTableString(code);
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return Math.round(Double.parseDouble(text));
+        }
+    }
+
+    @NotNull
+    private String defineString(long slot, @NotNull CharSequence text) {
+        if (slot < 0 || slot > Integer.MAX_VALUE - 8)
+            throw new IORuntimeException("String slot " + slot + " out of range");
+        String s = WireInternal.INTERNER.intern(text);
+        if (readStrings == null)
+            readStrings = new String[Math.max(64, (int) slot + 1)];
+        else if (slot >= readStrings.length)
+            readStrings = Arrays.copyOf(readStrings, Math.max(readStrings.length * 2, (int) slot + 1));
+        readStrings[(int) slot] = s;
+        return s;
+    }
+
+    private static boolean isAscii(@NotNull CharSequence s) {
+        for (int i = 0; i < s.length(); i++)
+            if (s.charAt(i) >= 0x80)
+                return false;
+        return true;
+    }
+
     @Override
     public void setReady(boolean ready) {
         this.ready = ready;
@@ -140,6 +318,10 @@ public class BinaryWire implements Wire, InternalWireIn {
 
                 case BinaryWireHighCode.FLOAT:
                     bytes.readSkip(1);
+                    if (isTableString(peekCode)) {
+                        wire.writeValue().text(readTableString(peekCode));
+                        break;
+                    }
                     Number d = readFloat0(peekCode);
                     wire.writeValue().object(d);
                     break;
@@ -175,6 +357,183 @@ public class BinaryWire implements Wire, InternalWireIn {
         return peekCode == FIELD_NAME_ANY || (peekCode >= FIELD_NAME0 && peekCode <= FIELD_NAME31);
     }
 
+    /**
+     * Tokens from the current position to the read limit, with a nested marshallable or sequence
+     * ending at the end of its length.
+     */
+    @NotNull
+    @Override
+    public TokenCursor tokens() {
+        if (tokens == null)
+            tokens = new BinaryTokenCursor();
+        tokens.reset();
+        return tokens;
+    }
+
+    private final class BinaryTokenCursor extends AbstractTokenCursor {
+        // the read limit outside each nested marshallable or sequence.
+        private long[] limits = new long[8];
+        private boolean started;
+
+        void reset() {
+            // restore the limit if the last walk stopped part way.
+            while (depth > 0)
+                bytes.readLimit(limits[--depth]);
+            started = false;
+            token(WireToken.NONE);
+        }
+
+        @NotNull
+        @Override
+        public WireToken nextToken() {
+            for (; ; ) {
+                if (depth == 0) {
+                    // the document is a map of its fields, as it is for text.
+                    if (started || bytes.readRemaining() <= 0)
+                        return token(WireToken.NONE);
+                    started = true;
+                    return start(bytes.readLimit());
+                }
+                if (bytes.readRemaining() <= 0) {
+                    bytes.readLimit(limits[--depth]);
+                    return token(WireToken.END);
+                }
+                int peekCode = peekCode();
+                switch (peekCode >> 4) {
+                    case BinaryWireHighCode.NUM0:
+                    case BinaryWireHighCode.NUM1:
+                    case BinaryWireHighCode.NUM2:
+                    case BinaryWireHighCode.NUM3:
+                    case BinaryWireHighCode.NUM4:
+                    case BinaryWireHighCode.NUM5:
+                    case BinaryWireHighCode.NUM6:
+                    case BinaryWireHighCode.NUM7:
+                        bytes.readSkip(1);
+                        return int64Token(peekCode);
+
+                    case BinaryWireHighCode.CONTROL:
+                        switch (peekCode) {
+                            case PADDING:
+                                bytes.readSkip(1);
+                                continue;
+                            case PADDING32:
+                                bytes.readSkip(1);
+                                bytes.readSkip(bytes.readUnsignedInt());
+                                continue;
+                            case BYTES_LENGTH32: {
+                                bytes.readSkip(1);
+                                int len = bytes.readInt();
+                                long limit = bytes.readLimit();
+                                bytes.readLimit(bytes.readPosition() + len);
+                                return start(limit);
+                            }
+                            case U8_ARRAY: {
+                                bytes.readSkip(1);
+                                long start = bytes.readPosition();
+                                long length = bytes.readRemaining();
+                                bytes.readSkip(length);
+                                return bytesToken(bytes, start, length);
+                            }
+                            case I64_ARRAY: {
+                                bytes.readSkip(1);
+                                long start = bytes.readPosition();
+                                long length = BinaryLongArrayReference.peakLength(bytes, start);
+                                bytes.readSkip(length);
+                                return bytesToken(bytes, start, length);
+                            }
+                        }
+                        break;
+
+                    case BinaryWireHighCode.FLOAT:
+                        bytes.readSkip(1);
+                        if (isTableString(peekCode)) {
+                            text.setLength(0);
+                            text.append(readTableString(peekCode));
+                            return token(WireToken.TEXT);
+                        }
+                        return float64Token(readFloat0(peekCode));
+
+                    case BinaryWireHighCode.INT:
+                        bytes.readSkip(1);
+                        if (peekCode == UUID) {
+                            text.setLength(0);
+                            text.append(new UUID(bytes.readLong(), bytes.readLong()));
+                            return token(WireToken.TEXT);
+                        }
+                        return int64Token(readInt0(peekCode));
+
+                    case BinaryWireHighCode.SPECIAL:
+                        switch (peekCode) {
+                            case COMMENT:
+                            case HINT:
+                                bytes.readSkip(1);
+                                text.setLength(0);
+                                bytes.readUtf8(text);
+                                continue;
+                            case TYPE_PREFIX:
+                                bytes.readSkip(1);
+                                text.setLength(0);
+                                bytes.readUtf8(text);
+                                return token(WireToken.TYPE_PREFIX);
+                            // times are written as their text, which is how a text cursor sees them.
+                            case TIME:
+                            case DATE:
+                            case DATE_TIME:
+                            case ZONED_DATE_TIME:
+                            case TYPE_LITERAL:
+                            case STRING_ANY:
+                                bytes.readSkip(1);
+                                text.setLength(0);
+                                bytes.readUtf8(text);
+                                return token(WireToken.TEXT);
+                            case EVENT_NAME:
+                            case FIELD_NAME_ANY:
+                            case FIELD_NUMBER:
+                                readField(peekCode, ANY_CODE_MATCH, text);
+                                return token(WireToken.FIELD);
+                            case NULL:
+                                bytes.readSkip(1);
+                                return token(WireToken.NULL);
+                            case FALSE:
+                                bytes.readSkip(1);
+                                return boolToken(false);
+                            case TRUE:
+                                bytes.readSkip(1);
+                                return boolToken(true);
+                        }
+                        break;
+
+                    case BinaryWireHighCode.FIELD0:
+                    case BinaryWireHighCode.FIELD1:
+                        readField(peekCode, ANY_CODE_MATCH, text);
+                        return token(WireToken.FIELD);
+
+                    case BinaryWireHighCode.STR0:
+                    case BinaryWireHighCode.STR1:
+                        bytes.readSkip(1);
+                        text.setLength(0);
+                        readText(peekCode, text);
+                        return token(WireToken.TEXT);
+                }
+                throw new UnsupportedOperationException("peekCode=" + stringForCode(peekCode));
+            }
+        }
+
+        /**
+         * @param limit to restore at the end.
+         */
+        @NotNull
+        private WireToken start(long limit) {
+            if (depth == limits.length)
+                limits = Arrays.copyOf(limits, depth * 2);
+            limits[depth++] = limit;
+            int next = peekCode();
+            return token(isFieldNext() || next == FIELD_NUMBER || next == EVENT_NAME
+                    ? WireToken.START_MAP
+                    : WireToken.START_SEQUENCE);
+        }
+    }
+
     @NotNull
     @Override
     public ValueIn read() {
@@ -195,6 +554,8 @@ public class BinaryWire implements Wire, InternalWireIn {
 
     @NotNull
     private ValueIn unorderedField(@NotNull WireKey key, long position, @Nullable StringBuilder sb) {
+        if (unorderedFields && readIndexedField(key, position))
+            return valueIn;
         bytes.readPosition(position);
         if (sb == null)
             sb = WireInternal.acquireStringBuilder();
@@ -203,6 +564,116 @@ public class BinaryWire implements Wire, InternalWireIn {
                 "Expected=" + key.name() + " was: '" + sb + "'");
     }
 
+    private boolean readIndexedField(@NotNull WireKey key, long position) {
+        long limit = bytes.readLimit();
+        FieldOffsetIndex index = fieldIndex(fieldIndexDepth);
+        if (!index.isFor(position, limit))
+            index.reset(position, limit);
+        if (!index.isBuilt()) {
+            buildFieldIndex(index);
+            return findIndexedField(index, key);
+        }
+        if (findIndexedField(index, key))
+            return true;
+        // the index might be for an earlier document which had the same limit.
+        index.reset(position, limit);
+        buildFieldIndex(index);
+        return findIndexedField(index, key);
+    }
+
+    @NotNull
+    private FieldOffsetIndex fieldIndex(int depth) {
+        if (fieldIndexes == null)
+            fieldIndexes = new FieldOffsetIndex[4];
+        else if (depth >= fieldIndexes.length)
+            fieldIndexes = Arrays.copyOf(fieldIndexes, depth * 2);
+        FieldOffsetIndex index = fieldIndexes[depth];
+        if (index == null)
+            fieldIndexes[depth] = index = new FieldOffsetIndex();
+        return index;
+    }
+
+    private void buildFieldIndex(@NotNull FieldOffsetIndex index) {
+        bytes.readPosition(index.start());
+        while (true) {
+            consumeSpecial();
+            long offset = bytes.readPosition();
+            int peekCode = peekCode();
+            if (peekCode == FIELD_NUMBER) {
+                bytes.readSkip(1);
+                long fieldId = bytes.readStopBit();
+                String name = readFieldName(fieldId);
+                index.add(name == null ? (int) fieldId : FieldOffsetIndex.nameCode(name), offset);
+
+            } else {
+                StringBuilder sb = readField(peekCode, ANY_CODE_MATCH, WireInternal.acquireStringBuilder());
+                if (sb == null || bytes.readPosition() == offset)
+                    break;
+                index.add(FieldOffsetIndex.nameCode(sb), offset);
+            }
+            skipValue();
+        }
+        index.built();
+    }
+
+    private boolean findIndexedField(@NotNull FieldOffsetIndex index, @NotNull WireKey key) {
+        int code = key.code();
+        CharSequence name = key.name();
+        if (name != null) {
+            int nameCode = FieldOffsetIndex.nameCode(name);
+            if (findIndexedField(index, key, nameCode))
+                return true;
+            if (nameCode == code)
+                return false;
+        }
+        return findIndexedField(index, key, code);
+    }
+
+    private boolean findIndexedField(@NotNull FieldOffsetIndex index, @NotNull WireKey key, int code) {
+        for (int slot = index.firstSlot(code); ; slot = index.nextSlot(slot)) {
+            long offset = index.offset(slot);
+            if (offset == FieldOffsetIndex.NOT_FOUND)
+                return false;
+            if (index.code(slot) == code && isFieldAt(offset, key))
+                return true;
+        }
+    }
+
+    /**
+     * Reads the field at the offset, leaving the position at its value if it is the key.
+     */
+    private boolean isFieldAt(long offset, @NotNull WireKey key) {
+        bytes.readPosition(offset);
+        int peekCode = peekCode();
+        if (peekCode == FIELD_NUMBER) {
+            bytes.readSkip(1);
+            long fieldId = bytes.readStopBit();
+            String name = readFieldName(fieldId);
+            if (name == null)
+                return fieldId == key.code();
+            return key.name() != null && StringUtils.isEqual(name, key.name());
+        }
+        StringBuilder sb = readField(peekCode, ANY_CODE_MATCH, WireInternal.acquireStringBuilder());
+        return sb != null && key.name() != null && StringUtils.isEqual(sb, key.name());
+    }
+
+    /**
+     * Skip over the next value including any type prefix.
+     */
+    void skipValue() {
+        consumeSpecial(true);
+        int code = peekCode();
+        if (code == END_OF_BYTES)
+            return;
+        if (code == STRING_DEFINE) {
+            // the definition is still needed by later references.
+            bytes.readSkip(1);
+            readTableString(code);
+            return;
+        }
+        bytes.readPosition(BinaryLengths.valueEnd(bytes, bytes.readPosition()));
+    }
+
     @NotNull
     @Override
     public ValueIn readEventName(@NotNull StringBuilder name) {
@@ -232,6 +703,15 @@ public class BinaryWire implements Wire, InternalWireIn {
     @Override
     public void clear() {
         bytes.clear();
+        if (fieldNames != null)
+            fieldNames.clear();
+        if (writeStrings != null)
+            writeStrings.clear();
+        if (readStrings != null)
+            Arrays.fill(readStrings, null);
+        fieldIndexDepth = 0;
+        if (fieldIndexes != null)
+            fieldIndex(0).reset(FieldOffsetIndex.NOT_FOUND, FieldOffsetIndex.NOT_FOUND);
     }
 
     @NotNull
@@ -332,8 +812,14 @@ public class BinaryWire implements Wire, InternalWireIn {
         if (peekCode == FIELD_NUMBER) {
             bytes.readSkip(1);
             long fieldId = bytes.readStopBit();
-            if (codeMatch >= 0 && fieldId != codeMatch)
+            String name = readFieldName(fieldId);
+            if (name != null)
+                return sb.append(name);
+            if (codeMatch >= 0 && fieldId != codeMatch) {
+                if (unorderedFields)
+                    return null;
                 throw new UnsupportedOperationException("Field was: " + fieldId + " expected " + codeMatch);
+            }
             if (codeMatch < 0)
                 sb.append(fieldId);
             return sb;
@@ -407,6 +893,11 @@ public class BinaryWire implements Wire, InternalWireIn {
             case FIELD_NUMBER: {
                 bytes.readSkip(1);
                 long code2 = bytes.readStopBit();
+                String name = readFieldName(code2);
+                if (name != null) {
+                    wire.write(() -> name);
+                    break;
+                }
                 wire.write(new WireKey() {
                     @Nullable
                     @Override
@@ -457,6 +948,8 @@ public class BinaryWire implements Wire, InternalWireIn {
                 break;
 
             case BinaryWireHighCode.FLOAT:
+                if (isTableString(code))
+                    return readTableStringAsLong(code);
                 double d = readFloat0(code);
                 return (long) d;
 
@@ -478,6 +971,10 @@ public class BinaryWire implements Wire, InternalWireIn {
                 return bytes.readFloat();
             case FLOAT64:
                 return bytes.readDouble();
+            // table strings share the FLOAT high code.
+            case STRING_DEFINE:
+            case STRING_REF:
+                return Double.parseDouble(readTableString(code));
 /*            case FIXED1:
                 return bytes.readStopBit() / 1e1;
             case FIXED2:
@@ -506,6 +1003,10 @@ public class BinaryWire implements Wire, InternalWireIn {
                 return bytes.readFloat();
             case FLOAT64:
                 return bytes.readDouble();
+            // table strings share the FLOAT high code.
+            case STRING_DEFINE:
+            case STRING_REF:
+                return Double.parseDouble(readTableString(code));
 /*            case FIXED1:
                 return bytes.readStopBit() / 1e1;
             case FIXED2:
@@ -608,7 +1109,7 @@ public class BinaryWire implements Wire, InternalWireIn {
         throw new UnsupportedOperationException(stringForCode(code));
     }
 
-    private boolean isSmallInt(int code) {
+    static boolean isSmallInt(int code) {
         return (code & 128) == 0;
     }
 
@@ -645,10 +1146,17 @@ public class BinaryWire implements Wire, InternalWireIn {
     @Override
     public ValueOut write(@NotNull WireKey key) {
         if (!fieldLess) {
-            if (numericFields)
+            CharSequence name;
+            if (fieldDictionary && inDocument && (name = key.name()) != null) {
+                writeField(fieldNames().idFor(name));
+            } else if (key instanceof EncodedWireKey) {
+                EncodedWireKey encoded = (EncodedWireKey) key;
+                bytes.write(numericFields ? encoded.binaryNumber() : encoded.binaryName());
+            } else if (numericFields) {
                 writeField(key.code());
-            else
+            } else {
                 writeField(key.name());
+            }
         }
         return valueOut;
     }
@@ -690,6 +1198,191 @@ public class BinaryWire implements Wire, InternalWireIn {
         return this;
     }
 
+    @Override
+    public void writeDocument(boolean metaData, @NotNull WriteMarshallable writer) {
+        writeDocument(metaData, false, writer);
+    }
+
+    @Override
+    public void writeNotReadyDocument(boolean metaData, @NotNull WriteMarshallable writer) {
+        writeDocument(metaData, true, writer);
+    }
+
+    @Override
+    public void writeDocuments(boolean metaData, int count, @NotNull WriteMarshallable writer) {
+        writeDocuments(metaData, false, count, writer);
+    }
+
+    private void writeDocument(boolean metaData, boolean notReady, @NotNull WriteMarshallable writer) {
+        if ((!fieldDictionary && writeStrings == null) || inDocument)
+            WireInternal.writeData(this, metaData, notReady, writer);
+        else
+            writeDocuments(metaData, notReady, 1, writer);
+    }
+
+    private void writeDocuments(boolean metaData, boolean notReady, int count, @NotNull WriteMarshallable writer) {
+        if ((!fieldDictionary && writeStrings == null) || inDocument) {
+            WireInternal.writeDocuments(this, metaData, count, writer);
+            return;
+        }
+        long position = bytes.writePosition();
+        int reserved = definitionsReserve;
+        if (reserved > 0) {
+            // room for the definitions, which readers wait at until it is filled.
+            bytes.writeInt(Wires.META_DATA | Wires.NOT_READY | Wires.UNKNOWN_LENGTH);
+            bytes.writeSkip(reserved - 4);
+        }
+        long start = position + reserved;
+        int header;
+        inDocument = true;
+        try {
+            header = WireInternal.writeBatch(this, metaData, count, writer);
+        } catch (RuntimeException | Error e) {
+            if (fieldNames != null)
+                fieldNames.dropPending();
+            // strings may have been added by the document which wasn't written.
+            if (writeStrings != null)
+                writeStrings.clear();
+            throw e;
+        } finally {
+            inDocument = false;
+        }
+        // the names and strings used by the whole batch are defined before it, which can't be
+        // read until its header is published.
+        if (reserved > 0 || (fieldDictionary && fieldNames().hasPending()) || (writeStrings != null && writeStrings.hasPending()))
+            start = defineBefore(position, start);
+        bytes.writeOrderedInt(start, header | (notReady ? Wires.NOT_READY : 0));
+    }
+
+    /**
+     * Define the names and strings first used by the documents at start in the room reserved
+     * for them from position, padding it with an empty string table. If they don't fit, the
+     * documents are moved after them, their first header still unpublished. The room reserved
+     * for the next batch is what this one needed, so a stream which keeps adding strings isn't
+     * copied, and one which doesn't reserves nothing.
+     *
+     * @return where the documents start now.
+     */
+    private long defineBefore(long position, long start) {
+        long end = bytes.writePosition();
+        // written after the documents, which can't be read past yet, to find their length.
+        writeDefinitions();
+        long length = bytes.writePosition() - end;
+        long reserved = start - position;
+        definitionsReserve = length == 0 ? 0 : (int) Math.min(length + DEFINITIONS_SLACK, MAX_DEFINITIONS_RESERVE);
+        if (length == reserved || length + EMPTY_DEFINITIONS <= reserved) {
+            if (length > 0)
+                bytes.write(position + 4, bytes, end + 4, length - 4);
+            if (length < reserved) {
+                bytes.writePosition(position + length);
+                emptyDefinitions(reserved - length);
+            }
+            if (length > 0) {
+                int first = bytes.readInt(end);
+                // the copy left after the documents isn't a document.
+                bytes.writeInt(end, 0);
+                bytes.writeOrderedInt(position, first);
+            }
+            bytes.writePosition(end);
+            return start;
+        }
+        Bytes<?> documents = this.documents;
+        if (documents == null)
+            documents = this.documents = Bytes.elasticByteBuffer();
+        documents.clear();
+        documents.write(bytes, end, length);
+        documents.write(bytes, start, end - start);
+        bytes.write(position + 4, documents, 4, documents.readRemaining() - 4);
+        long moved = position + documents.readRemaining();
+        if (reserved > 0)
+            bytes.writeInt(moved, 0);
+        bytes.writePosition(moved);
+        bytes.writeOrderedInt(position, documents.readInt(0));
+        return position + length;
+    }
+
+    /**
+     * Write an empty string table padded to this length, which readWireMetaData reads and
+     * ignores.
+     */
+    private void emptyDefinitions(long length) {
+        long position = bytes.writePosition();
+        bytes.writeInt(Wires.META_DATA | Wires.NOT_READY | Wires.UNKNOWN_LENGTH);
+        writeCode(EVENT_NAME).writeUtf8(StringTable.STRINGS);
+        writeCode(BYTES_LENGTH32).writeInt(0);
+        while (bytes.writePosition() < position + length)
+            writeCode(PADDING);
+        bytes.writeOrderedInt(position, Wires.META_DATA | (int) (length - 4));
+    }
+
+    /**
+     * Write meta-data documents defining the names and strings pending. These aren't in a
+     * document, so they are written as plain text.
+     */
+    private void writeDefinitions() {
+        FieldNameDictionary fieldNames = this.fieldNames;
+        if (fieldNames != null && fieldNames.hasPending()) {
+            WireInternal.writeData(this, true, false, w -> {
+                writeCode(EVENT_NAME).writeUtf8(FieldNameDictionary.FIELD_NAMES);
+                valueOut.marshallable(m -> {
+                    for (int i = fieldNames.firstPending(); i < fieldNames.size(); i++) {
+                        writeField(i);
+                        valueOut.text(fieldNames.name(i));
+                    }
+                });
+            });
+            fieldNames.pendingDefined();
+        }
+        StringTable writeStrings = this.writeStrings;
+        if (writeStrings != null && writeStrings.hasPending()) {
+            WireInternal.writeData(this, true, false, w -> {
+                writeCode(EVENT_NAME).writeUtf8(StringTable.STRINGS);
+                valueOut.marshallable(m -> {
+                    for (int i = 0; i < writeStrings.pendingCount(); i++) {
+                        int slot = writeStrings.pendingSlot(i);
+                        writeField(slot);
+                        valueOut.text(writeStrings.string(slot));
+                    }
+                });
+            });
+            writeStrings.pendingDefined();
+        }
+    }
+
+    @Override
+    public boolean readWireMetaData() {
+        long position = bytes.readPosition();
+        if (peekCode() != EVENT_NAME)
+            return false;
+        bytes.readSkip(1);
+        StringBuilder sb = WireInternal.acquireStringBuilder();
+        bytes.readUtf8(sb);
+        boolean names = StringUtils.isEqual(sb, FieldNameDictionary.FIELD_NAMES);
+        if (!names && !StringUtils.isEqual(sb, StringTable.STRINGS)) {
+            bytes.readPosition(position);
+            return false;
+        }
+        String event = names ? FieldNameDictionary.FIELD_NAMES : StringTable.STRINGS;
+        int code = readCode();
+        if (code != BYTES_LENGTH32)
+            throw new IORuntimeException("Expected " + event + " to be a marshallable, was " + stringForCode(code));
+        long end = bytes.readUnsignedInt() + bytes.readPosition();
+        while (bytes.readPosition() < end) {
+            code = readCode();
+            if (code != FIELD_NUMBER)
+                throw new IORuntimeException("Expected a field number in " + event + ", was " + stringForCode(code));
+            long id = bytes.readStopBit();
+            String text = valueIn.text();
+            if (text == null)
+                throw new IORuntimeException("Missing " + (names ? "name for field " : "string for slot ") + id);
+            if (names)
+                fieldNames().define(id, text);
+            else
+                defineString(id, text);
+        }
+        return true;
+    }
+
     private void writeField(@NotNull CharSequence name) {
         int len = name.length();
         if (len < 0x20) {
@@ -760,6 +1453,12 @@ public class BinaryWire implements Wire, InternalWireIn {
                 }
 
             case BinaryWireHighCode.FLOAT:
+                if (isTableString(code)) {
+                    String s = readTableString(code);
+                    AppendableUtil.setLength(sb, 0);
+                    AppendableUtil.append(sb, s);
+                    return sb;
+                }
                 AppendableUtil.append(sb, readFloat(code));
                 return sb;
             case BinaryWireHighCode.INT:
@@ -821,9 +1520,13 @@ public class BinaryWire implements Wire, InternalWireIn {
         @NotNull
         @Override
         public WireOut text(@Nullable CharSequence s) {
+            int slot;
             if (s == null) {
                 writeCode(NULL);
 
+            } else if ((slot = tableSlot(s)) >= 0) {
+                writeCode(STRING_REF).writeStopBit(slot);
+
             } else {
                 int len = s.length();
                 if (len < 0x20) {
@@ -839,9 +1542,13 @@ public class BinaryWire implements Wire, InternalWireIn {
         @NotNull
         @Override
         public WireOut text(@Nullable BytesStore s) {
+            int slot;
             if (s == null) {
                 writeCode(NULL);
 
+            } else if (writeStrings != null && isAscii(s) && (slot = tableSlot(s)) >= 0) {
+                writeCode(STRING_REF).writeStopBit(slot);
+
             } else {
                 int len = s.length();
                 if (len < 0x20) {
@@ -1339,6 +2046,10 @@ public class BinaryWire implements Wire, InternalWireIn {
                 case STRING_ANY:
                     s.accept(bytes.readUtf8());
                     break;
+                case STRING_DEFINE:
+                case STRING_REF:
+                    s.accept(readTableString(code));
+                    break;
                 default:
                     if (code >= STRING_0 && code <= STRING_31) {
                         StringBuilder sb = WireInternal.acquireStringBuilder();
@@ -1416,6 +2127,9 @@ public class BinaryWire implements Wire, InternalWireIn {
                     bytes.readLimit(limit);
                 }
 
+            } else if (isTableString(code)) {
+                return readTableString(code);
+
             } else {
                 StringBuilder text = readText(code, WireInternal.acquireStringBuilder());
                 if (text == null)
@@ -1519,6 +2233,13 @@ public class BinaryWire implements Wire, InternalWireIn {
             return BinaryWire.this;
         }
 
+        @NotNull
+        @Override
+        public WireIn skipValue() {
+            BinaryWire.this.skipValue();
+            return BinaryWire.this;
+        }
+
         @Override
         public long readLength() {
             int code = peekCode();
@@ -1836,9 +2557,12 @@ public class BinaryWire implements Wire, InternalWireIn {
                 long limit = bytes.readLimit();
                 long limit2 = bytes.readPosition() + length;
                 bytes.readLimit(limit2);
+                boolean indexed = enterFieldScope(limit2);
                 try {
                     return marshallableReader.apply(BinaryWire.this);
                 } finally {
+                    if (indexed)
+                        fieldIndexDepth--;
                     bytes.readLimit(limit);
                     bytes.readPosition(limit2);
                 }
@@ -1847,6 +2571,13 @@ public class BinaryWire implements Wire, InternalWireIn {
             }
         }
 
+        private boolean enterFieldScope(long limit) {
+            if (!unorderedFields)
+                return false;
+            fieldIndex(++fieldIndexDepth).reset(bytes.readPosition(), limit);
+            return true;
+        }
+
         @Override
         public boolean isTyped() {
             int code = peekCode();
@@ -1969,9 +2700,12 @@ public class BinaryWire implements Wire, InternalWireIn {
                 long limit = bytes.readLimit();
                 long limit2 = bytes.readPosition() + length;
                 bytes.readLimit(limit2);
+                boolean indexed = enterFieldScope(limit2);
                 try {
                     object.readMarshallable(BinaryWire.this);
                 } finally {
+                    if (indexed)
+                        fieldIndexDepth--;
                     bytes.readLimit(limit);
                     bytes.readPosition(limit2);
                 }
@@ -2082,7 +2816,7 @@ public class BinaryWire implements Wire, InternalWireIn {
             int code = readCode();
 
             if (code >> 4 == BinaryWireHighCode.FLOAT)
-                return (long) readFloat0(code);
+                return readInt(code);
             return isText(code) ? readTextAsLong() : readInt0(code);
         }
 
@@ -2210,6 +2944,8 @@ public class BinaryWire implements Wire, InternalWireIn {
                     break;
 
                 case BinaryWireHighCode.FLOAT:
+                    if (isTableString(code))
+                        return text();
                     return readFloat0object(code);
 
                 case BinaryWireHighCode.INT:
@@ -2220,4 +2956,3 @@ public class BinaryWire implements Wire, InternalWireIn {
         }
     }
 }
-
@@ -48,7 +48,12 @@ enum BinaryWireCode {
 //        static final int FIXED4 = 0x95;
 //        static final int FIXED5 = 0x96;
 //        static final int FIXED6 = 0x97;
-    // 0x9A - 0x9F
+    // a string and the slot in the string table it is added to, inline. BinaryWire writes these
+    // definitions to a meta-data document instead, but reads either.
+    static final int STRING_DEFINE = 0x9A;
+    // the slot in the string table of a string written before.
+    static final int STRING_REF = 0x9B;
+    // 0x9C - 0x9F
 
     static final int UUID = 0xA0;
     static final int UINT8 = 0xA1;
@@ -0,0 +1,153 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteOrder;
+
+/**
+ * Finds bytes eight at a time by reading a long and flagging the bytes of it which match,
+ * rather than testing one byte at a time.
+ */
+final class ByteScanner {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long SPACES = pattern(' ');
+    private static final long OPEN_BRACES = pattern('{');
+    private static final long CLOSE_BRACES = pattern('}');
+    // BytesStore.readLong reads in the native order.
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private ByteScanner() {
+    }
+
+    /**
+     * @return a word with every byte set to b.
+     */
+    static long pattern(int b) {
+        return ONES * (b & 0xFF);
+    }
+
+    /**
+     * Unlike the usual (x - ONES) & ~x & HIGHS, this doesn't flag bytes after a zero byte.
+     *
+     * @return a word with the top bit set in each byte of the word which is zero.
+     */
+    static long zeroBytes(long word) {
+        return ~(((word & LOWS) + LOWS) | word | LOWS);
+    }
+
+    /**
+     * @return a word with the top bit set in each byte of the word which matches the pattern.
+     */
+    static long matches(long word, long pattern) {
+        return zeroBytes(word ^ pattern);
+    }
+
+    /**
+     * @return the offset in memory of the first byte flagged, if any are.
+     */
+    static int firstFlagged(long flags) {
+        return (LITTLE_ENDIAN ? Long.numberOfTrailingZeros(flags) : Long.numberOfLeadingZeros(flags)) >>> 3;
+    }
+
+    /**
+     * @return a word with the top bit set in each byte of the word which isn't ASCII.
+     */
+    static long nonAscii(long word) {
+        return word & HIGHS;
+    }
+
+    static boolean isAscii(long word) {
+        return nonAscii(word) == 0;
+    }
+
+    /**
+     * @return the position of the first byte matching either pattern, or limit if there isn't one.
+     */
+    static long indexOf(@NotNull BytesStore bytes, long position, long limit, long pattern1, long pattern2) {
+        for (; position + 8 <= limit; position += 8) {
+            long word = bytes.readLong(position);
+            long flags = matches(word, pattern1) | matches(word, pattern2);
+            if (flags != 0)
+                return position + firstFlagged(flags);
+        }
+        byte b1 = (byte) pattern1, b2 = (byte) pattern2;
+        for (; position < limit; position++) {
+            byte b = bytes.readByte(position);
+            if (b == b1 || b == b2)
+                return position;
+        }
+        return limit;
+    }
+
+    /**
+     * @return the position of the first byte matching any of the patterns, or limit if there isn't one.
+     */
+    static long indexOf(@NotNull BytesStore bytes, long position, long limit, long pattern1, long pattern2, long pattern3) {
+        for (; position + 8 <= limit; position += 8) {
+            long word = bytes.readLong(position);
+            long flags = matches(word, pattern1) | matches(word, pattern2) | matches(word, pattern3);
+            if (flags != 0)
+                return position + firstFlagged(flags);
+        }
+        byte b1 = (byte) pattern1, b2 = (byte) pattern2, b3 = (byte) pattern3;
+        for (; position < limit; position++) {
+            byte b = bytes.readByte(position);
+            if (b == b1 || b == b2 || b == b3)
+                return position;
+        }
+        return limit;
+    }
+
+    /**
+     * '[' and ']' differ from '{' and '}' only in the 0x20 bit, so setting it in every byte finds
+     * all four brackets with two matches.
+     *
+     * @return the position of the first bracket or byte matching either pattern, or limit if there isn't one.
+     */
+    static long indexOfBracket(@NotNull BytesStore bytes, long position, long limit, long pattern1, long pattern2) {
+        for (; position + 8 <= limit; position += 8) {
+            long word = bytes.readLong(position);
+            long folded = word | SPACES;
+            long flags = matches(folded, OPEN_BRACES) | matches(folded, CLOSE_BRACES)
+                    | matches(word, pattern1) | matches(word, pattern2);
+            if (flags != 0)
+                return position + firstFlagged(flags);
+        }
+        byte b1 = (byte) pattern1, b2 = (byte) pattern2;
+        for (; position < limit; position++) {
+            byte b = bytes.readByte(position);
+            int folded = b | 0x20;
+            if (folded == '{' || folded == '}' || b == b1 || b == b2)
+                return position;
+        }
+        return limit;
+    }
+
+    static boolean isAscii(@NotNull BytesStore bytes, long position, long limit) {
+        for (; position + 8 <= limit; position += 8)
+            if (!isAscii(bytes.readLong(position)))
+                return false;
+        for (; position < limit; position++)
+            if (bytes.readByte(position) < 0)
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Converts a CSV file into a file of BinaryWire documents, one per row, parsing chunks of the
+ * file in parallel.
+ * <p>
+ * The rows after the header are split into chunks which end on a new line, each memory mapped
+ * and read by its own CSVWire sharing the header. Each chunk is written to its own buffer and
+ * the buffers are appended to the output in the order of the file, with a bounded number of
+ * chunks in flight. As chunks are split on new lines, quoted values can't contain a new line.
+ */
+public class CSVIngester {
+    static final long DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private final int threads;
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+    @NotNull
+    private BiConsumer<CSVWire, WireOut> rowWriter = CSVIngester::copyRow;
+
+    public CSVIngester(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads " + threads + " must be positive");
+        this.threads = threads;
+    }
+
+    /**
+     * Write each column of the row as text, named by its heading.
+     */
+    static void copyRow(@NotNull CSVWire csv, @NotNull WireOut out) {
+        EncodedWireKey[] keys = csv.headerKeys();
+        StringBuilder sb = WireInternal.acquireStringBuilder();
+        csv.readEventName(sb).marshallable(row -> {
+            out.write(keys[0]).text(sb);
+            ValueIn valueIn = row.getValueIn();
+            for (int i = 1; i < keys.length; i++)
+                out.write(keys[i]).text(valueIn.textTo(sb));
+        });
+    }
+
+    /**
+     * @param chunkSize the approximate number of bytes of the file parsed by each task.
+     */
+    @NotNull
+    public CSVIngester chunkSize(long chunkSize) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE / 2)
+            throw new IllegalArgumentException("chunkSize " + chunkSize + " out of range");
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @param rowWriter reads one row from the CSVWire and writes it to the document.
+     */
+    @NotNull
+    public CSVIngester rowWriter(@NotNull BiConsumer<CSVWire, WireOut> rowWriter) {
+        this.rowWriter = rowWriter;
+        return this;
+    }
+
+    /**
+     * @return the number of rows written.
+     */
+    public long ingest(@NotNull File csv, @NotNull File binary) throws IOException {
+        ExecutorService service = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "csv-ingester");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(binary))) {
+            long size = channel.size();
+            if (size == 0)
+                return 0;
+            long headerEnd = nextLine(channel, 0, size);
+            List<String> header = new CSVWire(map(channel, 0, headerEnd), true).header();
+            EncodedWireKey[] keys = CSVWire.headerKeys(header);
+
+            // enough chunks to keep every thread busy while the oldest is written.
+            Queue<Future<Chunk>> inFlight = new ArrayDeque<>();
+            long rows = 0;
+            for (long start = headerEnd; start < size; ) {
+                long end = Math.min(start + chunkSize, size);
+                if (end < size)
+                    end = nextLine(channel, end, size);
+                Bytes<?> bytes = map(channel, start, end);
+                inFlight.add(service.submit(() -> parse(new CSVWire(bytes, true, header, keys))));
+                if (inFlight.size() >= threads * 2)
+                    rows += write(inFlight.remove(), out);
+                start = end;
+            }
+            while (!inFlight.isEmpty())
+                rows += write(inFlight.remove(), out);
+            return rows;
+
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
+    @NotNull
+    private Chunk parse(@NotNull CSVWire csv) {
+        Chunk chunk = new Chunk();
+        Wire wire = new BinaryWire(chunk.bytes);
+        while (csv.hasMore()) {
+            wire.writeDocument(false, out -> rowWriter.accept(csv, out));
+            chunk.rows++;
+        }
+        return chunk;
+    }
+
+    private static long write(@NotNull Future<Chunk> future, @NotNull OutputStream out) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IORuntimeException(e.getCause());
+        }
+        chunk.bytes.copyTo(out);
+        chunk.bytes.release();
+        return chunk.rows;
+    }
+
+    @NotNull
+    private static Bytes<?> map(@NotNull FileChannel channel, long start, long end) throws IOException {
+        // the mapping is still valid once the channel is closed.
+        return Bytes.wrapForRead(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+    }
+
+    /**
+     * @return the position after the next new line from position, or the size of the file.
+     */
+    static long nextLine(@NotNull FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 << 10);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++)
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+        return size;
+    }
+
+    static final class Chunk {
+        final Bytes<?> bytes = Bytes.elasticByteBuffer();
+        long rows;
+    }
+}
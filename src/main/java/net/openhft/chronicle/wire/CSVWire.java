@@ -18,7 +18,6 @@ package net.openhft.chronicle.wire;
 
 import net.openhft.chronicle.bytes.*;
 import net.openhft.chronicle.core.Maths;
-import net.openhft.chronicle.core.io.IOTools;
 import net.openhft.chronicle.core.pool.ClassAliasPool;
 import net.openhft.chronicle.core.util.BooleanConsumer;
 import net.openhft.chronicle.core.util.ObjectUtils;
@@ -43,21 +42,319 @@ import static net.openhft.chronicle.core.util.ReadResolvable.readResolve;
 public class CSVWire extends TextWire {
 
     static final ThreadLocal<StopCharTester> ESCAPED_END_OF_TEXT = ThreadLocal.withInitial(() -> StopCharTesters.COMMA_STOP.escaping());
-
-    private final List<String> header = new ArrayList<>();
+    static final StopCharScanner COMMA_SCANNER = StopCharScanner.escaping(StopCharTesters.COMMA_STOP);
+    private static final long COMMAS = ByteScanner.pattern(',');
+    private static final long NEW_LINES = ByteScanner.pattern('\n');
+    private static final long RETURNS = ByteScanner.pattern('\r');
+
+    private final List<String> header;
+    // the header as keys, encoded once.
+    @Nullable
+    private EncodedWireKey[] headerKeys;
+    // the projected keys, and for each column the index of its key or -1 if it's skipped.
+    @Nullable
+    private WireKey[] projectedKeys;
+    private int[] columnKeys;
+    private long[] cellStarts, cellEnds;
+    private long rowLimit;
+    private boolean inRow;
+    @Nullable
+    private CSVTokenCursor tokens;
 
     public CSVWire(Bytes bytes, boolean use8bit) {
         super(bytes, use8bit);
+        header = new ArrayList<>();
         while (lineStart == 0)
             header.add(valueIn.text());
     }
 
+    /**
+     * Read rows without a header line, using the header of another CSVWire over the same file.
+     */
+    public CSVWire(Bytes bytes, boolean use8bit, @NotNull List<String> header) {
+        super(bytes, use8bit);
+        this.header = header;
+    }
+
+    CSVWire(Bytes bytes, boolean use8bit, @NotNull List<String> header, @NotNull EncodedWireKey[] headerKeys) {
+        this(bytes, use8bit, header);
+        this.headerKeys = headerKeys;
+    }
+
     public CSVWire(Bytes bytes) {
         this(bytes, false);
     }
 
+    /**
+     * Read a file, memory mapped rather than loaded onto the heap. A file over 2 GB is read
+     * 16 MB at a time, so its records must be no larger than that.
+     */
     public static CSVWire fromFile(String name) throws IOException {
-        return new CSVWire(Bytes.wrapForRead(IOTools.readFile(name)), true);
+        FileInput input = FileInput.open(name, true);
+        CSVWire wire = new CSVWire(input.bytes(), true);
+        wire.input = input;
+        return wire;
+    }
+
+    /**
+     * @return the column names read from the first line.
+     */
+    @NotNull
+    public List<String> header() {
+        return header;
+    }
+
+    /**
+     * @return a key for each column of the header, so writing a cell doesn't encode its name.
+     */
+    @NotNull
+    EncodedWireKey[] headerKeys() {
+        if (headerKeys == null)
+            headerKeys = headerKeys(header);
+        return headerKeys;
+    }
+
+    @NotNull
+    static EncodedWireKey[] headerKeys(@NotNull List<String> header) {
+        EncodedWireKey[] keys = new EncodedWireKey[header.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String name = header.get(i);
+            keys[i] = EncodedWireKey.of(() -> name);
+        }
+        return keys;
+    }
+
+    /**
+     * Select the columns read by readRow, resolving the keys against the header once. The other
+     * columns are skipped without being decoded, and the projected ones can be read in any order.
+     *
+     * @param keys the columns to read, or none to read every column in order.
+     */
+    @NotNull
+    public CSVWire project(@NotNull WireKey... keys) {
+        if (keys.length == 0) {
+            projectedKeys = null;
+            return this;
+        }
+        columnKeys = new int[header.size()];
+        Arrays.fill(columnKeys, -1);
+        for (int i = 0; i < keys.length; i++) {
+            String name = String.valueOf(keys[i].name());
+            int column = header.indexOf(name);
+            if (column < 0)
+                throw new IllegalArgumentException("No column " + name + " in " + header);
+            columnKeys[column] = i;
+        }
+        projectedKeys = keys.clone();
+        cellStarts = new long[keys.length];
+        cellEnds = new long[keys.length];
+        return this;
+    }
+
+    /**
+     * Read the next row with the projected columns, which the reader reads with read(WireKey).
+     *
+     * @return false if there are no more rows.
+     */
+    public boolean readRow(@NotNull ReadMarshallable reader) {
+        if (projectedKeys == null)
+            throw new IllegalStateException("No columns projected");
+        if (!hasMore())
+            return false;
+        rewindToRowStart();
+        rowLimit = bytes.readLimit();
+        long rowEnd = scanRow(rowLimit);
+        inRow = true;
+        try {
+            reader.readMarshallable(this);
+        } finally {
+            inRow = false;
+            bytes.readLimit(rowLimit);
+            bytes.readPosition(rowEnd);
+        }
+        consumeWhiteSpace();
+        return true;
+    }
+
+    /**
+     * hasMore() skips the separators of empty cells at the start of the row, so step back over them.
+     */
+    private void rewindToRowStart() {
+        long start = bytes.readPosition();
+        while (start > lineStart && start > bytes.start()) {
+            int ch = bytes.readUnsignedByte(start - 1);
+            if (ch != ',' && ch != ' ' && ch != '\t')
+                break;
+            start--;
+        }
+        bytes.readPosition(start);
+    }
+
+    /**
+     * Find where each projected cell of this row starts and ends by looking for the separators.
+     *
+     * @return the end of the row.
+     */
+    private long scanRow(long limit) {
+        Arrays.fill(cellStarts, -1L);
+        long position = bytes.readPosition();
+        for (int column = 0; ; column++) {
+            long start = position;
+            int quote = 0;
+            boolean blank = true;
+            int ch = -1;
+            for (; position < limit; position++) {
+                ch = bytes.readUnsignedByte(position);
+                if (quote != 0) {
+                    if (ch == '\\')
+                        position++;
+                    else if (ch == quote)
+                        quote = 0;
+                } else if (ch == ',' || ch == '\n' || ch == '\r') {
+                    break;
+                } else if (blank && (ch == '"' || ch == '\'')) {
+                    quote = ch;
+                } else if (!Character.isWhitespace(ch)) {
+                    blank = false;
+                }
+            }
+            position = Math.min(position, limit);
+            if (column < columnKeys.length && columnKeys[column] >= 0) {
+                cellStarts[columnKeys[column]] = start;
+                cellEnds[columnKeys[column]] = position;
+            }
+            if (position >= limit || ch != ',')
+                break;
+            position++;
+        }
+        // missing cells are empty.
+        for (int i = 0; i < cellStarts.length; i++)
+            if (cellStarts[i] < 0)
+                cellStarts[i] = cellEnds[i] = position;
+        return position;
+    }
+
+    private int keyIndex(@NotNull WireKey key) {
+        WireKey[] keys = projectedKeys;
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] == key)
+                return i;
+        CharSequence name = key.name();
+        for (int i = 0; i < keys.length; i++)
+            if (StringUtils.isEqual(keys[i].name(), name))
+                return i;
+        throw new IllegalArgumentException("Column " + name + " is not projected");
+    }
+
+    /**
+     * The remaining rows as a sequence of maps from each column name in the header to the cell.
+     */
+    @NotNull
+    @Override
+    public TokenCursor tokens() {
+        if (tokens == null)
+            tokens = new CSVTokenCursor();
+        tokens.reset();
+        return tokens;
+    }
+
+    private final class CSVTokenCursor extends AbstractTokenCursor {
+        private boolean started;
+        private boolean valuePending;
+        private boolean rowEnded;
+        private int column;
+
+        void reset() {
+            depth = 0;
+            started = false;
+            valuePending = false;
+            token(WireToken.NONE);
+        }
+
+        @NotNull
+        @Override
+        public WireToken nextToken() {
+            switch (depth) {
+                case 0:
+                    if (started)
+                        return token(WireToken.NONE);
+                    started = true;
+                    depth = 1;
+                    return token(WireToken.START_SEQUENCE);
+
+                case 1:
+                    if (!hasMore()) {
+                        depth = 0;
+                        return token(WireToken.END);
+                    }
+                    rewindToRowStart();
+                    depth = 2;
+                    column = 0;
+                    rowEnded = false;
+                    return token(WireToken.START_MAP);
+
+                default:
+                    if (valuePending) {
+                        valuePending = false;
+                        return cell();
+                    }
+                    if (rowEnded) {
+                        depth = 1;
+                        return token(WireToken.END);
+                    }
+                    text.setLength(0);
+                    if (column < header.size())
+                        text.append(header.get(column));
+                    else
+                        text.append(column);
+                    valuePending = true;
+                    return token(WireToken.FIELD);
+            }
+        }
+
+        @NotNull
+        private WireToken cell() {
+            long position = bytes.readPosition();
+            long limit = bytes.readLimit();
+            while (position < limit && (bytes.readUnsignedByte(position) == ' ' || bytes.readUnsignedByte(position) == '\t'))
+                position++;
+            long start = position;
+            // find the end of the cell as scanRow does.
+            int quote = 0;
+            int ch = -1;
+            for (; position < limit; position++) {
+                ch = bytes.readUnsignedByte(position);
+                if (quote != 0) {
+                    if (ch == '\\')
+                        position++;
+                    else if (ch == quote)
+                        quote = 0;
+                } else if (ch == ',' || ch == '\n' || ch == '\r') {
+                    break;
+                } else if (position == start && (ch == '"' || ch == '\'')) {
+                    quote = ch;
+                }
+            }
+            long end = Math.min(position, limit);
+            column++;
+            rowEnded = end >= limit || ch != ',';
+
+            text.setLength(0);
+            bytes.readPosition(start);
+            bytes.readLimit(end);
+            try {
+                valueIn.textTo(text);
+            } finally {
+                bytes.readLimit(limit);
+            }
+            int first = start < end ? bytes.readUnsignedByte(start) : -1;
+            WireToken token = first == '"' || first == '\''
+                    ? token(WireToken.TEXT)
+                    : plainToken(bytes, start);
+            // read past the comma, leaving the end of the line for hasMore()
+            bytes.readPosition(rowEnded ? end : end + 1);
+            return token;
+        }
     }
 
     @NotNull
@@ -105,6 +402,25 @@ public class CSVWire extends TextWire {
         return sct;
     }
 
+    /**
+     * A plain cell runs to the next comma or the end of the line, rather than to a comma and a space.
+     */
+    @Override
+    void skipValue() {
+        consumeWhiteSpace();
+        switch (peekCode()) {
+            case '"':
+            case '\'':
+            case '{':
+            case '[':
+                super.skipValue();
+                break;
+            default:
+                bytes.readPosition(ByteScanner.indexOf(bytes, bytes.readPosition(), bytes.readLimit(), COMMAS, NEW_LINES, RETURNS));
+                break;
+        }
+    }
+
     void consumeWhiteSpace() {
         for (; ; ) {
             int codePoint = peekCode();
@@ -127,7 +443,10 @@ public class CSVWire extends TextWire {
     }
 
     int peekCode() {
-        return bytes.peekUnsignedByte();
+        int code = bytes.peekUnsignedByte();
+        if (code < 0 && input != null)
+            input.endOfBytes();
+        return code;
     }
 
     /**
@@ -158,20 +477,30 @@ public class CSVWire extends TextWire {
     }
 
     private int readCode() {
-        if (bytes.readRemaining() < 1)
+        if (bytes.readRemaining() < 1) {
+            if (input != null)
+                input.endOfBytes();
             return -1;
+        }
         return bytes.readUnsignedByte();
     }
 
     @NotNull
     @Override
     public ValueIn read(@NotNull WireKey key) {
+        if (inRow) {
+            int index = keyIndex(key);
+            bytes.readLimit(rowLimit);
+            bytes.readPosition(cellStarts[index]);
+            bytes.readLimit(cellEnds[index]);
+        }
         return valueIn;
     }
 
     @NotNull
     @Override
     public ValueIn read(@NotNull StringBuilder name) {
+        refill();
         consumeWhiteSpace();
         readField(name);
         return valueIn;
@@ -197,6 +526,7 @@ public class CSVWire extends TextWire {
 
     @Override
     public boolean hasMore() {
+        refill();
         consumeWhiteSpace();
 
         return bytes.readRemaining() > 0;
@@ -304,30 +634,6 @@ public class CSVWire extends TextWire {
         return new TextLongArrayReference();
     }
 
-    public void parseWord(StringBuilder sb) {
-        parseUntil(sb, StopCharTesters.SPACE_STOP);
-    }
-
-    public void parseUntil(StringBuilder sb, StopCharTester testers) {
-        if (use8bit)
-            bytes.parse8bit(sb, testers);
-        else
-            bytes.parseUTF(sb, testers);
-    }
-
-    public void parseUntil(StringBuilder sb, StopCharsTester testers) {
-        sb.setLength(0);
-        if (use8bit) {
-            AppendableUtil.read8bitAndAppend(bytes, sb, testers);
-        } else {
-            try {
-                AppendableUtil.readUTFAndAppend(bytes, sb, testers);
-            } catch (IOException e) {
-                throw new IORuntimeException(e);
-            }
-        }
-    }
-
     public void append(CharSequence cs) {
         if (use8bit)
             bytes.append8bit(cs);
@@ -668,11 +974,14 @@ public class CSVWire extends TextWire {
                 }
                 case '"': {
                     bytes.readSkip(1);
-                    if (use8bit)
-                        bytes.parse8bit(a, getEscapingQuotes());
-                    else
-                        bytes.parseUTF(a, getEscapingQuotes());
-                    unescape(a);
+                    // without a backslash there is nothing to unescape.
+                    if (!QUOTES_SCANNER.tryParse(bytes, a, use8bit)) {
+                        if (use8bit)
+                            bytes.parse8bit(a, getEscapingQuotes());
+                        else
+                            bytes.parseUTF(a, getEscapingQuotes());
+                        unescape(a);
+                    }
                     int code = peekCode();
                     if (code == '"')
                         readCode();
@@ -681,11 +990,13 @@ public class CSVWire extends TextWire {
                 }
                 case '\'': {
                     bytes.readSkip(1);
-                    if (use8bit)
-                        bytes.parse8bit(a, getEscapingSingleQuotes());
-                    else
-                        bytes.parseUTF(a, getEscapingSingleQuotes());
-                    unescape(a);
+                    if (!SINGLE_QUOTES_SCANNER.tryParse(bytes, a, use8bit)) {
+                        if (use8bit)
+                            bytes.parse8bit(a, getEscapingSingleQuotes());
+                        else
+                            bytes.parseUTF(a, getEscapingSingleQuotes());
+                        unescape(a);
+                    }
                     int code = peekCode();
                     if (code == '\'')
                         readCode();
@@ -722,10 +1033,12 @@ public class CSVWire extends TextWire {
                 }
                 default: {
                     if (bytes.readRemaining() > 0) {
-                        if (a instanceof Bytes || use8bit)
-                            bytes.parse8bit(a, getEscapingEndOfText());
-                        else
-                            bytes.parseUTF(a, getEscapingEndOfText());
+                        if (!COMMA_SCANNER.tryParse(bytes, a, a instanceof Bytes || use8bit)) {
+                            if (a instanceof Bytes || use8bit)
+                                bytes.parse8bit(a, getEscapingEndOfText());
+                            else
+                                bytes.parseUTF(a, getEscapingEndOfText());
+                        }
 
                     } else {
                         AppendableUtil.setLength(a, 0);
@@ -1144,17 +1457,7 @@ public class CSVWire extends TextWire {
         @Override
         public double float64() {
             consumeWhiteSpace();
-            return bytes.parseDouble();
-        }
-
-        @Override
-        public float float32() {
-
-            double d = float64();
-            if ((double) (((float) d)) != d)
-                throw new IllegalStateException("value=" + d + " can not be represented as a float");
-
-            return (float) d;
+            return DoubleText.parse(bytes);
         }
 
         /**
@@ -0,0 +1,95 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads one type of message from a BinaryWire using the shape of the first message read.
+ * <p>
+ * The first read is done the usual way, recording where each field's value was. When a later
+ * message has the same field headers, type codes and lengths, the fields are read from the
+ * recorded offsets without parsing the field names or checking each value's type. Otherwise the
+ * message is read the usual way. If most messages stop matching, the shape is recorded again.
+ * Both are read through a BinaryWire of the reader's own over the same bytes, so other reads of
+ * the BinaryWire don't check for a template.
+ * <p>
+ * Fixed width numbers (BinaryWire's fixed option) and text of a fixed length match every time.
+ * Use one reader per message type and thread e.g.
+ * <pre>
+ * wire.readDocument(null, w -> reader.read(w, order));
+ * </pre>
+ * Other wire types are read the usual way.
+ */
+public class CompiledBinaryReader {
+    // don't record again for the odd message which doesn't match.
+    private static final int MIN_UNMATCHED = 16;
+
+    // reads messages of the last BinaryWire read from, recording or replaying the template.
+    @Nullable
+    private TemplateBinaryWire templateWire;
+    @Nullable
+    private BinaryTemplate template;
+    private long matched;
+    private long unmatched;
+
+    public void read(@NotNull WireIn wire, @NotNull ReadMarshallable object) {
+        if (!(wire instanceof BinaryWire)) {
+            object.readMarshallable(wire);
+            return;
+        }
+        TemplateBinaryWire templateWire = this.templateWire;
+        if (templateWire == null || !templateWire.isFor((BinaryWire) wire))
+            this.templateWire = templateWire = new TemplateBinaryWire((BinaryWire) wire);
+        Bytes<?> bytes = wire.bytes();
+        BinaryTemplate template = this.template;
+        if (template != null && template.matches(bytes, bytes.readPosition(), bytes.readLimit())) {
+            matched++;
+            templateWire.replay(template, object);
+
+        } else if (template == null || (++unmatched > matched && unmatched >= MIN_UNMATCHED)) {
+            this.template = templateWire.record(object);
+            matched = unmatched = 0;
+
+        } else {
+            object.readMarshallable(wire);
+        }
+    }
+
+    /**
+     * @return the number of messages which matched the current template.
+     */
+    public long matched() {
+        return matched;
+    }
+
+    /**
+     * @return the number of messages which didn't match the current template.
+     */
+    public long unmatched() {
+        return unmatched;
+    }
+
+    /**
+     * Forget the current template so the next message is recorded.
+     */
+    public void reset() {
+        template = null;
+        matched = unmatched = 0;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a stream of values per key, such as snapshots of a position, as just the fields which
+ * changed since the last value written for the key.
+ * <p>
+ * Each value is encoded as BinaryWire and compared field by field with the last encoding of the
+ * key. The fields which changed are written as a data document of the key, a bitmap of the
+ * fields present and their encodings. A value with no changes isn't written. The first value of
+ * a key, one with a different number of fields, and every snapshotInterval'th value are written
+ * in full as a meta data document, so a reader which starts part way through can resync.
+ * <p>
+ * The reader keeps the last encoding of each key too, so a delta can be applied onto it and the
+ * whole value read onto a reused instance. Deltas of a key it hasn't had a snapshot of yet are
+ * skipped. The underlying wire can be of any type which supports bytes values.
+ * <p>
+ * The encodings are held off heap, so close() the DeltaWire when it is no longer needed.
+ */
+public class DeltaWire implements Closeable {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+
+    @NotNull
+    private final Wire wire;
+    private final int snapshotInterval;
+    // the last encoding of each key.
+    private final Map<String, Encoding> encodings = new HashMap<>();
+    private final Bytes<?> bitmap = Bytes.elasticByteBuffer();
+    private final Encoding changes = new Encoding();
+    private final StringBuilder keyBuilder = new StringBuilder();
+    private final WriteMarshallable snapshotWriter = this::writeSnapshot;
+    private final WriteMarshallable deltaWriter = this::writeDelta;
+    private final ReadMarshallable snapshotReader = this::readSnapshot;
+    private final ReadMarshallable deltaReader = this::readDelta;
+    // the value being written or read, swapped with the key's last encoding when done.
+    @NotNull
+    private Encoding encoding = new Encoding();
+    @Nullable
+    private String key;
+    @Nullable
+    private ReadMarshallable using;
+
+    public DeltaWire(@NotNull Wire wire) {
+        this(wire, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public DeltaWire(@NotNull Wire wire, int snapshotInterval) {
+        if (snapshotInterval < 1)
+            throw new IllegalArgumentException("snapshotInterval " + snapshotInterval + " must be positive");
+        this.wire = wire;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @NotNull
+    public Wire wire() {
+        return wire;
+    }
+
+    /**
+     * Write the fields of value which changed since the last value written for key.
+     *
+     * @return false if nothing changed so nothing was written.
+     */
+    public boolean write(@NotNull String key, @NotNull WriteMarshallable value) {
+        Encoding encoding = this.encoding;
+        encoding.bytes.clear();
+        value.writeMarshallable(encoding.wire);
+        encoding.split();
+
+        Encoding last = encodings.get(key);
+        this.key = key;
+        if (last == null || last.count != encoding.count || last.updates + 1 >= snapshotInterval) {
+            encoding.updates = 0;
+            wire.writeDocument(true, snapshotWriter);
+
+        } else if (diff(last)) {
+            encoding.updates = last.updates + 1;
+            wire.writeDocument(false, deltaWriter);
+
+        } else {
+            return false;
+        }
+        this.encoding = last == null ? new Encoding() : last;
+        encodings.put(key, encoding);
+        return true;
+    }
+
+    /**
+     * Fill bitmap and changes with the fields which differ from last.
+     *
+     * @return true if any did.
+     */
+    private boolean diff(@NotNull Encoding last) {
+        Encoding encoding = this.encoding;
+        bitmap.clear();
+        changes.bytes.clear();
+        int bits = 0;
+        for (int i = 0; i < encoding.count; i++) {
+            long start = encoding.start(i), length = encoding.end(i) - start;
+            long lastStart = last.start(i);
+            if (length != last.end(i) - lastStart || !equalBytes(encoding.bytes, start, last.bytes, lastStart, length)) {
+                bits |= 1 << (i & 7);
+                changes.bytes.write(encoding.bytes, start, length);
+            }
+            if ((i & 7) == 7 || i == encoding.count - 1) {
+                bitmap.writeUnsignedByte(bits);
+                bits = 0;
+            }
+        }
+        return changes.bytes.readRemaining() > 0;
+    }
+
+    private static boolean equalBytes(@NotNull Bytes<?> a, long aStart, @NotNull Bytes<?> b, long bStart, long length) {
+        long i = 0;
+        for (; i + 8 <= length; i += 8)
+            if (a.readLong(aStart + i) != b.readLong(bStart + i))
+                return false;
+        for (; i < length; i++)
+            if (a.readByte(aStart + i) != b.readByte(bStart + i))
+                return false;
+        return true;
+    }
+
+    private void writeSnapshot(@NotNull WireOut out) {
+        out.write(Field.key).text(key)
+                .write(Field.snapshot).bytes(encoding.bytes);
+    }
+
+    private void writeDelta(@NotNull WireOut out) {
+        out.write(Field.key).text(key)
+                .write(Field.fields).bytes(bitmap)
+                .write(Field.values).bytes(changes.bytes);
+    }
+
+    /**
+     * Read the next document, reading the value it gives onto using.
+     *
+     * @return true if a document was read, though it only changed using if key() isn't null.
+     */
+    public boolean readDocument(@NotNull ReadMarshallable using) {
+        this.using = using;
+        key = null;
+        try {
+            // one at a time, as readDocument would go on from a snapshot to the next delta.
+            return wire.readDocument(snapshotReader, null) || wire.readDocument(null, deltaReader);
+        } finally {
+            this.using = null;
+        }
+    }
+
+    /**
+     * @return the key of the value last read, or null if the last document didn't give one.
+     */
+    @Nullable
+    public String key() {
+        return key;
+    }
+
+    private void readSnapshot(@NotNull WireIn in) {
+        String key = readKey(in);
+        // not every wire clears the bytes it reads into.
+        encoding.bytes.clear();
+        in.read(Field.snapshot).bytes(encoding.bytes);
+        apply(key);
+    }
+
+    private void readDelta(@NotNull WireIn in) {
+        String key = readKey(in);
+        bitmap.clear();
+        changes.bytes.clear();
+        in.read(Field.fields).bytes(bitmap);
+        in.read(Field.values).bytes(changes.bytes);
+        Encoding last = encodings.get(key);
+        if (last == null)
+            return;
+        if (bitmap.readRemaining() != (last.count + 7) >> 3)
+            throw new IORuntimeException("Delta for " + key + " has " + bitmap.readRemaining() + " bytes of bitmap for " + last.count + " fields");
+        changes.split();
+        Bytes<?> bytes = encoding.bytes;
+        bytes.clear();
+        int changed = 0;
+        for (int i = 0; i < last.count; i++) {
+            if ((bitmap.readUnsignedByte(i >> 3) & (1 << (i & 7))) == 0) {
+                bytes.write(last.bytes, last.start(i), last.end(i) - last.start(i));
+            } else if (changed < changes.count) {
+                bytes.write(changes.bytes, changes.start(changed), changes.end(changed) - changes.start(changed));
+                changed++;
+            } else {
+                throw new IORuntimeException("Delta for " + key + " has fewer fields than its bitmap");
+            }
+        }
+        apply(key);
+    }
+
+    @NotNull
+    private String readKey(@NotNull WireIn in) {
+        StringBuilder sb = in.read(Field.key).textTo(keyBuilder);
+        if (sb == null)
+            throw new IORuntimeException("Document without a key");
+        return WireInternal.INTERNER.intern(sb);
+    }
+
+    private void apply(@NotNull String key) {
+        Encoding encoding = this.encoding;
+        encoding.split();
+        Encoding last = encodings.put(key, encoding);
+        this.encoding = last == null ? new Encoding() : last;
+        this.key = key;
+        Bytes<?> bytes = encoding.bytes;
+        long position = bytes.readPosition();
+        try {
+            using.readMarshallable(encoding.wire);
+        } finally {
+            bytes.readPosition(position);
+        }
+    }
+
+    /**
+     * Release the last encoding of every key, but not the underlying wire.
+     */
+    @Override
+    public void close() {
+        for (Encoding last : encodings.values())
+            last.bytes.release();
+        encodings.clear();
+        encoding.bytes.release();
+        changes.bytes.release();
+        bitmap.release();
+    }
+
+    enum Field implements WireKey {
+        key, snapshot, fields, values
+    }
+
+    /**
+     * A value encoded as BinaryWire, and where each of its fields ends.
+     */
+    static final class Encoding {
+        final Bytes<?> bytes = Bytes.elasticByteBuffer();
+        final BinaryWire wire = new BinaryWire(bytes);
+        private final StringBuilder name = new StringBuilder();
+        private long[] ends = new long[16];
+        private long start;
+        int count;
+        // values written since the last snapshot.
+        int updates;
+
+        void split() {
+            start = bytes.readPosition();
+            count = 0;
+            while (bytes.readRemaining() > 0) {
+                wire.read(name).skipValue();
+                if (count == ends.length)
+                    ends = Arrays.copyOf(ends, count * 2);
+                ends[count++] = bytes.readPosition();
+            }
+            bytes.readPosition(start);
+        }
+
+        long start(int field) {
+            return field == 0 ? start : ends[field - 1];
+        }
+
+        long end(int field) {
+            return ends[field];
+        }
+    }
+}
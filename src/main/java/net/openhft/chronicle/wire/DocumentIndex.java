@@ -0,0 +1,129 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A sparse index of the data documents of a stream by sequence number, from 0.
+ * <p>
+ * Every stride'th document has an entry of where the writer was when it was written, so a
+ * reader finds a document with one lookup and fewer than stride header hops, stepping over any
+ * meta-data documents. The index is off heap, e.g. in a file next to the documents, laid out
+ * as the stride, the number of documents written and a BinaryLongArrayReference of the entries.
+ * <p>
+ * Reading from the middle of a stream doesn't read the meta-data before it, so a BinaryWire
+ * fieldDictionary or stringTable can't be used for documents read this way.
+ */
+public class DocumentIndex {
+    private static final long STRIDE = 0;
+    private static final long DOCUMENTS = 8;
+    private static final long ENTRIES = 16;
+
+    private final BytesStore bytes;
+    private final long offset;
+    private final int stride;
+    private final BinaryLongArrayReference entries = new BinaryLongArrayReference();
+
+    public DocumentIndex(@NotNull BytesStore bytes, long offset) {
+        this.bytes = bytes;
+        this.offset = offset;
+        stride = Math.toIntExact(bytes.readLong(offset + STRIDE));
+        if (stride < 1)
+            throw new IllegalStateException("No index at " + offset);
+        long entriesOffset = offset + ENTRIES;
+        entries.bytesStore(bytes, entriesOffset, BinaryLongArrayReference.peakLength(bytes, entriesOffset));
+    }
+
+    /**
+     * Write an empty index for capacity * stride documents.
+     */
+    public static void write(@NotNull Bytes bytes, int stride, long capacity) {
+        if (stride < 1)
+            throw new IllegalArgumentException("stride " + stride + " must be positive");
+        bytes.writeLong(stride);
+        bytes.writeLong(0L);
+        BinaryLongArrayReference.write(bytes, capacity);
+    }
+
+    /**
+     * @return the length of an index of this capacity.
+     */
+    public static long length(long capacity) {
+        return ENTRIES + 8 + (capacity << 3);
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * @return the number of data documents written.
+     */
+    public long documents() {
+        return bytes.readVolatileLong(offset + DOCUMENTS);
+    }
+
+    /**
+     * Write a data document to the wire, indexing it.
+     *
+     * @return its sequence number.
+     */
+    public long writeDocument(@NotNull WireOut wire, @NotNull WriteMarshallable writer) {
+        long sequence = bytes.readLong(offset + DOCUMENTS);
+        if (sequence % stride == 0) {
+            long entry = sequence / stride;
+            if (entry >= entries.getCapacity())
+                throw new IllegalStateException("The index is full at " + sequence + " documents");
+            // meta-data documents the wire adds are after this position.
+            entries.setValueAt(entry, wire.bytes().writePosition());
+        }
+        wire.writeDocument(false, writer);
+        bytes.writeOrderedLong(offset + DOCUMENTS, sequence + 1);
+        return sequence;
+    }
+
+    /**
+     * @param documents the documents indexed.
+     * @return the position of the document with this sequence number, or -1 if it hasn't been
+     * written.
+     */
+    public long positionOf(@NotNull BytesStore documents, long sequence) {
+        if (sequence < 0 || sequence >= documents())
+            return -1;
+        long position = entries.getValueAt(sequence / stride);
+        for (long remaining = sequence % stride; ; ) {
+            int header = documents.readVolatileInt(position);
+            if (Wires.isData(header)) {
+                if (remaining-- == 0)
+                    return position;
+            }
+            position += 4 + Wires.lengthOf(header);
+        }
+    }
+
+    /**
+     * Read the data document with this sequence number.
+     *
+     * @return false if it hasn't been written.
+     */
+    public boolean readDocument(@NotNull WireIn wire, long sequence, @NotNull ReadMarshallable dataConsumer) {
+        long position = positionOf(wire.bytes(), sequence);
+        return position >= 0 && wire.readDocument(position, null, dataConsumer);
+    }
+}
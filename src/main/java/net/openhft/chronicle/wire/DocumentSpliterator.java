@@ -0,0 +1,182 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Splits a range of size prefixed documents in two near the middle. The split is at the first
+ * position after the middle where a chain of headers leads to the end of the range, or is
+ * RESYNC_HEADERS long, so the headers of the first half aren't read. Each part reads its data
+ * documents with its own Bytes and wire, reused for each document.
+ * <p>
+ * A file is mapped read only, a window at a time. A document which runs past the split means
+ * the split wasn't on a header, which is reported rather than reading part of a document.
+ */
+final class DocumentSpliterator implements Spliterator<WireIn> {
+    // not worth splitting smaller ranges.
+    static final long MIN_SPLIT = 64 << 10;
+    // the headers which must follow on from a position to split there.
+    static final int RESYNC_HEADERS = 16;
+
+    @Nullable
+    private final Supplier<Bytes> bytesSupplier;
+    @Nullable
+    private final FileChannel channel;
+    @NotNull
+    private final Function<Bytes, Wire> wireType;
+    private long position;
+    private long end;
+    // the end was found by trySplit, so a document must not run past it.
+    private boolean splitEnd;
+    @Nullable
+    private Bytes bytes;
+    @Nullable
+    private Wire wire;
+    // the position of offset 0 of the bytes, and the end of what they hold.
+    private long base;
+    private long limit;
+
+    DocumentSpliterator(@NotNull Supplier<Bytes> bytesSupplier, @NotNull Function<Bytes, Wire> wireType, long position, long end) {
+        this(bytesSupplier, null, wireType, position, end);
+    }
+
+    DocumentSpliterator(@NotNull FileChannel channel, @NotNull Function<Bytes, Wire> wireType, long position, long end) {
+        this(null, channel, wireType, position, end);
+    }
+
+    private DocumentSpliterator(@Nullable Supplier<Bytes> bytesSupplier, @Nullable FileChannel channel,
+                                @NotNull Function<Bytes, Wire> wireType, long position, long end) {
+        this.bytesSupplier = bytesSupplier;
+        this.channel = channel;
+        this.wireType = wireType;
+        this.position = position;
+        this.end = end;
+    }
+
+    /**
+     * @return bytes holding position to position + length, with offset 0 at base.
+     */
+    @NotNull
+    private Bytes bytes(long position, long length) {
+        Bytes bytes = this.bytes;
+        if (bytes != null && position >= base && position + length <= limit)
+            return bytes;
+        if (channel == null) {
+            // a store is read as a whole.
+            bytes = bytesSupplier.get();
+            base = 0;
+            limit = Long.MAX_VALUE;
+        } else {
+            long size = Math.min(end - position, Math.max(DocumentTailer.DEFAULT_CHUNK_SIZE, length));
+            try {
+                bytes = Bytes.wrapForRead(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+            base = position;
+            limit = position + size;
+        }
+        this.bytes = bytes;
+        wire = wireType.apply(bytes);
+        return bytes;
+    }
+
+    @Override
+    public boolean tryAdvance(@NotNull Consumer<? super WireIn> action) {
+        while (position + 4 <= end) {
+            int header = bytes(position, 4).readVolatileInt(position - base);
+            if (!WireInternal.isKnownLength(header))
+                break;
+            long start = position + 4;
+            long next = start + Wires.lengthOf(header);
+            if (next > end) {
+                if (splitEnd)
+                    throw new IllegalStateException("The document at " + position + " runs past " + end + ", which was split at as a header");
+                break;
+            }
+            position = next;
+            if (!Wires.isData(header))
+                continue;
+            Bytes bytes = bytes(start, next - start);
+            bytes.readLimit(bytes.capacity());
+            bytes.readPosition(start - base);
+            bytes.readLimit(next - base);
+            ((InternalWireIn) wire).setReady(Wires.isReady(header));
+            action.accept(wire);
+            return true;
+        }
+        // nothing can be read after a document which isn't complete.
+        end = position;
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public Spliterator<WireIn> trySplit() {
+        if (end - position < MIN_SPLIT)
+            return null;
+        for (long split = position + (end - position) / 2; split + 4 <= end; split++) {
+            if (isHeaderChain(split)) {
+                DocumentSpliterator prefix = new DocumentSpliterator(bytesSupplier, channel, wireType, position, split);
+                prefix.splitEnd = true;
+                position = split;
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the headers from this position lead to the end, or are RESYNC_HEADERS long.
+     */
+    private boolean isHeaderChain(long position) {
+        for (int i = 0; i < RESYNC_HEADERS; i++) {
+            if (position == end)
+                return true;
+            if (position + 4 > end)
+                return false;
+            int header = bytes(position, 4).readInt(position - base);
+            if (!WireInternal.isKnownLength(header))
+                return false;
+            position += 4 + Wires.lengthOf(header);
+        }
+        return position <= end;
+    }
+
+    /**
+     * @return the number of bytes left, as the number of documents isn't known.
+     */
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
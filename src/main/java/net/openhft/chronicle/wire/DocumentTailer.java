@@ -0,0 +1,148 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import net.openhft.chronicle.bytes.MappedBytes;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Follows a file of size prefixed documents as it is written, e.g. by writeDocument on a wire
+ * over MappedBytes of the same file.
+ * <p>
+ * The file is mapped in chunks as the tailer reaches them and the wire reads each document in
+ * place. As a mapping can extend the file, the writer should treat a header of 0 as the end. The
+ * position can be kept in a second file, so a new tailer carries on from the document after the
+ * last one read.
+ */
+public class DocumentTailer implements Closeable {
+    static final long DEFAULT_CHUNK_SIZE = 64 << 20;
+    private static final long POSITION_CHUNK_SIZE = 64 << 10;
+
+    @NotNull
+    private final MappedBytes bytes;
+    @NotNull
+    private final Wire wire;
+    @Nullable
+    private final MappedBytes positionBytes;
+    @NotNull
+    private WaitStrategy waitStrategy = WaitStrategy.backoff(1000, 100, TimeUnit.MILLISECONDS.toNanos(1));
+    private long position;
+
+    public DocumentTailer(@NotNull File file, @NotNull Function<Bytes, Wire> wireType) {
+        this(file, wireType, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param positionFile to keep the position in, or null to start from the beginning each time.
+     * @param chunkSize    the size of the chunks of the file mapped.
+     */
+    public DocumentTailer(@NotNull File file, @NotNull Function<Bytes, Wire> wireType,
+                          @Nullable File positionFile, long chunkSize) {
+        try {
+            bytes = MappedBytes.mappedBytes(file, chunkSize);
+            positionBytes = positionFile == null ? null : MappedBytes.mappedBytes(positionFile, POSITION_CHUNK_SIZE);
+        } catch (FileNotFoundException e) {
+            throw new IORuntimeException(e);
+        }
+        wire = wireType.apply(bytes);
+        if (positionBytes != null)
+            position = positionBytes.readVolatileLong(0);
+    }
+
+    @NotNull
+    public DocumentTailer waitStrategy(@NotNull WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * @return the position of the next document to read.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Read from the document at this position next.
+     */
+    @NotNull
+    public DocumentTailer moveTo(long position) {
+        this.position = position;
+        if (positionBytes != null)
+            positionBytes.writeOrderedLong(0, position);
+        return this;
+    }
+
+    /**
+     * Read the next document if it is ready, like WireIn.readDocument.
+     *
+     * @return true if a document was read.
+     */
+    public boolean readDocument(@Nullable ReadMarshallable metaDataConsumer, @Nullable ReadMarshallable dataConsumer) {
+        boolean read = false;
+        while (true) {
+            int header = bytes.readVolatileInt(position);
+            if (!WireInternal.isKnownLength(header))
+                return read;
+            boolean data = Wires.isData(header);
+            if (data && dataConsumer == null)
+                return read;
+            // read just this document.
+            long end = position + 4 + Wires.lengthOf(header);
+            bytes.readLimit(bytes.capacity());
+            bytes.readPosition(position);
+            bytes.readLimit(end);
+            WireInternal.readData(wire, metaDataConsumer, dataConsumer);
+            moveTo(end);
+            if (data || dataConsumer == null)
+                return true;
+            read = true;
+        }
+    }
+
+    /**
+     * Read the next document, waiting for it with the WaitStrategy.
+     *
+     * @return false if no document was ready before the timeout, or the thread was interrupted.
+     */
+    public boolean awaitDocument(@Nullable ReadMarshallable metaDataConsumer, @Nullable ReadMarshallable dataConsumer,
+                                 long timeout, @NotNull TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempts = 1; ; attempts++) {
+            if (readDocument(metaDataConsumer, dataConsumer))
+                return true;
+            if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted())
+                return false;
+            waitStrategy.idle(attempts);
+        }
+    }
+
+    @Override
+    public void close() {
+        bytes.release();
+        if (positionBytes != null)
+            positionBytes.release();
+    }
+}
@@ -0,0 +1,485 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+
+/**
+ * Writes and reads floating point numbers as text directly to and from Bytes, without creating
+ * any objects.
+ * <p>
+ * A number is written as the shortest decimal which reads back as the same value, chosen as in
+ * Raffaello Giulietti's Schubfach, and laid out as Double.toString and Float.toString do, e.g.
+ * 1.0, 0.001, 1.0E7, 1.0E-4. A number is read with Clinger's fast path when the decimal and the
+ * power of ten are both exact doubles, and otherwise with Eisel and Lemire's 128-bit
+ * approximation of the power of five. Anything else, e.g. more than 19 significant digits or
+ * NaN, is read with Bytes.parseDouble.
+ */
+final class DoubleText {
+    private static final long MASK_63 = Long.MAX_VALUE;
+
+    // g = floor(10^-k 2^-r) + 1 for 2^125 <= 10^-k 2^-r < 2^126, as g1 2^63 + g0, for Schubfach.
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+    // 5^q normalised to 128 bits, rounded up when q < 0 and truncated when q > 0, for Eisel-Lemire.
+    private static final int Q5_MIN = -342;
+    private static final int Q5_MAX = 308;
+    private static final long[] POW5 = new long[(Q5_MAX - Q5_MIN + 1) * 2];
+
+    private static final long[] POW10 = new long[19];
+    private static final double[] DOUBLE_POW10 = new double[23];
+
+    static {
+        BigInteger mask63 = BigInteger.valueOf(MASK_63);
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger beta;
+            if (k <= 0) {
+                BigInteger n = BigInteger.TEN.pow(-k);
+                int r = n.bitLength() - 126;
+                beta = r >= 0 ? n.shiftRight(r) : n.shiftLeft(-r);
+            } else {
+                BigInteger d = BigInteger.TEN.pow(k);
+                beta = BigInteger.ONE.shiftLeft(125 + d.bitLength()).divide(d);
+            }
+            BigInteger g = beta.add(BigInteger.ONE);
+            G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+            G[(k - K_MIN) << 1 | 1] = g.and(mask63).longValue();
+        }
+
+        BigInteger two128 = BigInteger.ONE.shiftLeft(128), two127 = BigInteger.ONE.shiftLeft(127);
+        BigInteger mask64 = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = Q5_MIN; q <= Q5_MAX; q++) {
+            BigInteger c;
+            if (q < 0) {
+                BigInteger power5 = BigInteger.valueOf(5).pow(-q);
+                int z = power5.subtract(BigInteger.ONE).bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+                while (c.compareTo(two128) >= 0)
+                    c = c.shiftRight(1);
+            } else {
+                c = BigInteger.valueOf(5).pow(q);
+                while (c.compareTo(two127) < 0)
+                    c = c.shiftLeft(1);
+                while (c.compareTo(two128) >= 0)
+                    c = c.shiftRight(1);
+            }
+            POW5[(q - Q5_MIN) << 1] = c.shiftRight(64).longValue();
+            POW5[(q - Q5_MIN) << 1 | 1] = c.and(mask64).longValue();
+        }
+
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+        DOUBLE_POW10[0] = 1;
+        for (int i = 1; i < DOUBLE_POW10.length; i++)
+            DOUBLE_POW10[i] = DOUBLE_POW10[i - 1] * 10;
+    }
+
+    private DoubleText() {
+    }
+
+    static void append(@NotNull Bytes<?> bytes, double d) {
+        long bits = Double.doubleToRawLongBits(d);
+        long t = bits & ((1L << 52) - 1);
+        int bq = (int) (bits >>> 52) & 0x7FF;
+        if (bq == 0x7FF) {
+            appendSpecial(bytes, t != 0, bits < 0);
+            return;
+        }
+        if (bits < 0)
+            bytes.writeUnsignedByte('-');
+        if (bq != 0) {
+            int mq = 1075 - bq;
+            long c = (1L << 52) | t;
+            if (0 < mq && mq < 53) {
+                // an integer.
+                long f = c >> mq;
+                if (f << mq == c) {
+                    appendDecimal(bytes, f, 0);
+                    return;
+                }
+            }
+            toDecimal(bytes, -mq, c, 0, 1L << 52, -1074);
+        } else if (t != 0) {
+            // a subnormal, given an extra digit when too small to have two.
+            if (t < 3)
+                toDecimal(bytes, -1074, 10 * t, -1, 1L << 52, -1074);
+            else
+                toDecimal(bytes, -1074, t, 0, 1L << 52, -1074);
+        } else {
+            appendZero(bytes);
+        }
+    }
+
+    static void append(@NotNull Bytes<?> bytes, float f) {
+        int bits = Float.floatToRawIntBits(f);
+        int t = bits & ((1 << 23) - 1);
+        int bq = (bits >>> 23) & 0xFF;
+        if (bq == 0xFF) {
+            appendSpecial(bytes, t != 0, bits < 0);
+            return;
+        }
+        if (bits < 0)
+            bytes.writeUnsignedByte('-');
+        if (bq != 0) {
+            int mq = 150 - bq;
+            long c = (1L << 23) | t;
+            if (0 < mq && mq < 24) {
+                long i = c >> mq;
+                if (i << mq == c) {
+                    appendDecimal(bytes, i, 0);
+                    return;
+                }
+            }
+            toDecimal(bytes, -mq, c, 0, 1L << 23, -149);
+        } else if (t != 0) {
+            if (t < 8)
+                toDecimal(bytes, -149, 10L * t, -1, 1L << 23, -149);
+            else
+                toDecimal(bytes, -149, t, 0, 1L << 23, -149);
+        } else {
+            appendZero(bytes);
+        }
+    }
+
+    private static void appendSpecial(@NotNull Bytes<?> bytes, boolean nan, boolean negative) {
+        if (nan) {
+            bytes.append8bit("NaN");
+        } else {
+            if (negative)
+                bytes.writeUnsignedByte('-');
+            bytes.append8bit("Infinity");
+        }
+    }
+
+    private static void appendZero(@NotNull Bytes<?> bytes) {
+        bytes.writeUnsignedByte('0');
+        bytes.writeUnsignedByte('.');
+        bytes.writeUnsignedByte('0');
+    }
+
+    /**
+     * Find the shortest decimal in the interval which rounds to c 2^q and append it. See section 9
+     * of "The Schubfach way to render doubles" by Raffaello Giulietti.
+     */
+    private static void toDecimal(@NotNull Bytes<?> bytes, int q, long c, int dk, long cMin, int qMin) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != cMin | q == qMin) {
+            // regular spacing
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // irregular spacing
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+
+        long g1 = G[(k - K_MIN) << 1];
+        long g0 = G[(k - K_MIN) << 1 | 1];
+
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // sp10 = 10 floor(s / 10), tp10 = sp10 + 10, try one digit fewer.
+            long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                appendDecimal(bytes, upin ? sp10 : tp10, k);
+                return;
+            }
+        }
+
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            appendDecimal(bytes, uin ? s : t, k + dk);
+            return;
+        }
+        // both are in the interval, use the closest.
+        long cmp = vb - (s + t << 1);
+        appendDecimal(bytes, cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+    }
+
+    /**
+     * @return round to odd of cp g 2^-127
+     */
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    // floor(log10(2^e))
+    static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    // floor(log10(3/4 2^e))
+    static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    // floor(log2(10^e))
+    static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    // Math.multiplyHigh from Java 9
+    static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    /**
+     * Append f 10^e as Double.toString would, in plain notation from 10^-3 up to 10^7, otherwise
+     * in scientific notation. The layout is written first and the digits filled in from the
+     * right, so each digit is a remainder of dividing by 10.
+     */
+    private static void appendDecimal(@NotNull Bytes<?> bytes, long f, int e) {
+        while (f >= 10 && f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int len = 1;
+        while (len < POW10.length && f >= POW10[len])
+            len++;
+        int exp = e + len - 1;
+        long start = bytes.writePosition();
+        if (-3 <= exp && exp < 7) {
+            if (exp < 0) {
+                // 0.00ddd
+                writeZeros(bytes, len - exp + 1);
+                bytes.writeByte(start + 1, (byte) '.');
+                writeDigits(bytes, start + 1 - exp, f, len);
+            } else if (len <= exp + 1) {
+                // ddd00.0
+                writeZeros(bytes, exp + 3);
+                bytes.writeByte(start + exp + 1, (byte) '.');
+                writeDigits(bytes, start, f, len);
+            } else {
+                // dd.ddd
+                writeZeros(bytes, len + 1);
+                int fractionLen = len - exp - 1;
+                long pow10 = POW10[fractionLen];
+                writeDigits(bytes, start, f / pow10, exp + 1);
+                bytes.writeByte(start + exp + 1, (byte) '.');
+                writeDigits(bytes, start + exp + 2, f % pow10, fractionLen);
+            }
+            return;
+        }
+        // d.dddEn
+        writeZeros(bytes, Math.max(len, 2) + 1);
+        long pow10 = POW10[len - 1];
+        writeDigits(bytes, start, f / pow10, 1);
+        bytes.writeByte(start + 1, (byte) '.');
+        writeDigits(bytes, start + 2, f % pow10, len - 1);
+        bytes.writeUnsignedByte('E');
+        bytes.append(exp);
+    }
+
+    private static void writeZeros(@NotNull Bytes<?> bytes, int count) {
+        for (int i = 0; i < count; i++)
+            bytes.writeUnsignedByte('0');
+    }
+
+    private static void writeDigits(@NotNull Bytes<?> bytes, long offset, long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            bytes.writeByte(offset + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+    }
+
+    /**
+     * Read a number up to the first byte which isn't part of it, leaving that byte unread.
+     */
+    static double parse(@NotNull Bytes<?> bytes) {
+        long start = bytes.readPosition();
+        long limit = bytes.readLimit();
+        long pos = start;
+        boolean negative = false;
+        if (pos < limit) {
+            int ch = bytes.readUnsignedByte(pos);
+            if (ch == '-' || ch == '+') {
+                negative = ch == '-';
+                pos++;
+            }
+        }
+        // up to 19 significant digits in w, with value = w 10^exp10
+        long w = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean any = false;
+        for (; pos < limit; pos++) {
+            int d = bytes.readUnsignedByte(pos) - '0';
+            if (d < 0 || d > 9)
+                break;
+            any = true;
+            if (digits < 19) {
+                w = w * 10 + d;
+                if (w != 0)
+                    digits++;
+            } else if (d == 0) {
+                exp10++;
+            } else {
+                return fallback(bytes, start);
+            }
+        }
+        if (pos < limit && bytes.readUnsignedByte(pos) == '.') {
+            for (pos++; pos < limit; pos++) {
+                int d = bytes.readUnsignedByte(pos) - '0';
+                if (d < 0 || d > 9)
+                    break;
+                any = true;
+                if (digits < 19) {
+                    w = w * 10 + d;
+                    if (w != 0)
+                        digits++;
+                    exp10--;
+                } else if (d != 0) {
+                    return fallback(bytes, start);
+                }
+            }
+        }
+        if (!any)
+            return fallback(bytes, start);
+        if (pos < limit && (bytes.readUnsignedByte(pos) | 0x20) == 'e') {
+            long p = pos + 1;
+            boolean negativeExp = false;
+            if (p < limit) {
+                int ch = bytes.readUnsignedByte(p);
+                if (ch == '-' || ch == '+') {
+                    negativeExp = ch == '-';
+                    p++;
+                }
+            }
+            int exp = 0;
+            boolean expDigits = false;
+            for (; p < limit; p++) {
+                int d = bytes.readUnsignedByte(p) - '0';
+                if (d < 0 || d > 9)
+                    break;
+                expDigits = true;
+                if (exp < 100_000)
+                    exp = exp * 10 + d;
+            }
+            if (!expDigits)
+                return fallback(bytes, start);
+            exp10 += negativeExp ? -exp : exp;
+            pos = p;
+        }
+
+        double value = toDouble(w, exp10);
+        if (Double.isNaN(value))
+            return fallback(bytes, start);
+        bytes.readPosition(pos);
+        return negative ? -value : value;
+    }
+
+    private static double fallback(@NotNull Bytes<?> bytes, long start) {
+        bytes.readPosition(start);
+        return bytes.parseDouble();
+    }
+
+    /**
+     * @return w 10^q correctly rounded, or NaN if it can't be found this way.
+     */
+    static double toDouble(long w, int q) {
+        if (w == 0)
+            return 0.0;
+        if (-22 <= q && q <= 22 && 0 < w && w < 1L << 53)
+            return q < 0 ? w / DOUBLE_POW10[-q] : w * DOUBLE_POW10[q];
+        if (q < Q5_MIN)
+            return 0.0;
+        if (q > Q5_MAX)
+            return Double.POSITIVE_INFINITY;
+
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+        int index = (q - Q5_MIN) << 1;
+        long hi = unsignedMultiplyHigh(w, POW5[index]);
+        long lo = w * POW5[index];
+        // the lower bits of hi which are below the 55 bits needed.
+        if ((hi & 0x1FF) == 0x1FF) {
+            long hi2 = unsignedMultiplyHigh(w, POW5[index + 1]);
+            long lo2 = lo + hi2;
+            if (Long.compareUnsigned(hi2, lo2) > 0)
+                hi++;
+            lo = lo2;
+            if (lo == -1L && (hi & 0x1FF) == 0x1FF)
+                return Double.NaN;
+        }
+        int upperBit = (int) (hi >>> 63);
+        int shift = upperBit + 64 - 52 - 3;
+        long mantissa = hi >>> shift;
+        int power2 = (int) (((152_170 + 65_536) * (long) q) >> 16) + 63 + upperBit - lz + 1023;
+        if (power2 <= 0) {
+            // subnormal
+            if (-power2 + 1 >= 64)
+                return 0.0;
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = mantissa < 1L << 52 ? 0 : 1;
+            return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+        }
+        // exactly half way between rounds to even.
+        if (Long.compareUnsigned(lo, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1
+                && mantissa << shift == hi)
+            mantissa &= ~1L;
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 2L << 52) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF)
+            return Double.POSITIVE_INFINITY;
+        return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.util.function.Function;
+
+/**
+ * A WireKey with its field header encoded once for each wire type, so writing it is a copy of
+ * the bytes. Hold these in static finals, e.g. EncodedWireKey.of(MyFields.values())
+ */
+public final class EncodedWireKey implements WireKey {
+    @NotNull
+    private final WireKey key;
+    @NotNull
+    private final String name;
+    private final int code;
+    @NotNull
+    private final BytesStore binaryName;
+    @NotNull
+    private final BytesStore binaryNumber;
+    @NotNull
+    private final BytesStore textField;
+    @NotNull
+    private final BytesStore jsonField;
+
+    private EncodedWireKey(@NotNull WireKey key) {
+        this.key = key;
+        this.code = key.code();
+        CharSequence name = key.name();
+        this.name = name == null ? Integer.toString(code) : name.toString();
+        binaryName = encode(key, BinaryWire::new);
+        binaryNumber = encode(key, b -> new BinaryWire(b, false, true, false));
+        textField = encode(key, TextWire::new);
+        jsonField = encode(key, JSONWire::new);
+    }
+
+    @NotNull
+    public static EncodedWireKey of(@NotNull WireKey key) {
+        return key instanceof EncodedWireKey ? (EncodedWireKey) key : new EncodedWireKey(key);
+    }
+
+    @NotNull
+    public static EncodedWireKey[] of(@NotNull WireKey... keys) {
+        EncodedWireKey[] encoded = new EncodedWireKey[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            encoded[i] = of(keys[i]);
+        return encoded;
+    }
+
+    @NotNull
+    private static BytesStore encode(@NotNull WireKey key, @NotNull Function<Bytes, Wire> wireType) {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        wireType.apply(bytes).write(key);
+        byte[] byteArray = new byte[Maths.toInt32(bytes.readRemaining())];
+        bytes.copyTo(byteArray);
+        return BytesStore.wrap(byteArray);
+    }
+
+    @NotNull
+    @Override
+    public CharSequence name() {
+        return name;
+    }
+
+    @Override
+    public int code() {
+        return code;
+    }
+
+    @Override
+    public Type type() {
+        return key.type();
+    }
+
+    @Nullable
+    @Override
+    public Object defaultValue() {
+        return key.defaultValue();
+    }
+
+    /**
+     * @return the FIELD_NAME0 to FIELD_NAME31 or FIELD_NAME_ANY header and name.
+     */
+    @NotNull
+    BytesStore binaryName() {
+        return binaryName;
+    }
+
+    /**
+     * @return the FIELD_NUMBER header and stop bit encoded code.
+     */
+    @NotNull
+    BytesStore binaryNumber() {
+        return binaryNumber;
+    }
+
+    /**
+     * @return the name, quoted and escaped as required, followed by ": "
+     */
+    @NotNull
+    BytesStore textField() {
+        return textField;
+    }
+
+    /**
+     * @return the name in double quotes followed by ":"
+     */
+    @NotNull
+    BytesStore jsonField() {
+        return jsonField;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The field names of one stream and the small ids they are written as.
+ * <p>
+ * On the writing side, names are given the next id the first time they are written and are
+ * pending until the "fieldNames" meta-data document defining them has been written. On the
+ * reading side, the names are added as the meta-data documents are read.
+ */
+final class FieldNameDictionary {
+    static final String FIELD_NAMES = "fieldNames";
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int defined;
+
+    private String[] readNames = new String[16];
+
+    /**
+     * @return the id for this name, adding it as pending if it is new.
+     */
+    int idFor(@NotNull CharSequence name) {
+        String s = name.toString();
+        Integer id = ids.get(s);
+        if (id != null)
+            return id;
+        int newId = names.size();
+        ids.put(s, newId);
+        names.add(s);
+        return newId;
+    }
+
+    boolean hasPending() {
+        return defined < names.size();
+    }
+
+    int firstPending() {
+        return defined;
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    @NotNull
+    String name(int id) {
+        return names.get(id);
+    }
+
+    void pendingDefined() {
+        defined = names.size();
+    }
+
+    /**
+     * Forget the pending names, e.g. as the document using them wasn't written.
+     */
+    void dropPending() {
+        while (names.size() > defined)
+            ids.remove(names.remove(names.size() - 1));
+    }
+
+    void define(long id, @NotNull String name) {
+        if (id < 0 || id > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Field id " + id + " out of range for " + name);
+        if (id >= readNames.length)
+            readNames = Arrays.copyOf(readNames, Math.max(readNames.length * 2, (int) id + 1));
+        readNames[(int) id] = name;
+    }
+
+    /**
+     * @return the name read for this id or null if it hasn't been defined.
+     */
+    @Nullable
+    String readName(long id) {
+        return id >= 0 && id < readNames.length ? readNames[(int) id] : null;
+    }
+
+    void clear() {
+        ids.clear();
+        names.clear();
+        defined = 0;
+        Arrays.fill(readNames, null);
+    }
+}
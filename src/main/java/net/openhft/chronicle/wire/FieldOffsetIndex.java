@@ -0,0 +1,126 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing map of field code to the offset of the field in the underlying bytes, for one
+ * scope (document or nested marshallable) between start and limit.
+ * <p>
+ * Codes can collide so callers walk the slots for a code and check the field at each offset.
+ * Once the arrays have grown to the number of fields in a scope, it no longer allocates.
+ */
+final class FieldOffsetIndex {
+    static final long NOT_FOUND = -1;
+
+    private int[] codes = new int[16];
+    private long[] offsets = newOffsets(16);
+    private int size;
+    private long start = NOT_FOUND;
+    private long limit = NOT_FOUND;
+    private boolean built;
+
+    @NotNull
+    private static long[] newOffsets(int capacity) {
+        long[] offsets = new long[capacity];
+        Arrays.fill(offsets, NOT_FOUND);
+        return offsets;
+    }
+
+    /**
+     * Hash the name the same way String.hashCode() does so a WireKey's default code() matches.
+     */
+    static int nameCode(@NotNull CharSequence name) {
+        if (name instanceof String)
+            return name.hashCode();
+        int h = 0;
+        for (int i = 0; i < name.length(); i++)
+            h = 31 * h + name.charAt(i);
+        return h;
+    }
+
+    void reset(long start, long limit) {
+        if (size > 0) {
+            Arrays.fill(offsets, NOT_FOUND);
+            size = 0;
+        }
+        this.start = start;
+        this.limit = limit;
+        built = false;
+    }
+
+    boolean isFor(long position, long limit) {
+        return this.limit == limit && start <= position && position <= limit;
+    }
+
+    long start() {
+        return start;
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    void built() {
+        built = true;
+    }
+
+    void add(int code, long offset) {
+        if (size * 2 >= codes.length)
+            resize();
+        int mask = codes.length - 1;
+        int slot = firstSlot(code);
+        while (offsets[slot] != NOT_FOUND)
+            slot = (slot + 1) & mask;
+        codes[slot] = code;
+        offsets[slot] = offset;
+        size++;
+    }
+
+    int firstSlot(int code) {
+        int h = code ^ (code >>> 16);
+        return (h * 0x9E3779B9) & (codes.length - 1);
+    }
+
+    int nextSlot(int slot) {
+        return (slot + 1) & (codes.length - 1);
+    }
+
+    /**
+     * @return the offset in this slot, or NOT_FOUND when the slot is empty and the probe should stop.
+     */
+    long offset(int slot) {
+        return offsets[slot];
+    }
+
+    int code(int slot) {
+        return codes[slot];
+    }
+
+    private void resize() {
+        int[] codes0 = codes;
+        long[] offsets0 = offsets;
+        codes = new int[codes0.length * 2];
+        offsets = newOffsets(codes0.length * 2);
+        size = 0;
+        for (int i = 0; i < codes0.length; i++)
+            if (offsets0[i] != NOT_FOUND)
+                add(codes0[i], offsets0[i]);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import net.openhft.chronicle.core.io.IOTools;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The input of a text wire read from a file.
+ * <p>
+ * A file is memory mapped read only, so it isn't copied onto the heap. A file too large for a
+ * ByteBuffer is read through a direct buffer of CHUNK_SIZE, 16 MB, which is refilled when the
+ * wire is between records, i.e. on hasMore() or reading a top level field or document. A record
+ * starts on a line which doesn't start with white space, '#', '-', '}' or ']', and the buffer is
+ * refilled before reading the last record which starts in it, so no record is read cut short.
+ * A record of more than 16 MB doesn't fit in the buffer and is an error, as is reading past the
+ * end of it. For CSV, a line in a quoted cell doesn't start a record.
+ * A name which isn't a file is read as a resource.
+ */
+final class FileInput {
+    static final int CHUNK_SIZE = 16 << 20;
+
+    @NotNull
+    private final Bytes<?> bytes;
+    @Nullable
+    private final FileChannel channel;
+    @Nullable
+    private final ByteBuffer buffer;
+    // whether a quoted cell can span lines, as in CSV.
+    private final boolean quotedCells;
+    private boolean endOfFile;
+    // the start of the last record in the buffer, which may not be complete.
+    private long lastRecord;
+
+    private FileInput(@NotNull Bytes<?> bytes) {
+        this.bytes = bytes;
+        channel = null;
+        buffer = null;
+        quotedCells = false;
+    }
+
+    private FileInput(@NotNull FileChannel channel, int chunkSize, boolean quotedCells) {
+        this.channel = channel;
+        this.quotedCells = quotedCells;
+        buffer = ByteBuffer.allocateDirect(chunkSize);
+        bytes = Bytes.wrapForRead(buffer);
+        bytes.readLimit(0);
+        refill();
+    }
+
+    @NotNull
+    static FileInput open(@NotNull String name, boolean quotedCells) throws IOException {
+        File file = new File(name);
+        if (!file.isFile())
+            return new FileInput(Bytes.wrapForRead(IOTools.readFile(name)));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            return new FileInput(channel, CHUNK_SIZE, quotedCells);
+        try {
+            // the mapping is still valid once the channel is closed.
+            return new FileInput(Bytes.wrapForRead(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+        } finally {
+            channel.close();
+        }
+    }
+
+    @NotNull
+    static FileInput chunked(@NotNull File file, int chunkSize, boolean quotedCells) throws IOException {
+        return new FileInput(FileChannel.open(file.toPath(), StandardOpenOption.READ), chunkSize, quotedCells);
+    }
+
+    @NotNull
+    Bytes<?> bytes() {
+        return bytes;
+    }
+
+    /**
+     * Move what is left to the start of the buffer and read more of the file, if the next record
+     * is the last one which starts in the buffer.
+     *
+     * @return how far back the readPosition moved.
+     * @throws IORuntimeException if the next record doesn't fit in the buffer.
+     */
+    long refill() {
+        // in a block, the record it is in was refilled before it was read.
+        if (buffer == null || endOfFile || bytes.readLimit() != buffer.position() || recordStart() < lastRecord)
+            return 0;
+        long shift = bytes.readPosition();
+        buffer.limit((int) bytes.readLimit());
+        buffer.position((int) shift);
+        buffer.compact();
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0)
+                    break;
+            }
+            if (channel.position() >= channel.size()) {
+                endOfFile = true;
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+        bytes.readPosition(0);
+        bytes.readLimit(buffer.position());
+        lastRecord = lastRecord();
+        if (!endOfFile && recordStart() >= lastRecord)
+            throw new IORuntimeException("A record doesn't fit in a buffer of " + buffer.capacity() + " bytes");
+        return shift;
+    }
+
+    /**
+     * Called when the wire reads to the end of its bytes.
+     *
+     * @throws IORuntimeException if that isn't the end of the file, as the record being read
+     *                            didn't start where the buffer could be refilled.
+     */
+    void endOfBytes() {
+        if (buffer != null && !endOfFile && bytes.readPosition() >= buffer.position())
+            throw new IORuntimeException("Read to the end of a buffer of " + buffer.capacity()
+                    + " bytes before the end of the file, read records with hasMore() or a top level read()");
+    }
+
+    /**
+     * @return where the next record starts, after any white space and comments.
+     */
+    private long recordStart() {
+        long pos = bytes.readPosition();
+        long limit = bytes.readLimit();
+        while (pos < limit) {
+            int b = bytes.readUnsignedByte(pos);
+            if (b == '#') {
+                while (pos < limit && bytes.readUnsignedByte(pos) != '\n')
+                    pos++;
+            } else if (b <= ' ' || b == ',') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * @return the start of the last line in the buffer which starts a record, or 0 if there is none.
+     */
+    private long lastRecord() {
+        if (quotedCells)
+            return lastQuotedRecord();
+        for (long pos = bytes.readLimit() - 1; pos > 0; pos--) {
+            if (bytes.readUnsignedByte(pos - 1) == '\n' && startsRecord(bytes.readUnsignedByte(pos)))
+                return pos;
+        }
+        return 0;
+    }
+
+    /**
+     * As lastRecord(), reading forward from the start of a record to skip the lines in quoted
+     * cells, which are quoted the way CSVWire reads them.
+     */
+    private long lastQuotedRecord() {
+        long last = 0;
+        long limit = bytes.readLimit();
+        int quote = 0;
+        boolean blank = true;
+        for (long pos = bytes.readPosition(); pos < limit; pos++) {
+            int b = bytes.readUnsignedByte(pos);
+            if (quote != 0) {
+                if (b == '\\')
+                    pos++;
+                else if (b == quote)
+                    quote = 0;
+            } else if (b == '\n') {
+                blank = true;
+                if (pos + 1 < limit && startsRecord(bytes.readUnsignedByte(pos + 1)))
+                    last = pos + 1;
+            } else if (b == ',') {
+                blank = true;
+            } else if (blank && (b == '"' || b == '\'')) {
+                quote = b;
+            } else if (b > ' ') {
+                blank = false;
+            }
+        }
+        return last;
+    }
+
+    private static boolean startsRecord(int b) {
+        return b > ' ' && b != ',' && b != '#' && b != '-' && b != '}' && b != ']';
+    }
+}
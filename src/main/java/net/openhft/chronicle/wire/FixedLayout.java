@@ -0,0 +1,114 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Where each field of a FIXED_LAYOUT record is, relative to the start of the record. Fields of a
+ * nested marshallable are named outer.inner.
+ * <p>
+ * A field can be read or updated in place by binding a reference to it, e.g. to update a long
+ * in a memory mapped file with an ordered write
+ * <pre>
+ * LongValue qty = layout.bind(new BinaryLongReference(), bytes, recordStart, () -> "qty");
+ * qty.setOrderedValue(qty.getValue() + fill);
+ * </pre>
+ */
+public final class FixedLayout {
+    private final Map<String, Long> offsets;
+    private final long recordSize;
+    private final int textCapacity;
+
+    FixedLayout(@NotNull Map<String, Long> offsets, long recordSize, int textCapacity) {
+        this.offsets = offsets;
+        this.recordSize = recordSize;
+        this.textCapacity = textCapacity;
+    }
+
+    /**
+     * Find the layout by writing a sample record once. Every record of the type has this layout
+     * provided the same fields are written each time.
+     */
+    @NotNull
+    public static FixedLayout of(@NotNull WriteMarshallable sample) {
+        return of(sample, FixedLayoutWire.DEFAULT_TEXT_CAPACITY);
+    }
+
+    @NotNull
+    public static FixedLayout of(@NotNull WriteMarshallable sample, int textCapacity) {
+        return new FixedLayoutWire(Bytes.elasticByteBuffer(), textCapacity).recordLayout(sample);
+    }
+
+    /**
+     * @return the size of a record including the padding to align the next one.
+     */
+    public long recordSize() {
+        return recordSize;
+    }
+
+    public int textCapacity() {
+        return textCapacity;
+    }
+
+    @NotNull
+    public Set<String> fields() {
+        return Collections.unmodifiableSet(offsets.keySet());
+    }
+
+    public long offset(@NotNull WireKey key) {
+        return offset(key.name().toString());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record has no such field.
+     */
+    public long offset(@NotNull String field) {
+        Long offset = offsets.get(field);
+        if (offset == null)
+            throw new IllegalArgumentException("No field " + field + " in " + offsets.keySet());
+        return offset;
+    }
+
+    /**
+     * Bind value to a field of the record which starts at recordStart.
+     *
+     * @throws IllegalArgumentException if the field isn't aligned to the size of value, as an
+     *                                  ordered write of a misaligned value can tear.
+     */
+    @NotNull
+    public <B extends Byteable> B bind(@NotNull B value, @NotNull BytesStore bytes, long recordStart, @NotNull WireKey key) {
+        long offset = recordStart + offset(key);
+        long size = value.maxSize();
+        if ((size == 2 || size == 4 || size == 8) && offset % size != 0)
+            throw new IllegalArgumentException(key.name() + " at " + offset + " is not aligned to " + size + " bytes");
+        value.bytesStore(bytes, offset, value.maxSize());
+        return value;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "FixedLayout{" + offsets + ", recordSize=" + recordSize + '}';
+    }
+}
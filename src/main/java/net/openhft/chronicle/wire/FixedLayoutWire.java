@@ -0,0 +1,448 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Raw Wire where every value has a fixed width, so each field of a record is at the same offset
+ * in every record, as given by a FixedLayout.
+ * <p>
+ * Numbers are written as Raw Wire writes them. Text is written in a slot of textCapacity bytes
+ * after a two byte length, so text longer than that is rejected rather than moving the fields
+ * after it. Values which can't have a fixed width, such as sequences, type prefixes and byte
+ * arrays, are not supported. Use writeRecord and readRecord so records are aligned.
+ * <p>
+ * A text slot is padded to a multiple of eight bytes, and the fields of a nested marshallable
+ * start on an eight byte boundary. A number is only updated atomically in place if it is aligned
+ * to its width, so FixedLayout.of rejects a record where one isn't, e.g. an int before a long.
+ */
+public class FixedLayoutWire extends RawWire {
+    public static final int DEFAULT_TEXT_CAPACITY = 32;
+    public static final int RECORD_ALIGNMENT = 8;
+    static final int NULL_LENGTH = 0xFFFF;
+
+    private final int textCapacity;
+    // the length and text, padded to the alignment of a long.
+    private final int textSlot;
+    // the offset of each field written, when recording a FixedLayout.
+    @Nullable
+    private Map<String, Long> offsets;
+    private String prefix = "";
+    @Nullable
+    private CharSequence lastName;
+    private long recordStart;
+
+    public FixedLayoutWire(Bytes bytes) {
+        this(bytes, DEFAULT_TEXT_CAPACITY);
+    }
+
+    public FixedLayoutWire(Bytes bytes, int textCapacity) {
+        super(bytes, false);
+        if (textCapacity < 0 || textCapacity >= NULL_LENGTH)
+            throw new IllegalArgumentException("textCapacity " + textCapacity + " out of range");
+        this.textCapacity = textCapacity;
+        textSlot = (2 + textCapacity + 7) & ~7;
+    }
+
+    public int textCapacity() {
+        return textCapacity;
+    }
+
+    /**
+     * Write a record and pad it to the record alignment.
+     */
+    public void writeRecord(@NotNull WriteMarshallable record) {
+        record.writeMarshallable(this);
+        writeAlignTo(RECORD_ALIGNMENT);
+    }
+
+    /**
+     * Read a record and skip the padding after it.
+     */
+    public void readRecord(@NotNull ReadMarshallable record) {
+        record.readMarshallable(this);
+        readAlignTo(RECORD_ALIGNMENT);
+    }
+
+    /**
+     * Write sample recording where each field is, see FixedLayout.of
+     */
+    @NotNull
+    FixedLayout recordLayout(@NotNull WriteMarshallable sample) {
+        offsets = new LinkedHashMap<>();
+        try {
+            long start = recordStart = bytes.writePosition();
+            writeRecord(sample);
+            Map<String, Long> offsets = this.offsets;
+            offsets.replaceAll((name, position) -> position - start);
+            return new FixedLayout(offsets, bytes.writePosition() - start, textCapacity);
+        } finally {
+            offsets = null;
+        }
+    }
+
+    @NotNull
+    @Override
+    public ValueOut write(@NotNull WireKey key) {
+        if (offsets != null) {
+            lastName = key.name();
+            offsets.put(prefix + lastName, bytes.writePosition());
+        }
+        return super.write(key);
+    }
+
+    @NotNull
+    @Override
+    public ValueOut writeEventName(@NotNull WireKey key) {
+        throw notFixed("an event name");
+    }
+
+    @NotNull
+    @Override
+    public ValueIn readEventName(@NotNull StringBuilder name) {
+        throw notFixed("an event name");
+    }
+
+    @NotNull
+    @Override
+    public WireOut addPadding(int paddingToAdd) {
+        long position = bytes.writePosition();
+        bytes.zeroOut(position, position + paddingToAdd);
+        bytes.writeSkip(paddingToAdd);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public WireIn readAlignTo(int alignment) {
+        long mod = bytes.readPosition() % alignment;
+        if (mod != 0)
+            bytes.readSkip(alignment - mod);
+        return this;
+    }
+
+    @NotNull
+    @Override
+    protected RawValueOut createValueOut() {
+        return new FixedValueOut();
+    }
+
+    @NotNull
+    @Override
+    protected RawValueIn createValueIn() {
+        return new FixedValueIn();
+    }
+
+    static int marshallablePadding(long position) {
+        return (int) (-(position + 4) & (RECORD_ALIGNMENT - 1));
+    }
+
+    /**
+     * @return the number of bytes appendUtf8 writes for s, which encodes it a char at a time.
+     */
+    static long utf8Length(@NotNull CharSequence s) {
+        long length = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= 0x800)
+                length += 2;
+            else if (ch >= 0x80)
+                length++;
+        }
+        return length;
+    }
+
+    @NotNull
+    static UnsupportedOperationException notFixed(String what) {
+        return new UnsupportedOperationException("FIXED_LAYOUT can't write " + what + " with a fixed width");
+    }
+
+    class FixedValueOut extends RawValueOut {
+        /**
+         * When recording a FixedLayout, check the number about to be written is aligned to its width.
+         */
+        private void aligned(int width) {
+            if (offsets == null)
+                return;
+            long offset = bytes.writePosition() - recordStart;
+            if (offset % width != 0)
+                throw new IllegalArgumentException(prefix + lastName + " at " + offset + " is not aligned to "
+                        + width + " bytes, write wider numbers first");
+        }
+
+        @NotNull
+        @Override
+        public WireOut int16(short i16) {
+            aligned(2);
+            return super.int16(i16);
+        }
+
+        @NotNull
+        @Override
+        public WireOut uint16checked(int u16) {
+            aligned(2);
+            return super.uint16checked(u16);
+        }
+
+        @NotNull
+        @Override
+        public WireOut int32(int i32) {
+            aligned(4);
+            return super.int32(i32);
+        }
+
+        @NotNull
+        @Override
+        public WireOut uint32checked(long u32) {
+            aligned(4);
+            return super.uint32checked(u32);
+        }
+
+        @NotNull
+        @Override
+        public WireOut float32(float f) {
+            aligned(4);
+            return super.float32(f);
+        }
+
+        @NotNull
+        @Override
+        public WireOut int32forBinding(int value) {
+            aligned(4);
+            return super.int32forBinding(value);
+        }
+
+        @NotNull
+        @Override
+        public WireOut int64(long i64) {
+            aligned(8);
+            return super.int64(i64);
+        }
+
+        @NotNull
+        @Override
+        public WireOut float64(double d) {
+            aligned(8);
+            return super.float64(d);
+        }
+
+        @NotNull
+        @Override
+        public WireOut time(@NotNull LocalTime localTime) {
+            aligned(8);
+            return super.time(localTime);
+        }
+
+        @NotNull
+        @Override
+        public WireOut int64forBinding(long value) {
+            aligned(8);
+            return super.int64forBinding(value);
+        }
+
+        @NotNull
+        @Override
+        public WireOut uuid(@NotNull UUID uuid) {
+            aligned(8);
+            return super.uuid(uuid);
+        }
+
+        @NotNull
+        @Override
+        public WireOut text(@Nullable CharSequence s) {
+            if (s == null)
+                return nullText();
+            int length = checkLength(utf8Length(s), s);
+            bytes.writeUnsignedShort(length);
+            bytes.appendUtf8(s);
+            return addPadding(textSlot - 2 - length);
+        }
+
+        @NotNull
+        @Override
+        public WireOut text(@Nullable BytesStore s) {
+            if (s == null)
+                return nullText();
+            int length = checkLength(s.readRemaining(), s);
+            bytes.writeUnsignedShort(length);
+            bytes.write(s);
+            return addPadding(textSlot - 2 - length);
+        }
+
+        @NotNull
+        private WireOut nullText() {
+            bytes.writeUnsignedShort(NULL_LENGTH);
+            return addPadding(textSlot - 2);
+        }
+
+        /**
+         * Reject text which doesn't fit before writing any of it, so it can't overwrite the fields
+         * after its slot.
+         */
+        private int checkLength(long length, @NotNull CharSequence s) {
+            if (length > textCapacity)
+                throw new IllegalArgumentException("Text of " + length + " bytes is longer than the textCapacity " + textCapacity + ": " + s);
+            return (int) length;
+        }
+
+        @NotNull
+        @Override
+        public WireOut date(@NotNull LocalDate localDate) {
+            return int64(localDate.toEpochDay());
+        }
+
+        @NotNull
+        @Override
+        public WireOut zonedDateTime(@NotNull ZonedDateTime zonedDateTime) {
+            return text(zonedDateTime.toString());
+        }
+
+        @NotNull
+        @Override
+        public WireOut marshallable(@NotNull WriteMarshallable object) {
+            // pad so the fields after the four byte length are aligned.
+            addPadding(marshallablePadding(bytes.writePosition()));
+            String prefix0 = prefix;
+            if (offsets != null && lastName != null)
+                prefix = prefix0 + lastName + ".";
+            try {
+                return super.marshallable(object);
+            } finally {
+                prefix = prefix0;
+            }
+        }
+
+        @NotNull
+        @Override
+        public WireOut utf8(int codepoint) {
+            return int32(codepoint);
+        }
+
+        @NotNull
+        @Override
+        public WireOut bytes(@Nullable BytesStore bytesStore) {
+            throw notFixed("bytes");
+        }
+
+        @NotNull
+        @Override
+        public WireOut bytes(@NotNull byte[] fromBytes) {
+            throw notFixed("bytes");
+        }
+
+        @NotNull
+        @Override
+        public ValueOut typePrefix(CharSequence typeName) {
+            throw notFixed("a type prefix");
+        }
+
+        @NotNull
+        @Override
+        public WireOut typeLiteral(@NotNull CharSequence type) {
+            throw notFixed("a type literal");
+        }
+
+        @NotNull
+        @Override
+        public WireOut typeLiteral(@NotNull BiConsumer<Class, Bytes> typeTranslator, @NotNull Class type) {
+            throw notFixed("a type literal");
+        }
+
+        @NotNull
+        @Override
+        public WireOut sequence(@NotNull Consumer<ValueOut> writer) {
+            throw notFixed("a sequence");
+        }
+
+        @NotNull
+        @Override
+        public WireOut object(@Nullable Object o) {
+            throw notFixed("an object");
+        }
+    }
+
+    class FixedValueIn extends RawValueIn {
+        @Nullable
+        @Override
+        public String text() {
+            return StringUtils.toString(textTo(WireInternal.acquireStringBuilder()));
+        }
+
+        @Nullable
+        @Override
+        public StringBuilder textTo(@NotNull StringBuilder sb) {
+            sb.setLength(0);
+            return readText(sb) ? sb : null;
+        }
+
+        @Nullable
+        @Override
+        public Bytes textTo(@NotNull Bytes s) {
+            s.clear();
+            return readText(s) ? s : null;
+        }
+
+        private boolean readText(@NotNull Appendable a) {
+            int length = bytes.readUnsignedShort();
+            long start = bytes.readPosition();
+            bytes.readSkip(textSlot - 2);
+            if (length == NULL_LENGTH)
+                return false;
+            try {
+                JSONTokenizer.append(bytes, start, start + length, a, false);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return true;
+        }
+
+        @NotNull
+        @Override
+        public WireIn marshallable(@NotNull ReadMarshallable object) {
+            bytes.readSkip(marshallablePadding(bytes.readPosition()));
+            return super.marshallable(object);
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn date(@NotNull T t, @NotNull BiConsumer<T, LocalDate> tLocalDate) {
+            tLocalDate.accept(t, LocalDate.ofEpochDay(bytes.readLong()));
+            return FixedLayoutWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn zonedDateTime(@NotNull T t, @NotNull BiConsumer<T, ZonedDateTime> tZonedDateTime) {
+            tZonedDateTime.accept(t, ZonedDateTime.parse(text()));
+            return FixedLayoutWire.this;
+        }
+    }
+}
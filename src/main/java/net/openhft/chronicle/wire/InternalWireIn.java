@@ -23,4 +23,13 @@ package net.openhft.chronicle.wire;
  */
 public interface InternalWireIn extends WireIn {
     void setReady(boolean ready);
+
+    /**
+     * Read a meta-data document the wire wrote for itself, such as the field names of a BinaryWire.
+     *
+     * @return true if it was, so it shouldn't be passed on.
+     */
+    default boolean readWireMetaData() {
+        return false;
+    }
 }
@@ -0,0 +1,360 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.AppendableUtil;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Reads the tokens of JSON text directly from the bytes.
+ * <p>
+ * A string is scanned eight bytes at a time for the closing quote or a backslash, and the run of
+ * bytes before it is copied in bulk, so only escapes are decoded one at a time. A block is
+ * scanned the same way for brackets and quotes, checking each bracket closes the one it should.
+ * Whitespace is skipped with a table lookup per byte rather than Character.isWhitespace. Numbers
+ * and literals are matched against the JSON grammar rather than anything YAML would accept.
+ */
+final class JSONTokenizer {
+    private static final long QUOTES = ByteScanner.pattern('"');
+    private static final long BACKSLASHES = ByteScanner.pattern('\\');
+    private static final boolean[] WHITESPACE = new boolean[256];
+
+    // brackets are tracked with a bit per level.
+    private static final int MAX_DEPTH = 64;
+
+    static {
+        for (char ch : new char[]{' ', '\t', '\n', '\r'})
+            WHITESPACE[ch] = true;
+    }
+
+    private JSONTokenizer() {
+    }
+
+    /**
+     * @return the position of the first byte from position which isn't whitespace.
+     */
+    static long skipWhiteSpace(@NotNull BytesStore bytes, long position, long limit) {
+        while (position < limit && WHITESPACE[bytes.readUnsignedByte(position)])
+            position++;
+        return position;
+    }
+
+    /**
+     * @return the position of the first byte from position which isn't whitespace or a comma.
+     */
+    static long skipSeparators(@NotNull BytesStore bytes, long position, long limit) {
+        for (int ch; position < limit && (WHITESPACE[ch = bytes.readUnsignedByte(position)] || ch == ','); )
+            position++;
+        return position;
+    }
+
+    /**
+     * Read the string which starts after the opening quote at position into a, decoding escapes.
+     *
+     * @return the position after the closing quote.
+     */
+    static <ACS extends Appendable & CharSequence> long readString(@NotNull BytesStore bytes, long position, long limit,
+                                                                   @NotNull ACS a, boolean use8bit) {
+        AppendableUtil.setLength(a, 0);
+        try {
+            while (true) {
+                long end = ByteScanner.indexOf(bytes, position, limit, QUOTES, BACKSLASHES);
+                if (end >= limit)
+                    throw new IORuntimeException("Unterminated string at " + position);
+                append(bytes, position, end, a, use8bit);
+                if (bytes.readUnsignedByte(end) == '"')
+                    return end + 1;
+                position = unescape(bytes, end + 1, limit, a);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return the position after the closing quote of the string which starts at position.
+     */
+    static long skipString(@NotNull BytesStore bytes, long position, long limit) {
+        while (true) {
+            long end = ByteScanner.indexOf(bytes, position, limit, QUOTES, BACKSLASHES);
+            if (end >= limit)
+                return limit;
+            if (bytes.readUnsignedByte(end) == '"')
+                return end + 1;
+            position = end + 2;
+        }
+    }
+
+    /**
+     * @return the position after the closing quote of the string which starts at position.
+     * @throws IORuntimeException if the string isn't terminated before limit.
+     */
+    static long stringEnd(@NotNull BytesStore bytes, long position, long limit) {
+        long start = position;
+        while (true) {
+            long end = ByteScanner.indexOf(bytes, position, limit, QUOTES, BACKSLASHES);
+            if (end >= limit)
+                throw new IORuntimeException("Unterminated string at " + start);
+            if (bytes.readUnsignedByte(end) == '"')
+                return end + 1;
+            position = end + 2;
+        }
+    }
+
+    /**
+     * Find the end of the { } or [ ] block which starts after the opening bracket at position,
+     * skipping strings so brackets in them aren't counted.
+     *
+     * @param open the opening bracket.
+     * @return the position after the closing bracket.
+     * @throws IORuntimeException if the block isn't terminated, or a bracket closes the wrong block.
+     */
+    static long blockEnd(@NotNull BytesStore bytes, long position, long limit, int open) {
+        // a bit for each open block, set for a [
+        long squares = open == '[' ? 1 : 0;
+        int depth = 1;
+        while (true) {
+            long next = ByteScanner.indexOfBracket(bytes, position, limit, QUOTES, QUOTES);
+            if (next >= limit)
+                throw new IORuntimeException("Unterminated " + (char) open + " at " + position);
+            int ch = bytes.readUnsignedByte(next);
+            position = next + 1;
+            if (ch == '"') {
+                position = stringEnd(bytes, position, limit);
+
+            } else if (ch == '{' || ch == '[') {
+                if (depth == MAX_DEPTH)
+                    throw new IORuntimeException("Nested more than " + MAX_DEPTH + " deep at " + next);
+                squares = (squares << 1) | (ch == '[' ? 1 : 0);
+                depth++;
+
+            } else {
+                if ((ch == ']') != ((squares & 1) != 0))
+                    throw new IORuntimeException("Unexpected " + (char) ch + " at " + next);
+                squares >>>= 1;
+                if (--depth == 0)
+                    return position;
+            }
+        }
+    }
+
+    /**
+     * Match a number, -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)? followed by the end of the
+     * value.
+     *
+     * @return the position after the number, or position if there isn't one.
+     */
+    static long skipNumber(@NotNull BytesStore bytes, long position, long limit) {
+        long pos = position;
+        if (pos < limit && bytes.readUnsignedByte(pos) == '-')
+            pos++;
+        if (pos >= limit)
+            return position;
+        int ch = bytes.readUnsignedByte(pos);
+        if (ch == '0')
+            pos++;
+        else if (ch >= '1' && ch <= '9')
+            pos = skipDigits(bytes, pos, limit);
+        else
+            return position;
+
+        if (pos < limit && bytes.readUnsignedByte(pos) == '.') {
+            long end = skipDigits(bytes, pos + 1, limit);
+            if (end == pos + 1)
+                return position;
+            pos = end;
+        }
+        if (pos < limit && (bytes.readUnsignedByte(pos) | 0x20) == 'e') {
+            pos++;
+            if (pos < limit && (bytes.readUnsignedByte(pos) == '+' || bytes.readUnsignedByte(pos) == '-'))
+                pos++;
+            long end = skipDigits(bytes, pos, limit);
+            if (end == pos)
+                return position;
+            pos = end;
+        }
+        return endsValue(bytes, pos, limit) ? pos : position;
+    }
+
+    private static long skipDigits(@NotNull BytesStore bytes, long position, long limit) {
+        for (int ch; position < limit && (ch = bytes.readUnsignedByte(position)) >= '0' && ch <= '9'; )
+            position++;
+        return position;
+    }
+
+    /**
+     * @return the position after literal, e.g. true, or position if it isn't there.
+     */
+    static long skipLiteral(@NotNull BytesStore bytes, long position, long limit, @NotNull String literal) {
+        int length = literal.length();
+        if (position + length > limit)
+            return position;
+        for (int i = 0; i < length; i++)
+            if (bytes.readUnsignedByte(position + i) != literal.charAt(i))
+                return position;
+        return endsValue(bytes, position + length, limit) ? position + length : position;
+    }
+
+    private static boolean endsValue(@NotNull BytesStore bytes, long position, long limit) {
+        if (position >= limit)
+            return true;
+        int ch = bytes.readUnsignedByte(position);
+        return WHITESPACE[ch] || ch == ',' || ch == '}' || ch == ']';
+    }
+
+    /**
+     * @return true if the number from start to end has no fraction or exponent.
+     */
+    static boolean isInteger(@NotNull BytesStore bytes, long start, long end) {
+        for (long i = start; i < end; i++) {
+            int ch = bytes.readUnsignedByte(i);
+            if (ch == '.' || ch == 'e' || ch == 'E')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parse an integer matched by skipNumber.
+     *
+     * @throws IORuntimeException if it doesn't fit in a long.
+     */
+    static long parseLong(@NotNull BytesStore bytes, long start, long end) {
+        boolean negative = bytes.readUnsignedByte(start) == '-';
+        // accumulated as a negative number so Long.MIN_VALUE fits.
+        long value = 0;
+        for (long i = negative ? start + 1 : start; i < end; i++) {
+            int digit = bytes.readUnsignedByte(i) - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10)
+                throw new IORuntimeException("Number too large for a long at " + start);
+            value = value * 10 - digit;
+        }
+        if (negative)
+            return value;
+        if (value == Long.MIN_VALUE)
+            throw new IORuntimeException("Number too large for a long at " + start);
+        return -value;
+    }
+
+    static void append(@NotNull BytesStore bytes, long start, long end, @NotNull Appendable a, boolean use8bit)
+            throws IOException {
+        if (start == end)
+            return;
+        if (a instanceof Bytes) {
+            ((Bytes) a).write(bytes, start, end - start);
+        } else if (use8bit || ByteScanner.isAscii(bytes, start, end)) {
+            AppendableUtil.append(a, bytes, start, end - start);
+        } else {
+            appendUtf8(bytes, start, end, a);
+        }
+    }
+
+    private static void appendUtf8(@NotNull BytesStore bytes, long start, long end, @NotNull Appendable a)
+            throws IOException {
+        for (long i = start; i < end; ) {
+            int b = bytes.readUnsignedByte(i++);
+            if (b < 0x80) {
+                a.append((char) b);
+                continue;
+            }
+            int more, codePoint;
+            if (b >= 0xF0) {
+                more = 3;
+                codePoint = b & 0x07;
+            } else if (b >= 0xE0) {
+                more = 2;
+                codePoint = b & 0x0F;
+            } else {
+                more = 1;
+                codePoint = b & 0x1F;
+            }
+            for (; more > 0 && i < end; more--)
+                codePoint = (codePoint << 6) | (bytes.readUnsignedByte(i++) & 0x3F);
+            if (Character.isSupplementaryCodePoint(codePoint))
+                a.append(Character.highSurrogate(codePoint)).append(Character.lowSurrogate(codePoint));
+            else
+                a.append((char) codePoint);
+        }
+    }
+
+    /**
+     * Decode the escape after the backslash at position - 1.
+     *
+     * @return the position after the escape.
+     */
+    private static long unescape(@NotNull BytesStore bytes, long position, long limit, @NotNull Appendable a)
+            throws IOException {
+        if (position >= limit)
+            throw new IORuntimeException("Unterminated string at " + position);
+        int ch = bytes.readUnsignedByte(position++);
+        switch (ch) {
+            case 'b':
+                ch = '\b';
+                break;
+            case 'f':
+                ch = '\f';
+                break;
+            case 'n':
+                ch = '\n';
+                break;
+            case 'r':
+                ch = '\r';
+                break;
+            case 't':
+                ch = '\t';
+                break;
+            case 'u':
+                ch = readHex4(bytes, position, limit);
+                position += 4;
+                // Bytes hold UTF-8 so a surrogate pair is written as one code point.
+                if (a instanceof Bytes && Character.isHighSurrogate((char) ch) && position + 6 <= limit
+                        && bytes.readUnsignedByte(position) == '\\' && bytes.readUnsignedByte(position + 1) == 'u') {
+                    int low = readHex4(bytes, position + 2, limit);
+                    if (Character.isLowSurrogate((char) low)) {
+                        ((Bytes) a).appendUtf8(Character.toCodePoint((char) ch, (char) low));
+                        return position + 6;
+                    }
+                }
+                break;
+            default:
+                // \" \\ \/ and anything else stand for themselves.
+                break;
+        }
+        if (a instanceof Bytes)
+            ((Bytes) a).appendUtf8(ch);
+        else
+            a.append((char) ch);
+        return position;
+    }
+
+    private static int readHex4(@NotNull BytesStore bytes, long position, long limit) {
+        if (position + 4 > limit)
+            throw new IORuntimeException("Incomplete \\u escape at " + position);
+        int ch = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(bytes.readUnsignedByte(position + i), 16);
+            if (digit < 0)
+                throw new IORuntimeException("Invalid \\u escape at " + position);
+            ch = (ch << 4) | digit;
+        }
+        return ch;
+    }
+}
@@ -19,8 +19,7 @@ package net.openhft.chronicle.wire;
 import net.openhft.chronicle.bytes.*;
 import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.pool.ClassAliasPool;
-import net.openhft.chronicle.core.util.ObjectUtils;
-import net.openhft.chronicle.core.util.StringUtils;
+import net.openhft.chronicle.core.util.*;
 import net.openhft.chronicle.core.values.IntValue;
 import net.openhft.chronicle.core.values.LongArrayValues;
 import net.openhft.chronicle.core.values.LongValue;
@@ -28,16 +27,17 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.xerial.snappy.Snappy;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.*;
+import java.util.zip.GZIPInputStream;
 
 import static net.openhft.chronicle.bytes.Bytes.empty;
 import static net.openhft.chronicle.bytes.NativeBytes.nativeBytes;
@@ -46,11 +46,20 @@ import static net.openhft.chronicle.core.util.ReadResolvable.readResolve;
 /**
  * JSON wire format
  * <p>
- * At the moment, this is a cut down version of the YAML wire format.
+ * Values are read by a JSONTokenizer and must be JSON: quoted field names, a comma between values
+ * and none after the last, and JSON numbers and literals. Anything else is an IORuntimeException
+ * rather than being read as YAML. The one extension is a type tag, e.g. !type or !!binary, before
+ * a value, as JSONWire writes for typed marshallables, maps and binary. Int and long references
+ * and int64array are written and read as they are by TextWire, so they aren't JSON.
  */
 public class JSONWire extends TextWire {
     static final BytesStore COMMA = BytesStore.from(",");
 
+    // the type tag read last, without its first !
+    private final StringBuilder tag = new StringBuilder();
+    // the value read last was followed by a comma, so another has to follow it.
+    private boolean comma;
+
     public JSONWire(Bytes bytes, boolean use8bit) {
         super(bytes, use8bit);
     }
@@ -116,32 +125,123 @@ public class JSONWire extends TextWire {
     }
 
     @NotNull
-    private StopCharsTester getEscapingEndOfText() {
-        StopCharsTester escaping = ESCAPED_END_OF_TEXT.get();
-        // reset it.
-        escaping.isStopChar(' ', ' ');
-        return escaping;
+    private static String stringForCode(int code) {
+        return code < 0 ? "Unexpected end of input" : "'" + (char) code + "'";
     }
 
-    private StopCharTester getEscapingQuotes() {
-        StopCharTester sct = ESCAPED_QUOTES.get();
-        // reset it.
-        sct.isStopChar(' ');
-        return sct;
+    void consumeWhiteSpace() {
+        bytes.readPosition(JSONTokenizer.skipWhiteSpace(bytes, bytes.readPosition(), bytes.readLimit()));
     }
 
-    void consumeWhiteSpace() {
-        for (; ; ) {
-            int codePoint = peekCode();
-            if (codePoint == '#') {
-                //noinspection StatementWithEmptyBody
-                while (readCode() >= ' ') ;
-            } else if (Character.isWhitespace(codePoint) || codePoint == ',') {
-                bytes.readSkip(1);
-            } else {
+    @Override
+    void skipSeparators() {
+        bytes.readPosition(JSONTokenizer.skipSeparators(bytes, bytes.readPosition(), bytes.readLimit()));
+    }
+
+    @NotNull
+    @Override
+    protected StringBuilder readField(@NotNull StringBuilder sb) {
+        consumeWhiteSpace();
+        int code = peekCode();
+        if (code < 0) {
+            sb.setLength(0);
+            return sb;
+        }
+        if (code != '"')
+            throw new IORuntimeException("Expected a quoted field name, was " + stringForCode(code));
+        bytes.readPosition(JSONTokenizer.readString(bytes, bytes.readPosition() + 1, bytes.readLimit(), sb, use8bit));
+        consumeWhiteSpace();
+        if (readCode() != ':')
+            throw new UnsupportedOperationException("Expected a : at " + bytes.toDebugString());
+        comma = false;
+        return sb;
+    }
+
+    /**
+     * Read the comma after a value, if there is one. Anything but the end of the block or input
+     * has to be one.
+     */
+    void endOfValue() {
+        consumeWhiteSpace();
+        int code = peekCode();
+        comma = code == ',';
+        if (comma)
+            bytes.readSkip(1);
+        else if (code >= 0 && code != '}' && code != ']')
+            throw new IORuntimeException("Expected a , after a value, was " + stringForCode(code));
+    }
+
+    /**
+     * Read a type tag, e.g. !type or !!binary, and the whitespace before its value.
+     *
+     * @return the tag without its first !
+     */
+    @NotNull
+    StringBuilder readTag(@NotNull StringBuilder sb) {
+        sb.setLength(0);
+        bytes.readSkip(1);
+        for (int ch; (ch = peekCode()) > ' ' && ch != '"' && ch != ',' && ch != '{' && ch != '}'; bytes.readSkip(1))
+            sb.append((char) ch);
+        consumeWhiteSpace();
+        return sb;
+    }
+
+    /**
+     * Read literal, e.g. null, and the comma after it, if it's next.
+     */
+    boolean literal(@NotNull String literal) {
+        long position = bytes.readPosition();
+        long end = JSONTokenizer.skipLiteral(bytes, position, bytes.readLimit(), literal);
+        if (end == position)
+            return false;
+        bytes.readPosition(end);
+        endOfValue();
+        return true;
+    }
+
+    /**
+     * Skip any type tag and find the end of the value after it.
+     *
+     * @return the position after the value.
+     * @throws IORuntimeException if there isn't a JSON value.
+     */
+    long valueEnd() {
+        consumeWhiteSpace();
+        if (peekCode() == '!')
+            readTag(tag);
+        long position = bytes.readPosition(), limit = bytes.readLimit();
+        int code = peekCode();
+        long end;
+        switch (code) {
+            case '"':
+                end = JSONTokenizer.stringEnd(bytes, position + 1, limit);
+                break;
+            case '{':
+            case '[':
+                end = JSONTokenizer.blockEnd(bytes, position + 1, limit, code);
+                break;
+            case 't':
+                end = JSONTokenizer.skipLiteral(bytes, position, limit, "true");
+                break;
+            case 'f':
+                end = JSONTokenizer.skipLiteral(bytes, position, limit, "false");
+                break;
+            case 'n':
+                end = JSONTokenizer.skipLiteral(bytes, position, limit, "null");
+                break;
+            default:
+                end = JSONTokenizer.skipNumber(bytes, position, limit);
                 break;
-            }
         }
+        if (end == position)
+            throw new IORuntimeException("Expected a JSON value, was " + stringForCode(code));
+        return end;
+    }
+
+    @Override
+    void skipValue() {
+        bytes.readPosition(valueEnd());
+        endOfValue();
     }
 
     /**
@@ -177,18 +277,6 @@ public class JSONWire extends TextWire {
         return bytes.readUnsignedByte();
     }
 
-    @NotNull
-    @Override
-    public ValueIn read(@NotNull WireKey key) {
-        long position = bytes.readPosition();
-        StringBuilder sb = readField(WireInternal.acquireStringBuilder());
-        if (sb.length() == 0 || StringUtils.isEqual(sb, key.name()))
-            return valueIn;
-        bytes.readPosition(position);
-        throw new UnsupportedOperationException("Unordered fields not supported yet. key=" + key
-                .name() + ", was=" + sb + ", data='" + sb + "'");
-    }
-
     @NotNull
     @Override
     public ValueIn read(@NotNull StringBuilder name) {
@@ -253,30 +341,6 @@ public class JSONWire extends TextWire {
     }
 
 
-    public void parseWord(StringBuilder sb) {
-        parseUntil(sb, StopCharTesters.SPACE_STOP);
-    }
-
-    public void parseUntil(StringBuilder sb, StopCharTester testers) {
-        if (use8bit)
-            bytes.parse8bit(sb, testers);
-        else
-            bytes.parseUTF(sb, testers);
-    }
-
-    public void parseUntil(StringBuilder sb, StopCharsTester testers) {
-        sb.setLength(0);
-        if (use8bit) {
-            AppendableUtil.read8bitAndAppend(bytes, sb, testers);
-        } else {
-            try {
-                AppendableUtil.readUTFAndAppend(bytes, sb, testers);
-            } catch (IOException e) {
-                throw new IORuntimeException(e);
-            }
-        }
-    }
-
     public void append(CharSequence cs) {
         if (use8bit)
             bytes.append8bit(cs);
@@ -327,7 +391,7 @@ public class JSONWire extends TextWire {
         @Override
         public WireOut bool(@Nullable Boolean flag) {
             prependSeparator();
-            append(flag == null ? "!" + NULL : flag ? "true" : "false");
+            append(flag == null ? "null" : flag ? "true" : "false");
             elementSeparator();
             return JSONWire.this;
         }
@@ -337,7 +401,7 @@ public class JSONWire extends TextWire {
         public WireOut text(@Nullable CharSequence s) {
             prependSeparator();
             if (s == null) {
-                append("!" + NULL);
+                append("null");
             } else {
                 bytes.appendUtf8('"');
                 escaped(s);
@@ -399,10 +463,17 @@ public class JSONWire extends TextWire {
         @NotNull
         @Override
         public WireOut bytes(byte[] byteArray) {
+            return bytes("!binary", byteArray);
+        }
+
+        @NotNull
+        @Override
+        public WireOut bytes(String type, byte[] byteArray) {
+            typePrefix(type);
             prependSeparator();
-            append("!!binary ");
+            bytes.appendUtf8('"');
             append(Base64.getEncoder().encodeToString(byteArray));
-            append(END_FIELD);
+            bytes.appendUtf8('"');
             elementSeparator();
 
             return JSONWire.this;
@@ -444,9 +515,7 @@ public class JSONWire extends TextWire {
             prependSeparator();
             StringBuilder sb = WireInternal.acquireStringBuilder();
             sb.appendCodePoint(codepoint);
-            text(sb);
-            sep = empty();
-            return JSONWire.this;
+            return text(sb);
         }
 
         @NotNull
@@ -482,16 +551,20 @@ public class JSONWire extends TextWire {
         @NotNull
         @Override
         public WireOut int64array(long capacity) {
+            prependSeparator();
             TextLongArrayReference.write(bytes, capacity);
+            elementSeparator();
             return JSONWire.this;
         }
 
         @NotNull
         @Override
         public WireOut int64array(long capacity, @NotNull LongArrayValues values) {
+            prependSeparator();
             long pos = bytes.writePosition();
             TextLongArrayReference.write(bytes, capacity);
             ((Byteable) values).bytesStore(bytes, pos, bytes.writePosition() - pos);
+            elementSeparator();
             return JSONWire.this;
         }
 
@@ -499,7 +572,7 @@ public class JSONWire extends TextWire {
         @Override
         public WireOut float32(float f) {
             prependSeparator();
-            bytes.append(f);
+            DoubleText.append(bytes, f);
             elementSeparator();
 
             return JSONWire.this;
@@ -509,7 +582,7 @@ public class JSONWire extends TextWire {
         @Override
         public WireOut float64(double d) {
             prependSeparator();
-            bytes.append(d);
+            DoubleText.append(bytes, d);
             elementSeparator();
 
             return JSONWire.this;
@@ -518,31 +591,19 @@ public class JSONWire extends TextWire {
         @NotNull
         @Override
         public WireOut time(@NotNull LocalTime localTime) {
-            prependSeparator();
-            append(localTime.toString());
-            elementSeparator();
-
-            return JSONWire.this;
+            return text(localTime.toString());
         }
 
         @NotNull
         @Override
         public WireOut zonedDateTime(@NotNull ZonedDateTime zonedDateTime) {
-            prependSeparator();
-            append(zonedDateTime.toString());
-            elementSeparator();
-
-            return JSONWire.this;
+            return text(zonedDateTime.toString());
         }
 
         @NotNull
         @Override
         public WireOut date(@NotNull LocalDate localDate) {
-            prependSeparator();
-            append(localDate.toString());
-            elementSeparator();
-
-            return JSONWire.this;
+            return text(localDate.toString());
         }
 
         @NotNull
@@ -560,7 +621,9 @@ public class JSONWire extends TextWire {
         public WireOut typeLiteral(@NotNull BiConsumer<Class, Bytes> typeTranslator, Class type) {
             prependSeparator();
             append(TYPE);
+            bytes.appendUtf8('"');
             typeTranslator.accept(type, bytes);
+            bytes.appendUtf8('"');
             elementSeparator();
             return JSONWire.this;
         }
@@ -578,11 +641,7 @@ public class JSONWire extends TextWire {
         @NotNull
         @Override
         public WireOut uuid(@NotNull UUID uuid) {
-            prependSeparator();
-            append(sep);
-            append(uuid.toString());
-            elementSeparator();
-            return JSONWire.this;
+            return text(uuid.toString());
         }
 
         @NotNull
@@ -618,6 +677,7 @@ public class JSONWire extends TextWire {
         @NotNull
         @Override
         public WireOut sequence(@NotNull Consumer<ValueOut> writer) {
+            prependSeparator();
             pushState();
             bytes.appendUtf8('[');
             sep = NEW_LINE;
@@ -629,12 +689,13 @@ public class JSONWire extends TextWire {
             popState();
             indent();
             bytes.appendUtf8(']');
-            sep = END_FIELD;
+            sep = COMMA;
             return JSONWire.this;
         }
 
         @Override
         public WireOut array(@NotNull Consumer<ValueOut> writer, Class arrayType) {
+            prependSeparator();
             if (arrayType == String[].class) append("!String[] ");
             else {
                 bytes.appendUtf8('!');
@@ -682,39 +743,30 @@ public class JSONWire extends TextWire {
         @Override
         public WireOut map(@NotNull final Map map) {
             typePrefix(SEQ_MAP);
-            bytes.appendUtf8(' ');
+            prependSeparator();
             bytes.appendUtf8('[');
-            pushState();
-            sep = END_FIELD;
             map.forEach((k, v) -> {
                 prependSeparator();
-                append("{ key: ");
+                append("{\"key\": ");
                 leaf();
                 object2(k);
-                sep = COMMA;
-                prependSeparator();
-                append("  value: ");
+                sep = empty();
+                append(", \"value\": ");
                 leaf();
                 object2(v);
-                bytes.appendUtf8(' ');
                 bytes.appendUtf8('}');
                 sep = COMMA;
             });
-            popState();
-            sep = END_FIELD;
-            prependSeparator();
             bytes.appendUtf8(']');
-            sep = END_FIELD;
+            sep = COMMA;
             return JSONWire.this;
         }
 
         private void object2(Object v) {
-            if (v instanceof CharSequence)
+            if (v == null || v instanceof CharSequence)
                 text((CharSequence) v);
             else if (v instanceof WriteMarshallable)
                 typedMarshallable((WriteMarshallable) v);
-            else if (v == null)
-                append("!" + NULL);
             else
                 text(String.valueOf(v));
         }
@@ -723,10 +775,9 @@ public class JSONWire extends TextWire {
         @Override
         public WireOut typedMap(@NotNull Map<? extends WriteMarshallable, ? extends Marshallable> map) {
             typePrefix(SEQ_MAP);
-            map.forEach((k, v) -> sequence(w -> w.marshallable(m -> m
+            return sequence(s -> map.forEach((k, v) -> s.marshallable(m -> m
                     .write(() -> "key").typedMarshallable(k)
                     .write(() -> "value").typedMarshallable(v))));
-            return JSONWire.this;
         }
 
         @NotNull
@@ -741,6 +792,11 @@ public class JSONWire extends TextWire {
 
         @NotNull
         public ValueOut write(@NotNull WireKey key) {
+            if (key instanceof EncodedWireKey) {
+                prependSeparator();
+                bytes.write(((EncodedWireKey) key).jsonField());
+                return this;
+            }
             CharSequence name = key.name();
             if (name == null) name = Integer.toString(key.code());
             prependSeparator();
@@ -773,91 +829,49 @@ public class JSONWire extends TextWire {
             return textTo0(bytes);
         }
 
+        /**
+         * Read a string, or the JSON text of any other value, e.g. a number or a whole { } block.
+         */
         @Nullable
         <ACS extends Appendable & CharSequence> ACS textTo0(@NotNull ACS a) {
             consumeWhiteSpace();
             int ch = peekCode();
-
-            if (ch == '{') {
-                final long len = readLength();
-                try {
-                    a.append(Bytes.toString(bytes, bytes.readPosition(), len));
-                } catch (IOException e) {
-                    throw new AssertionError(e);
-                }
-                bytes.readSkip(len);
-
-                // read the next comma
-                bytes.skipTo(StopCharTesters.COMMA_STOP);
-
+            if (ch == '"') {
+                bytes.readPosition(JSONTokenizer.readString(bytes, bytes.readPosition() + 1, bytes.readLimit(), a, use8bit));
+                endOfValue();
                 return a;
-
-            } else if (ch == '"') {
-                bytes.readSkip(1);
-                if (use8bit)
-                    bytes.parse8bit(a, getEscapingQuotes());
-                else
-                    bytes.parseUTF(a, getEscapingQuotes());
-                unescape(a);
-                int code = peekCode();
-                if (code == '"')
-                    readCode();
-
-            } else if (ch == '!') {
-                bytes.readSkip(1);
-                ch = peekCode();
-                if (ch == '!') {
-                    bytes.readSkip(1);
-                    StringBuilder sb = WireInternal.acquireStringBuilder();
-                    parseWord(sb);
-                    if (StringUtils.isEqual(sb, "null")) {
-                        textTo(sb);
-                        return null;
-                    } else if (StringUtils.isEqual(sb, "snappy")) {
-                        textTo(sb);
-                        try {
-                            //todo needs to be made efficient
-                            byte[] decodedBytes = Base64.getDecoder().decode(sb.toString().getBytes());
-                            String csq = Snappy.uncompressString(decodedBytes);
-                            return (ACS) WireInternal.acquireStringBuilder().append(csq);
-                        } catch (IOException e) {
-                            throw new AssertionError(e);
-                        }
-                    }
-                } else {
-                    StringBuilder sb = WireInternal.acquireStringBuilder();
-                    textTo(sb);
+            }
+            if (isNull())
+                return null;
+            if (ch == '!') {
+                readTag(tag);
+                if (!StringUtils.isEqual(tag, "snappy"))
                     // ignore the type.
-                }
-
-            } else {
-                if (bytes.readRemaining() > 0) {
-                    if (a instanceof Bytes || use8bit)
-                        bytes.parse8bit(a, getEscapingEndOfText());
-                    else
-                        bytes.parseUTF(a, getEscapingEndOfText());
-
-                } else {
+                    return textTo0(a);
+                textTo0(a);
+                try {
+                    //todo needs to be made efficient
+                    byte[] decodedBytes = Base64.getDecoder().decode(a.toString());
+                    String csq = Snappy.uncompressString(decodedBytes);
                     AppendableUtil.setLength(a, 0);
+                    a.append(csq);
+                    return a;
+                } catch (IOException e) {
+                    throw new AssertionError(e);
                 }
-                // trim trailing spaces.
-                while (a.length() > 0)
-                    if (Character.isWhitespace(a.charAt(a.length() - 1)))
-                        AppendableUtil.setLength(a, a.length() - 1);
-                    else
-                        break;
             }
-
-            int prev = rewindAndRead();
-            if (prev == ':')
-                bytes.readSkip(-1);
+            long end = valueEnd();
+            AppendableUtil.setLength(a, 0);
+            try {
+                JSONTokenizer.append(bytes, bytes.readPosition(), end, a, use8bit);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            bytes.readPosition(end);
+            endOfValue();
             return a;
         }
 
-        private int rewindAndRead() {
-            return bytes.readPosition() > 0 ? bytes.readUnsignedByte(bytes.readPosition() - 1) : -1;
-        }
-
         @NotNull
         @Override
         public WireIn bytes(@NotNull Bytes toBytes) {
@@ -866,63 +880,56 @@ public class JSONWire extends TextWire {
 
         @NotNull
         public WireIn bytes(@NotNull ReadMarshallable bytesConsumer) {
-            consumeWhiteSpace();
+            byte[] byteArray = bytes();
+            bytesConsumer.readMarshallable(byteArray == null ? null : new JSONWire(Bytes.wrapForRead(byteArray)));
+            return JSONWire.this;
+        }
 
+        /**
+         * @return the bytes of !!binary "base64", or of a string.
+         */
+        @Nullable
+        public byte[] bytes() {
+            if (isNull())
+                return null;
             // TODO needs to be made much more efficient.
-            StringBuilder sb = WireInternal.acquireStringBuilder();
+            boolean binary = false;
             if (peekCode() == '!') {
-                parseWord(sb);
-                String str = WireInternal.INTERNER.intern(sb);
-                if (str.equals("!!binary")) {
-                    AppendableUtil.setLength(sb, 0);
-                    parseWord(sb);
-                    byte[] decode = Base64.getDecoder().decode(sb.toString());
-                    bytesConsumer.readMarshallable(new JSONWire(Bytes.wrapForRead(decode)));
-
-                } else if (str.equals("!!null")) {
-                    bytesConsumer.readMarshallable(null);
-                    parseWord(sb);
-                } else {
-                    throw new IORuntimeException("Unsupported type=" + str);
-                }
-            } else {
-                textTo(sb);
-                bytesConsumer.readMarshallable(new JSONWire(Bytes.wrapForRead(sb.toString().getBytes())));
+                if (!StringUtils.isEqual(readTag(tag), "!binary"))
+                    throw new IORuntimeException("Unsupported type=!" + tag);
+                binary = true;
             }
-            return JSONWire.this;
+            StringBuilder sb = WireInternal.acquireStringBuilder();
+            if (peekCode() != '"')
+                throw new IORuntimeException("Expected a string, was " + stringForCode(peekCode()));
+            textTo(sb);
+            return binary ? Base64.getDecoder().decode(sb.toString()) : sb.toString().getBytes();
         }
 
         @Nullable
-        public byte[] bytes() {
+        @Override
+        public WireIn decompress(Bytes toBytes) {
             consumeWhiteSpace();
-            // TODO needs to be made much more efficient.
+            toBytes.clear();
+            if (peekCode() != '!') {
+                textTo(toBytes);
+                return JSONWire.this;
+            }
+            readTag(tag);
             StringBuilder sb = WireInternal.acquireStringBuilder();
-            if (peekCode() == '!') {
-                parseWord(sb);
-                String str = WireInternal.INTERNER.intern(sb);
-                if (str.equals("!!binary")) {
-                    AppendableUtil.setLength(sb, 0);
-                    parseWord(sb);
-                    byte[] decode = Base64.getDecoder().decode(WireInternal.INTERNER.intern(sb));
-                    return decode;
-
-                } else if (str.equals("!!null")) {
-                    parseWord(sb);
-                    return null;
-                } else if (str.equals("!" + SEQ_MAP)) {
-                    sb.append(bytes.toString());
-                    // todo fix this.
-                    return WireInternal.INTERNER.intern(sb).getBytes();
-
-                } else {
-                    throw new IllegalStateException("unsupported type=" + str);
-                }
-
-            } else {
-                textTo(sb);
-                // todo fix this.
-                return sb.toString().getBytes();
+            textTo(sb);
+            byte[] decode = Base64.getDecoder().decode(sb.toString());
+            try {
+                if (StringUtils.isEqual(tag, "snappy"))
+                    toBytes.write(Snappy.uncompress(decode));
+                else if (StringUtils.isEqual(tag, "gzip"))
+                    toBytes.copyFrom(new GZIPInputStream(new ByteArrayInputStream(decode)));
+                else
+                    throw new AssertionError("Unknown format !" + tag);
+            } catch (IOException e) {
+                throw new AssertionError(e);
             }
+            return JSONWire.this;
         }
 
         @Override
@@ -930,265 +937,295 @@ public class JSONWire extends TextWire {
             consumeWhiteSpace();
             long start = bytes.readPosition();
             try {
-                consumeWhiteSpace();
-                int code = readCode();
-                switch (code) {
-                    case '{': {
-                        int count = 1;
-                        for (; ; ) {
-                            byte b = bytes.readByte();
-                            if (b == '{') {
-                                count += 1;
-                            } else if (b == '}') {
-                                count -= 1;
-                                if (count == 0)
-                                    return bytes.readPosition() - start;
-                            } else if (b <= 0) {
-                                return bytes.readPosition() - start - 1;
-                            }
-
-                            // do nothing
-                        }
-                    }
-
-                    case '-': {
-                        for (; ; ) {
-                            byte b = bytes.readByte();
-                            if (b < ' ')
-                                return bytes.readLimit() - start - 1;
-                            // do nothing
-                        }
-                    }
-
-                    default:
-                        // TODO needs to be made much more efficient.
-                        bytes();
-                        return bytes.readPosition() - start;
-                }
+                return valueEnd() - start;
             } finally {
                 bytes.readPosition(start);
             }
         }
 
-        private long readLengthMarshallable() {
-            long start = bytes.readPosition();
-            try {
-                consumeWhiteSpace();
-                int code = readCode();
-                switch (code) {
-                    case '{': {
-                        int count = 1;
-                        for (; ; ) {
-                            byte b = bytes.readByte();
-                            if (b == '{') {
-                                count += 1;
-                            } else if (b == '}') {
-                                count -= 1;
-                                if (count == 0)
-                                    return bytes.readPosition() - start;
-                            } else if (b == 0) {
-                                return bytes.readPosition() - start - 1;
-                            }
-                            // do nothing
-                        }
-                    }
-
-                    default:
-                        // TODO needs to be made much more efficient.
-                        bytes();
-                        return bytes.readPosition() - start;
-                }
-            } finally {
-                bytes.readPosition(start);
-            }
+        @Override
+        public boolean hasNext() {
+            consumeWhiteSpace();
+            return bytes.readRemaining() > 0;
         }
 
         @Override
         public boolean hasNextSequenceItem() {
-            consumeWhiteSpace();
-            int ch = peekCode();
-            if (ch == ',') {
-                bytes.readSkip(1);
-                return true;
-            }
-            return ch > 0 && ch != ']';
+            return hasNext();
         }
 
         @NotNull
         @Override
         public WireIn int64(@Nullable LongValue value) {
+            // a TextLongReference rather than JSON, so it can be updated in place.
             consumeWhiteSpace();
             Byteable b = (Byteable) value;
             long length = b.maxSize();
             b.bytesStore(bytes, bytes.readPosition(), length);
             bytes.readSkip(length);
-            consumeWhiteSpace();
-            if (peekCode() == ',')
-                bytes.readSkip(1);
+            endOfValue();
             return JSONWire.this;
         }
 
+        @NotNull
         @Override
-        public <T> T applyToMarshallable(@NotNull Function<WireIn, T> marshallableReader) {
+        public <T> WireIn int64array(@Nullable LongArrayValues values, T t, @NotNull BiConsumer<T, LongArrayValues> setter) {
+            super.int64array(values, t, setter);
+            endOfValue();
+            return JSONWire.this;
+        }
+
+        /**
+         * Limit reading to the block which starts at the read position, after any type.
+         *
+         * @param open the { or [ the block must start with.
+         * @return the position after the block.
+         */
+        private long enterBlock(int open) {
             consumeWhiteSpace();
+            if (peekCode() == '!')
+                readTag(tag);
             int code = peekCode();
-            if (code != '{')
-                throw new IORuntimeException("Unsupported type " + (char) code);
+            if (code != open)
+                throw new IORuntimeException("Expected a " + (char) open + ", was " + stringForCode(code));
+            long end = JSONTokenizer.blockEnd(bytes, bytes.readPosition() + 1, bytes.readLimit(), open);
+            bytes.readLimit(end - 1);
+            bytes.readSkip(1);
+            comma = false;
+            return end;
+        }
 
-            final long len = readLengthMarshallable();
+        /**
+         * Called once a block has been read, it mustn't end with a comma.
+         */
+        private void endOfBlock() {
+            consumeWhiteSpace();
+            if (comma && bytes.readRemaining() == 0)
+                throw new IORuntimeException("Expected a value after the last ,");
+        }
 
+        @Override
+        public <T> T applyToMarshallable(@NotNull Function<WireIn, T> marshallableReader) {
             final long limit = bytes.readLimit();
-            final long position = bytes.readPosition();
-
+            final long end = enterBlock('{');
+            final T t;
             try {
-                // ensure that you can read past the end of this marshable object
-                final long newLimit = position - 1 + len;
-                bytes.readLimit(newLimit);
-                bytes.readSkip(1); // skip the {
-                consumeWhiteSpace();
-                return marshallableReader.apply(JSONWire.this);
+                t = marshallableReader.apply(JSONWire.this);
+                endOfBlock();
             } finally {
                 bytes.readLimit(limit);
-
-                consumeWhiteSpace();
-                code = readCode();
-                if (code != '}')
-                    throw new IORuntimeException("Unterminated { while reading marshallable "
-                            + "bytes=" + Bytes.toString(bytes)
-                    );
             }
-        }
-
-        @NotNull
-        String stringForCode(int code) {
-            return code < 0 ? "Unexpected end of input" : "'" + (char) code + "'";
+            bytes.readPosition(end);
+            endOfValue();
+            return t;
         }
 
         @NotNull
         @Override
         public WireIn marshallable(@NotNull ReadMarshallable object) {
-            consumeWhiteSpace();
-            int code = peekCode();
-            if (code == '!')
-                typePrefix();
-            else if (code != '{')
-                throw new IORuntimeException("Unsupported type " + stringForCode(code));
-
-            final long len = readLengthMarshallable();
-
             final long limit = bytes.readLimit();
-            final long position = bytes.readPosition();
-
-            final long newLimit = position - 1 + len;
+            final long end = enterBlock('{');
+            boolean indexed = false;
             try {
-                // ensure that you can read past the end of this marshable object
-
-                bytes.readLimit(newLimit);
-                bytes.readSkip(1); // skip the {
-                consumeWhiteSpace();
+                indexed = enterFieldScope(end - 1);
                 object.readMarshallable(JSONWire.this);
+                endOfBlock();
             } finally {
+                if (indexed)
+                    fieldIndexDepth--;
                 bytes.readLimit(limit);
-                bytes.readPosition(newLimit);
             }
+            bytes.readPosition(end);
+            endOfValue();
+            return JSONWire.this;
+        }
 
-            consumeWhiteSpace();
-            code = readCode();
-            if (code != '}')
-                throw new IORuntimeException("Unterminated { while reading marshallable " +
-                        object + ",code='" + (char) code + "', bytes=" + Bytes.toString(bytes)
-                );
+        @NotNull
+        @Override
+        public <T> WireIn sequence(@NotNull T t, @NotNull BiConsumer<T, ValueIn> tReader) {
+            final long limit = bytes.readLimit();
+            final long end = enterBlock('[');
+            try {
+                // an empty sequence isn't passed to the reader.
+                if (hasNext()) {
+                    tReader.accept(t, this);
+                    endOfBlock();
+                }
+            } finally {
+                bytes.readLimit(limit);
+            }
+            bytes.readPosition(end);
+            endOfValue();
             return JSONWire.this;
         }
 
         @Nullable
+        @Override
         public <T extends ReadMarshallable> T typedMarshallable() {
-            try {
-                consumeWhiteSpace();
-                int code = peekCode();
-                if (code < 0)
-                    throw new IllegalStateException("Cannot read nothing as a Marshallable " + bytes.toDebugString());
-                StringBuilder sb = WireInternal.acquireStringBuilder();
-                if (code != '!')
-                    throw new ClassCastException("Cannot convert to Marshallable. " + bytes.toDebugString());
+            if (isNull())
+                return null;
+            int code = peekCode();
+            if (code < 0)
+                throw new IllegalStateException("Cannot read nothing as a Marshallable " + bytes.toDebugString());
+            if (code != '!')
+                throw new ClassCastException("Cannot convert to Marshallable. " + bytes.toDebugString());
+
+            readTag(tag);
+            if (StringUtils.isEqual(tag, "!binary")) {
+                skipValue();
+                return null;
+            }
 
-                readCode();
-                parseUntil(sb, TextStopCharTesters.END_OF_TYPE);
+            // its possible that the object that you are allocating may not have a
+            // default constructor
+            final Class clazz;
+            try {
+                clazz = ClassAliasPool.CLASS_ALIASES.forName(tag);
+            } catch (ClassNotFoundException e) {
+                throw new IORuntimeException(e);
+            }
+            if (!ReadMarshallable.class.isAssignableFrom(clazz))
+                throw new ClassCastException("Cannot convert " + tag + " to Marshallable.");
 
-                if (StringUtils.isEqual(sb, "!null")) {
-                    text();
-                    return null;
-                }
+            final ReadMarshallable m = ObjectUtils.newInstance((Class<ReadMarshallable>) clazz);
+            marshallable(m);
+            return readResolve(m);
+        }
 
-                if (StringUtils.isEqual(sb, "!binary")) {
-                    bytesStore();
-                    return null;
-                }
+        @NotNull
+        @Override
+        public <T> ValueIn typePrefix(T t, @NotNull BiConsumer<T, CharSequence> ts) {
+            consumeWhiteSpace();
+            if (peekCode() == '!')
+                ts.accept(t, readTag(tag));
+            return this;
+        }
 
-                // its possible that the object that you are allocating may not have a
-                // default constructor
-                final Class clazz = ClassAliasPool.CLASS_ALIASES.forName(sb);
+        @Override
+        public Class typePrefix() {
+            consumeWhiteSpace();
+            if (peekCode() != '!')
+                return Object.class;
+            try {
+                return ClassAliasPool.CLASS_ALIASES.forName(readTag(tag));
+            } catch (ClassNotFoundException e) {
+                throw new IORuntimeException(e);
+            }
+        }
 
-                if (!ReadMarshallable.class.isAssignableFrom(clazz))
-                    throw new ClassCastException("Cannot convert " + sb + " to Marshallable.");
+        /**
+         * @return the class name of !type "name"
+         */
+        @Nullable
+        private StringBuilder typeName() {
+            consumeWhiteSpace();
+            int code = peekCode();
+            if (code != '!' || !StringUtils.isEqual(readTag(tag), "type"))
+                throw new UnsupportedOperationException(code == '!' ? "!" + tag : stringForCode(code));
+            return textTo(WireInternal.acquireStringBuilder());
+        }
 
-                final ReadMarshallable m = ObjectUtils.newInstance((Class<ReadMarshallable>) clazz);
+        @NotNull
+        @Override
+        public <T> WireIn typeLiteralAsText(T t, @NotNull BiConsumer<T, CharSequence> classNameConsumer) {
+            classNameConsumer.accept(t, typeName());
+            return JSONWire.this;
+        }
 
-                marshallable(m);
-                return readResolve(m);
-            } catch (Exception e) {
+        @Override
+        public Class typeLiteral() {
+            try {
+                return ClassAliasPool.CLASS_ALIASES.forName(typeName());
+            } catch (ClassNotFoundException e) {
                 throw new IORuntimeException(e);
             }
         }
 
+        /**
+         * Reads a JSON object, using its field names as the keys, or a !!seqmap of key/value pairs.
+         */
         @Nullable
         @Override
         public <K, V> Map<K, V> map(@NotNull final Class<K> kClazz,
                                     @NotNull final Class<V> vClass,
                                     @NotNull final Map<K, V> usingMap) {
-            consumeWhiteSpace();
             usingMap.clear();
+            if (isNull())
+                return null;
 
-            StringBuilder sb = WireInternal.acquireStringBuilder();
-            if (peekCode() == '!') {
-                parseUntil(sb, StopCharTesters.SPACE_STOP);
-                String str = WireInternal.INTERNER.intern(sb);
-
-                if (("!!null").contentEquals(sb)) {
-                    text();
-                    return null;
-
-                } else if (("!" + SEQ_MAP).contentEquals(sb)) {
-                    consumeWhiteSpace();
-                    int start = readCode();
-                    if (start != '[')
-                        throw new IORuntimeException("Unsupported start of sequence : " + (char) start);
-                    do {
-                        marshallable(r -> {
-                            final K k = r.read(() -> "key")
-                                    .object(kClazz);
-                            final V v = r.read(() -> "value")
-                                    .object(vClass);
-                            usingMap.put(k, v);
-                        });
-                    } while (hasNextSequenceItem());
-                    return usingMap;
-
-                } else {
-                    throw new IORuntimeException("Unsupported type :" + str);
-                }
+            int code = peekCode();
+            if (code == '{') {
+                marshallable(r -> {
+                    StringBuilder sb = WireInternal.acquireStringBuilder();
+                    while (JSONWire.this.hasMore()) {
+                        final K k = ObjectUtils.convertTo(kClazz, WireInternal.INTERNER.intern(readField(sb)));
+                        final V v = object(vClass);
+                        usingMap.put(k, v);
+                    }
+                });
+                return usingMap;
             }
+            if (code != '!' || !StringUtils.isEqual(readTag(tag), SEQ_MAP))
+                throw new IORuntimeException("Unsupported type :" + (code == '!' ? "!" + tag : stringForCode(code)));
+            sequence(usingMap, (m, s) -> {
+                while (s.hasNextSequenceItem()) {
+                    s.marshallable(r -> {
+                        final K k = r.read(() -> "key")
+                                .object(kClazz);
+                        final V v = r.read(() -> "value")
+                                .object(vClass);
+                        m.put(k, v);
+                    });
+                }
+            });
             return usingMap;
         }
 
+        @Override
+        public <K extends ReadMarshallable, V extends ReadMarshallable> void typedMap(@NotNull Map<K, V> usingMap) {
+            usingMap.clear();
+            if (isNull())
+                return;
+
+            int code = peekCode();
+            if (code != '!' || !StringUtils.isEqual(readTag(tag), SEQ_MAP))
+                throw new IORuntimeException("Unsupported type " + (code == '!' ? "!" + tag : stringForCode(code)));
+            sequence(usingMap, (m, s) -> {
+                while (s.hasNextSequenceItem()) {
+                    s.marshallable(r -> {
+                        final K k = r.read(() -> "key").typedMarshallable();
+                        final V v = r.read(() -> "value").typedMarshallable();
+                        m.put(k, v);
+                    });
+                }
+            });
+        }
+
         @Override
         public boolean bool() {
-            consumeWhiteSpace();
-            StringBuilder sb = WireInternal.acquireStringBuilder();
-            if (textTo(sb) == null)
+            Boolean flag = bool0();
+            if (flag == null)
                 throw new NullPointerException("value is null");
+            return flag;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn bool(T t, @NotNull ObjBooleanConsumer<T> tFlag) {
+            tFlag.accept(t, bool0());
+            return JSONWire.this;
+        }
 
-            return StringUtils.isEqual(sb, "true");
+        @Nullable
+        private Boolean bool0() {
+            consumeWhiteSpace();
+            if (literal("true"))
+                return Boolean.TRUE;
+            if (literal("false"))
+                return Boolean.FALSE;
+            if (isNull())
+                return null;
+            throw new IORuntimeException("Expected true, false or null, was " + stringForCode(peekCode()));
         }
 
         public byte int8() {
@@ -1220,43 +1257,138 @@ public class JSONWire extends TextWire {
             return (int) l;
         }
 
+        private long unsigned(long max) {
+            long l = int64();
+            if (l > max || l < 0)
+                throw new IllegalStateException("value=" + l + ", is greater than " + max + " or less than zero");
+            return l;
+        }
+
+        /**
+         * @return the end of the number at the read position.
+         */
+        private long number() {
+            consumeWhiteSpace();
+            long position = bytes.readPosition();
+            long end = JSONTokenizer.skipNumber(bytes, position, bytes.readLimit());
+            if (end == position)
+                throw new IORuntimeException("Expected a number, was " + stringForCode(peekCode()));
+            return end;
+        }
+
+        private double parseDouble(long end) {
+            long limit = bytes.readLimit();
+            bytes.readLimit(end);
+            try {
+                return DoubleText.parse(bytes);
+            } finally {
+                bytes.readLimit(limit);
+            }
+        }
+
         @Override
         public long int64() {
-            consumeWhiteSpace();
-            return bytes.parseLong();
+            long end = number();
+            long start = bytes.readPosition();
+            long l;
+            if (JSONTokenizer.isInteger(bytes, start, end)) {
+                l = JSONTokenizer.parseLong(bytes, start, end);
+            } else {
+                double d = parseDouble(end);
+                l = (long) d;
+                if (l != d)
+                    throw new IllegalStateException("value=" + d + " is not a whole number");
+            }
+            bytes.readPosition(end);
+            endOfValue();
+            return l;
         }
 
         @Override
         public double float64() {
-            consumeWhiteSpace();
-            return bytes.parseDouble();
+            long end = number();
+            double d = parseDouble(end);
+            bytes.readPosition(end);
+            endOfValue();
+            return d;
         }
 
+        @NotNull
         @Override
-        public float float32() {
+        public <T> WireIn int8(@NotNull T t, @NotNull ObjByteConsumer<T> tb) {
+            tb.accept(t, int8());
+            return JSONWire.this;
+        }
 
-            double d = float64();
-            if ((double) (((float) d)) != d)
-                throw new IllegalStateException("value=" + d + " can not be represented as a float");
+        @NotNull
+        @Override
+        public <T> WireIn uint8(@NotNull T t, @NotNull ObjShortConsumer<T> ti) {
+            ti.accept(t, (short) unsigned(0xFF));
+            return JSONWire.this;
+        }
 
-            return (float) d;
+        @NotNull
+        @Override
+        public <T> WireIn int16(@NotNull T t, @NotNull ObjShortConsumer<T> ti) {
+            ti.accept(t, int16());
+            return JSONWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn uint16(@NotNull T t, @NotNull ObjIntConsumer<T> ti) {
+            ti.accept(t, (int) unsigned(0xFFFF));
+            return JSONWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn int32(@NotNull T t, @NotNull ObjIntConsumer<T> ti) {
+            ti.accept(t, int32());
+            return JSONWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn uint32(@NotNull T t, @NotNull ObjLongConsumer<T> tl) {
+            tl.accept(t, unsigned(0xFFFFFFFFL));
+            return JSONWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn int64(@NotNull T t, @NotNull ObjLongConsumer<T> tl) {
+            tl.accept(t, int64());
+            return JSONWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn float32(@NotNull T t, @NotNull ObjFloatConsumer<T> tf) {
+            tf.accept(t, float32());
+            return JSONWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn float64(@NotNull T t, @NotNull ObjDoubleConsumer<T> td) {
+            td.accept(t, float64());
+            return JSONWire.this;
         }
 
         /**
-         * @return true if !!null "", if {@code true} reads the !!null "" up to the next STOP, if
-         * {@code false} no  data is read  ( data is only peaked if {@code false} )
+         * @return true if null, or !!null "" as JSONWire used to write, was read.
          */
         public boolean isNull() {
             consumeWhiteSpace();
 
             if (peekStringIgnoreCase("!!null \"\"")) {
                 bytes.readSkip("!!null \"\"".length());
-                // discard the text after it.
-                //  text(WireInternal.acquireStringBuilder());
+                endOfValue();
                 return true;
             }
 
-            return false;
+            return literal("null");
         }
 
         @Override
@@ -1265,5 +1397,64 @@ public class JSONWire extends TextWire {
                             @NotNull Class<E> clazz) {
             return ObjectUtils.convertTo(clazz, object0(using, clazz));
         }
+
+        @Override
+        Object objectWithInferredType(@NotNull Class clazz) {
+            if (isNull())
+                return null;
+            switch (peekCode()) {
+                case '!':
+                    return object(null, typePrefix());
+                case '[':
+                    return readSequence(clazz);
+                case '{':
+                    return readObject();
+                case '"':
+                    return text();
+                case 't':
+                case 'f':
+                    return bool();
+                default:
+                    return readNumber();
+            }
+        }
+
+        /**
+         * @return a JSON object as a map of its field names to their values.
+         */
+        @NotNull
+        private Map<String, Object> readObject() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            marshallable(r -> {
+                StringBuilder sb = WireInternal.acquireStringBuilder();
+                while (JSONWire.this.hasMore()) {
+                    String key = WireInternal.INTERNER.intern(readField(sb));
+                    map.put(key, objectWithInferredType(Object.class));
+                }
+            });
+            return map;
+        }
+
+        /**
+         * @return a Long if the number is an integer which fits, otherwise a Double.
+         */
+        @Override
+        protected Object readNumber() {
+            long end = number();
+            long start = bytes.readPosition();
+            Object number = null;
+            if (JSONTokenizer.isInteger(bytes, start, end)) {
+                try {
+                    number = JSONTokenizer.parseLong(bytes, start, end);
+                } catch (IORuntimeException tooLarge) {
+                    // read as a double.
+                }
+            }
+            if (number == null)
+                number = parseDouble(end);
+            bytes.readPosition(end);
+            endOfValue();
+            return number;
+        }
     }
 }
@@ -0,0 +1,169 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+import static net.openhft.chronicle.wire.BinaryWire.toIntU30;
+
+/**
+ * Appends documents to a region of Bytes shared by any number of threads or processes, each with
+ * its own appender, without a lock.
+ * <p>
+ * A document is written to a buffer first so its length is known. A writer then claims space by
+ * a compareAndSwapInt of a NOT_READY header with that length where the header is 0, writes the
+ * document and swaps the header for the ready one. As claimed headers have a length, the other
+ * writers step over them without waiting.
+ * <p>
+ * The first 8 bytes of the region are a hint of where the tail is. Writers scan forward from
+ * it to the first free header and every writer moves it past the document it claimed, so a
+ * writer which stalls after claiming doesn't hold up the others. Headers are kept aligned by
+ * padding documents to a multiple of 4 bytes.
+ * <p>
+ * Readers use {@link #readDocument(WireIn, ReadMarshallable, ReadMarshallable)} which stops at
+ * the first document not yet written. If its writer died, {@link #abandon(Bytes, long)} marks
+ * the document as one readers skip; a writer which finds its document abandoned throws.
+ * <p>
+ * Only absolute offsets are used, so an appender doesn't change the positions of the Bytes.
+ */
+public class MultiWriterAppender {
+    static final int TAIL_HINT_LENGTH = 8;
+    // a claimed document which will never be written.
+    static final int ABANDONED = Wires.NOT_READY | Wires.META_DATA;
+
+    @NotNull
+    private final Bytes<?> bytes;
+    private final long start;
+    private final Bytes<?> buffer = Bytes.elasticByteBuffer();
+    @NotNull
+    private final Wire bufferWire;
+
+    /**
+     * @param bytes    the shared memory, zeroed from start when first used.
+     * @param start    where the region starts, a multiple of 8.
+     * @param wireType to write the documents with.
+     */
+    public MultiWriterAppender(@NotNull Bytes<?> bytes, long start, @NotNull Function<Bytes, Wire> wireType) {
+        if ((start & 7) != 0)
+            throw new IllegalArgumentException("start " + start + " must be a multiple of 8");
+        this.bytes = bytes;
+        this.start = start;
+        bufferWire = wireType.apply(buffer);
+    }
+
+    /**
+     * @return where the first document of the region is.
+     */
+    public long documentsStart() {
+        return start + TAIL_HINT_LENGTH;
+    }
+
+    /**
+     * @return the position of the document appended.
+     * @throws IllegalStateException if the region is full or the document was abandoned.
+     */
+    public long append(boolean metaData, @NotNull WriteMarshallable writer) {
+        buffer.clear();
+        writer.writeMarshallable(bufferWire);
+        // a length of 0 would read as not claimed.
+        if (buffer.writePosition() == 0)
+            bufferWire.addPadding(4);
+        else
+            bufferWire.writeAlignTo(4);
+        long length = buffer.readRemaining();
+        if ((length & 3) != 0)
+            throw new IllegalStateException(bufferWire.getClass().getSimpleName() + " can't pad a document to 4 bytes");
+        int claimed = Wires.NOT_READY | toIntU30(length, "Document length %,d out of 30-bit int range.");
+
+        long position = claim(claimed, length);
+        bytes.write(position + 4, buffer, buffer.readPosition(), length);
+        int header = (metaData ? Wires.META_DATA : 0) | (int) length;
+        if (!bytes.compareAndSwapInt(position, claimed, header))
+            throw new IllegalStateException("The document at " + position + " was abandoned before it was written");
+        return position;
+    }
+
+    private long claim(int claimed, long length) {
+        long limit = bytes.realCapacity();
+        long position = Math.max(bytes.readVolatileLong(start), documentsStart());
+        while (position + 4 <= limit) {
+            int header = bytes.readVolatileInt(position);
+            if (header != 0) {
+                position += 4 + Wires.lengthOf(header);
+                continue;
+            }
+            if (position + 4 + length > limit)
+                break;
+            // otherwise another writer claimed it first.
+            if (bytes.compareAndSwapInt(position, 0, claimed)) {
+                advanceTail(position + 4 + length);
+                return position;
+            }
+        }
+        throw new IllegalStateException("No space for a document of " + length + " bytes at " + position);
+    }
+
+    private void advanceTail(long tail) {
+        for (long hint; (hint = bytes.readVolatileLong(start)) < tail; )
+            if (bytes.compareAndSwapLong(start, hint, tail))
+                return;
+    }
+
+    /**
+     * Read the next document like WireIn.readDocument, stopping at one which is claimed but not
+     * written and skipping those abandoned. The readPosition is left at the document not written.
+     */
+    public static boolean readDocument(@NotNull WireIn wire,
+                                       @Nullable ReadMarshallable metaDataConsumer,
+                                       @Nullable ReadMarshallable dataConsumer) {
+        Bytes<?> bytes = wire.bytes();
+        boolean read = false;
+        while (bytes.readRemaining() >= 4) {
+            int header = bytes.readVolatileInt(bytes.readPosition());
+            if ((header & ABANDONED) == ABANDONED) {
+                bytes.readSkip(4 + Wires.lengthOf(header));
+                continue;
+            }
+            if (header == 0 || !Wires.isReady(header))
+                return read;
+            if (Wires.isData(header))
+                return WireInternal.readData(wire, null, dataConsumer);
+            WireInternal.readData(wire, metaDataConsumer, null);
+            if (dataConsumer == null)
+                return true;
+            read = true;
+        }
+        return read;
+    }
+
+    /**
+     * Recover from a writer which died after claiming the document at this position, e.g. when
+     * readDocument has stopped there for longer than any writer takes. Readers skip it from then
+     * on, and the writer, if it was only slow, throws rather than publish it.
+     *
+     * @return true if the document was claimed and not written, and is now abandoned.
+     */
+    public static boolean abandon(@NotNull Bytes<?> bytes, long position) {
+        int header = bytes.readVolatileInt(position);
+        return (header & ABANDONED) == Wires.NOT_READY
+                && Wires.lengthOf(header) > 0
+                && bytes.compareAndSwapInt(position, header, header | Wires.META_DATA);
+    }
+}
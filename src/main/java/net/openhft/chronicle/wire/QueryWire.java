@@ -394,7 +394,7 @@ public class QueryWire extends TextWire {
         @Override
         public WireOut float32(float f) {
             prependSeparator();
-            bytes.append(f);
+            DoubleText.append(bytes, f);
             elementSeparator();
 
             return QueryWire.this;
@@ -404,7 +404,7 @@ public class QueryWire extends TextWire {
         @Override
         public WireOut float64(double d) {
             prependSeparator();
-            bytes.append(d);
+            DoubleText.append(bytes, d);
             elementSeparator();
 
             return QueryWire.this;
@@ -40,9 +40,9 @@ import java.util.function.*;
  * This format writes just the data, without meta data.
  */
 public class RawWire implements Wire, InternalWireIn {
-    private final Bytes bytes;
-    private final RawValueOut valueOut = new RawValueOut();
-    private final RawValueIn valueIn = new RawValueIn();
+    final Bytes bytes;
+    private final RawValueOut valueOut = createValueOut();
+    private final RawValueIn valueIn = createValueIn();
     boolean use8bit;
     @Nullable
     private
@@ -58,6 +58,16 @@ public class RawWire implements Wire, InternalWireIn {
         this.use8bit = use8bit;
     }
 
+    @NotNull
+    protected RawValueOut createValueOut() {
+        return new RawValueOut();
+    }
+
+    @NotNull
+    protected RawValueIn createValueIn() {
+        return new RawValueIn();
+    }
+
     @Override
     public boolean isReady() {
         return ready;
@@ -78,6 +88,15 @@ public class RawWire implements Wire, InternalWireIn {
         }
     }
 
+    /**
+     * Raw Wire has neither field names nor types, so it can only be read knowing its shape.
+     */
+    @NotNull
+    @Override
+    public TokenCursor tokens() {
+        throw new UnsupportedOperationException("Raw Wire has no field names or types to read as tokens.");
+    }
+
     @NotNull
     @Override
     public ValueIn read() {
@@ -624,6 +643,12 @@ public class RawWire implements Wire, InternalWireIn {
             return RawWire.this;
         }
 
+        @NotNull
+        @Override
+        public WireIn skipValue() {
+            throw new UnsupportedOperationException("RawWire has no types to say how long a value is");
+        }
+
         @Override
         public long readLength() {
             return bytes.readStopBit();
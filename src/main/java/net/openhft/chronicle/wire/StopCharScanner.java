@@ -0,0 +1,169 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses text up to a stop char a word at a time, for the common case of a token without
+ * escapes or multi-byte characters.
+ * <p>
+ * The bytes a tester could stop on are found once by asking it about every byte. A parse scans
+ * eight bytes at a time for one of them, asks the tester only about those, and copies the bytes
+ * before the stop char in bulk. A backslash for an escaping tester, or a multi-byte character
+ * when parsing UTF-8, is left to the tester, parsing from the start of the token.
+ */
+final class StopCharScanner {
+    // with more stop chars than this, a table lookup per byte is quicker than matching each.
+    private static final int MAX_PATTERNS = 8;
+    private static final Map<StopCharTester, StopCharScanner> SCANNERS = new ConcurrentHashMap<>();
+    private static final Map<StopCharsTester, StopCharScanner> CHARS_SCANNERS = new ConcurrentHashMap<>();
+
+    @NotNull
+    private final StopCharsTester tester;
+    private final boolean escaping;
+    private final boolean[] candidates = new boolean[256];
+    @Nullable
+    private final long[] patterns;
+
+    private StopCharScanner(@NotNull StopCharsTester tester, boolean escaping) {
+        this.tester = tester;
+        this.escaping = escaping;
+        int count = 0;
+        for (int ch = 0; ch < 256; ch++) {
+            for (int ch2 = -1; ch2 < 256; ch2++) {
+                if (tester.isStopChar(ch, ch2)) {
+                    candidates[ch] = true;
+                    count++;
+                    break;
+                }
+            }
+        }
+        if (escaping && !candidates['\\']) {
+            candidates['\\'] = true;
+            count++;
+        }
+        if (count > MAX_PATTERNS) {
+            patterns = null;
+        } else {
+            patterns = new long[count];
+            for (int ch = 0, i = 0; ch < 256; ch++)
+                if (candidates[ch])
+                    patterns[i++] = ByteScanner.pattern(ch);
+        }
+    }
+
+    /**
+     * @param tester a tester without state, which escaping() can be applied to.
+     */
+    @NotNull
+    static StopCharScanner escaping(@NotNull StopCharTester tester) {
+        return new StopCharScanner((ch, ch2) -> tester.isStopChar(ch), true);
+    }
+
+    @NotNull
+    static StopCharScanner escaping(@NotNull StopCharsTester tester) {
+        return new StopCharScanner(tester, true);
+    }
+
+    /**
+     * @return a shared scanner for a tester which is an enum, or null as others can have state.
+     */
+    @Nullable
+    static StopCharScanner of(@NotNull StopCharTester tester) {
+        if (!(tester instanceof Enum))
+            return null;
+        // get() first, as computeIfAbsent can lock and the lambda is only needed the first time.
+        StopCharScanner scanner = SCANNERS.get(tester);
+        return scanner != null ? scanner : SCANNERS.computeIfAbsent(tester, StopCharScanner::create);
+    }
+
+    @Nullable
+    static StopCharScanner of(@NotNull StopCharsTester tester) {
+        if (!(tester instanceof Enum))
+            return null;
+        StopCharScanner scanner = CHARS_SCANNERS.get(tester);
+        return scanner != null ? scanner : CHARS_SCANNERS.computeIfAbsent(tester, t -> new StopCharScanner(t, false));
+    }
+
+    @NotNull
+    private static StopCharScanner create(@NotNull StopCharTester tester) {
+        return new StopCharScanner((ch, ch2) -> tester.isStopChar(ch), false);
+    }
+
+    /**
+     * Replace the contents of a with the text up to the stop char, and read past the stop char,
+     * as parse8bit and parseUTF do.
+     *
+     * @return false, having read nothing, if the text has to be parsed by the tester.
+     */
+    <ACS extends Appendable & CharSequence> boolean tryParse(@NotNull Bytes<?> bytes, @NotNull ACS a, boolean use8bit) {
+        long start = bytes.readPosition();
+        long limit = bytes.readLimit();
+        if (start >= limit)
+            return false;
+        for (long position = start; ; position++) {
+            position = indexOfCandidate(bytes, position, limit, !use8bit);
+            if (position >= limit) {
+                copy(bytes, start, limit, a);
+                bytes.readPosition(limit);
+                return true;
+            }
+            int ch = bytes.readUnsignedByte(position);
+            if ((ch >= 0x80 && !use8bit) || (escaping && ch == '\\'))
+                return false;
+            int ch2 = position + 1 < limit ? bytes.readUnsignedByte(position + 1) : -1;
+            if (tester.isStopChar(ch, ch2)) {
+                copy(bytes, start, position, a);
+                bytes.readPosition(position + 1);
+                return true;
+            }
+        }
+    }
+
+    private long indexOfCandidate(@NotNull BytesStore bytes, long position, long limit, boolean stopAtNonAscii) {
+        long[] patterns = this.patterns;
+        if (patterns != null) {
+            for (; position + 8 <= limit; position += 8) {
+                long word = bytes.readLong(position);
+                long flags = stopAtNonAscii ? ByteScanner.nonAscii(word) : 0;
+                for (long pattern : patterns)
+                    flags |= ByteScanner.matches(word, pattern);
+                if (flags != 0)
+                    return position + ByteScanner.firstFlagged(flags);
+            }
+        }
+        for (; position < limit; position++) {
+            int ch = bytes.readUnsignedByte(position);
+            if (candidates[ch] || (stopAtNonAscii && ch >= 0x80))
+                return position;
+        }
+        return limit;
+    }
+
+    private static void copy(@NotNull BytesStore bytes, long start, long end, @NotNull Appendable a) {
+        AppendableUtil.setLength(a, 0);
+        if (a instanceof Bytes)
+            ((Bytes) a).write(bytes, start, end - start);
+        else
+            AppendableUtil.append(a, bytes, start, end - start);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The strings a BinaryWire has written, by slot, so a string written again can be written as a
+ * STRING_REF to its slot.
+ * <p>
+ * The table has a fixed number of slots. When it is full, adding a string replaces either the
+ * oldest string, or with leastRecentlyUsed, the first string in the same order which hasn't been
+ * referenced since it was last passed over (a clock). Slots are written explicitly, so the reader
+ * doesn't need to know the size or eviction used.
+ * <p>
+ * Strings added since the last definitions were written are pending, and aren't replaced until
+ * they have been defined.
+ */
+final class StringTable {
+    // the event of the meta-data document defining strings by slot.
+    static final String STRINGS = "strings";
+    // shorter strings are as short as a reference.
+    static final int MIN_LENGTH = 4;
+
+    private final int maxLength;
+    private final boolean leastRecentlyUsed;
+    private final String[] strings;
+    private final int[] hashes;
+    private final boolean[] referenced;
+    private final boolean[] pending;
+    private final int[] pendingSlots;
+    private int pendingCount;
+    // open addressing of slot + 1 by hash, 0 is empty.
+    private final int[] index;
+    private final int mask;
+    private int size;
+    private int next;
+
+    StringTable(int capacity, int maxLength, boolean leastRecentlyUsed) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity " + capacity + " must be positive");
+        this.maxLength = maxLength;
+        this.leastRecentlyUsed = leastRecentlyUsed;
+        strings = new String[capacity];
+        hashes = new int[capacity];
+        referenced = new boolean[capacity];
+        pending = new boolean[capacity];
+        pendingSlots = new int[capacity];
+        index = new int[Maths.nextPower2(capacity * 2, 16)];
+        mask = index.length - 1;
+    }
+
+    boolean accepts(@NotNull CharSequence s) {
+        int length = s.length();
+        return length >= MIN_LENGTH && length <= maxLength;
+    }
+
+    /**
+     * @return the slot of this string or -1 if it isn't in the table.
+     */
+    int slotOf(@NotNull CharSequence s) {
+        int hash = FieldOffsetIndex.nameCode(s);
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int slot = index[i] - 1;
+            if (slot < 0)
+                return -1;
+            if (hashes[slot] == hash && contentEquals(strings[slot], s)) {
+                referenced[slot] = true;
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Add a string which isn't in the table, replacing another if the table is full.
+     *
+     * @return the slot it was added to, or -1 if every slot is pending.
+     */
+    int add(@NotNull CharSequence s) {
+        int slot;
+        if (size < strings.length) {
+            slot = size++;
+        } else if (pendingCount == strings.length) {
+            return -1;
+        } else {
+            slot = victim();
+            remove(slot);
+        }
+        pending[slot] = true;
+        pendingSlots[pendingCount++] = slot;
+        String string = s.toString();
+        int hash = FieldOffsetIndex.nameCode(string);
+        strings[slot] = string;
+        hashes[slot] = hash;
+        referenced[slot] = false;
+        int i = hash & mask;
+        while (index[i] != 0)
+            i = (i + 1) & mask;
+        index[i] = slot + 1;
+        return slot;
+    }
+
+    private int victim() {
+        while (true) {
+            int slot = next;
+            next = next + 1 == strings.length ? 0 : next + 1;
+            if (pending[slot])
+                continue;
+            if (!leastRecentlyUsed || !referenced[slot])
+                return slot;
+            referenced[slot] = false;
+        }
+    }
+
+    private void remove(int slot) {
+        int i = hashes[slot] & mask;
+        while (index[i] != slot + 1)
+            i = (i + 1) & mask;
+        // shift back any entries which would no longer be found.
+        for (int j = (i + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            int home = hashes[index[j] - 1] & mask;
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                index[i] = index[j];
+                i = j;
+            }
+        }
+        index[i] = 0;
+        strings[slot] = null;
+    }
+
+    boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    int pendingCount() {
+        return pendingCount;
+    }
+
+    int pendingSlot(int n) {
+        return pendingSlots[n];
+    }
+
+    @NotNull
+    String string(int slot) {
+        return strings[slot];
+    }
+
+    void pendingDefined() {
+        for (int i = 0; i < pendingCount; i++)
+            pending[pendingSlots[i]] = false;
+        pendingCount = 0;
+    }
+
+    private static boolean contentEquals(@NotNull String string, @NotNull CharSequence s) {
+        if (s instanceof String)
+            return string.equals(s);
+        int length = string.length();
+        if (s.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (string.charAt(i) != s.charAt(i))
+                return false;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(strings, null);
+        Arrays.fill(hashes, 0);
+        Arrays.fill(referenced, false);
+        Arrays.fill(index, 0);
+        Arrays.fill(pending, false);
+        size = next = pendingCount = 0;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.util.ObjBooleanConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+import static net.openhft.chronicle.wire.BinaryWireCode.*;
+
+/**
+ * A BinaryWire over the same bytes as another, which a CompiledBinaryReader reads messages with
+ * while it records or replays a BinaryTemplate, so BinaryWire itself doesn't check for one.
+ */
+final class TemplateBinaryWire extends BinaryWire {
+    @NotNull
+    private final BinaryWire wire;
+    @NotNull
+    private final Bytes<?> bytes;
+    private final TemplateValueIn templateValueIn = new TemplateValueIn();
+    @Nullable
+    private BinaryTemplate template;
+    private boolean recording;
+    private long templateStart;
+    private int templateSlot;
+
+    TemplateBinaryWire(@NotNull BinaryWire wire) {
+        super(wire.bytes(), false, wire.numericFields(), wire.fieldLess());
+        this.wire = wire;
+        bytes = wire.bytes();
+    }
+
+    boolean isFor(@NotNull BinaryWire wire) {
+        return this.wire == wire;
+    }
+
+    @NotNull
+    @Override
+    public ValueIn read(@NotNull WireKey key) {
+        BinaryTemplate template = this.template;
+        if (template == null)
+            return super.read(key);
+        if (recording) {
+            long position = bytes.readPosition();
+            ValueIn in = super.read(key);
+            consumeSpecial();
+            template.add(key, position - templateStart, bytes.readPosition() - templateStart);
+            return in;
+        }
+        int slot = templateSlot;
+        if (slot < template.size() && template.isKey(slot, key)) {
+            templateSlot++;
+            bytes.readPosition(templateStart + template.valuePosition(slot));
+            return templateValueIn;
+        }
+        // not read in the order recorded, read the rest the usual way.
+        this.template = null;
+        if (slot < template.size())
+            bytes.readPosition(templateStart + template.fieldPosition(slot));
+        return super.read(key);
+    }
+
+    /**
+     * Read the object the usual way, from the readPosition to the readLimit, recording where each
+     * field was found.
+     */
+    @NotNull
+    BinaryTemplate record(@NotNull ReadMarshallable object) {
+        long start = bytes.readPosition();
+        BinaryTemplate template = new BinaryTemplate();
+        read(template, true, start, object);
+        template.complete(bytes, start, bytes.readLimit(), bytes.readPosition() - start);
+        return template;
+    }
+
+    /**
+     * Read the object using the positions recorded in a template which matches the bytes from
+     * readPosition.
+     */
+    void replay(@NotNull BinaryTemplate template, @NotNull ReadMarshallable object) {
+        long start = bytes.readPosition();
+        if (read(template, false, start, object))
+            bytes.readPosition(start + template.end());
+    }
+
+    /**
+     * @return true if the template was followed to the end.
+     */
+    private boolean read(@NotNull BinaryTemplate template, boolean recording, long start, @NotNull ReadMarshallable object) {
+        readStateFrom(wire);
+        this.template = template;
+        this.recording = recording;
+        templateStart = start;
+        templateSlot = 0;
+        try {
+            object.readMarshallable(this);
+            return this.template != null;
+        } finally {
+            this.template = null;
+            wire.readStateFrom(this);
+        }
+    }
+
+    /**
+     * Used when the template has matched, so the value is known to be at the readPosition and
+     * numbers and booleans can be read without checking for padding, text or the end of the bytes.
+     */
+    class TemplateValueIn extends BinaryValueIn {
+        private boolean isFixedInt(int code) {
+            return code >= UINT8 && code <= INT64;
+        }
+
+        private long fixedInt(long pos, int code) {
+            switch (code) {
+                case INT8:
+                    bytes.readPosition(pos + 2);
+                    return bytes.readByte(pos + 1);
+                case UINT8:
+                    bytes.readPosition(pos + 2);
+                    return bytes.readUnsignedByte(pos + 1);
+                case INT16:
+                    bytes.readPosition(pos + 3);
+                    return bytes.readShort(pos + 1);
+                case UINT16:
+                    bytes.readPosition(pos + 3);
+                    return bytes.readUnsignedShort(pos + 1);
+                case INT32:
+                    bytes.readPosition(pos + 5);
+                    return bytes.readInt(pos + 1);
+                case UINT32:
+                    bytes.readPosition(pos + 5);
+                    return bytes.readUnsignedInt(pos + 1);
+                case INT64:
+                    bytes.readPosition(pos + 9);
+                    return bytes.readLong(pos + 1);
+                default:
+                    throw new AssertionError(stringForCode(code));
+            }
+        }
+
+        @Override
+        public long int64() {
+            long pos = bytes.readPosition();
+            int code = bytes.readUnsignedByte(pos);
+            if (isSmallInt(code)) {
+                bytes.readPosition(pos + 1);
+                return code;
+            }
+            return isFixedInt(code) ? fixedInt(pos, code) : super.int64();
+        }
+
+        @Override
+        public int int32() {
+            int code = bytes.readUnsignedByte(bytes.readPosition());
+            if (!isSmallInt(code) && !isFixedInt(code))
+                return super.int32();
+            long value = int64();
+            if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+                throw new IllegalStateException();
+            return (int) value;
+        }
+
+        @Override
+        public double float64() {
+            long pos = bytes.readPosition();
+            int code = bytes.readUnsignedByte(pos);
+            switch (code) {
+                case FLOAT64:
+                    bytes.readPosition(pos + 9);
+                    return bytes.readDouble(pos + 1);
+                case FLOAT32:
+                    bytes.readPosition(pos + 5);
+                    return bytes.readFloat(pos + 1);
+                default:
+                    if (isSmallInt(code) || isFixedInt(code))
+                        return int64();
+                    return super.float64();
+            }
+        }
+
+        @Override
+        public boolean bool() {
+            long pos = bytes.readPosition();
+            int code = bytes.readUnsignedByte(pos);
+            if (code != TRUE && code != FALSE)
+                return super.bool();
+            bytes.readPosition(pos + 1);
+            return code == TRUE;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn bool(T t, @NotNull ObjBooleanConsumer<T> tFlag) {
+            int code = bytes.readUnsignedByte(bytes.readPosition());
+            if (code != TRUE && code != FALSE)
+                return super.bool(t, tFlag);
+            tFlag.accept(t, bool());
+            return TemplateBinaryWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn int32(@NotNull T t, @NotNull ObjIntConsumer<T> ti) {
+            int code = bytes.readUnsignedByte(bytes.readPosition());
+            if (!isSmallInt(code) && !isFixedInt(code))
+                return super.int32(t, ti);
+            ti.accept(t, (int) int64());
+            return TemplateBinaryWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn int64(@NotNull T t, @NotNull ObjLongConsumer<T> tl) {
+            int code = bytes.readUnsignedByte(bytes.readPosition());
+            if (!isSmallInt(code) && !isFixedInt(code))
+                return super.int64(t, tl);
+            tl.accept(t, int64());
+            return TemplateBinaryWire.this;
+        }
+
+        @NotNull
+        @Override
+        public <T> WireIn float64(@NotNull T t, @NotNull ObjDoubleConsumer<T> td) {
+            int code = bytes.readUnsignedByte(bytes.readPosition());
+            if (code != FLOAT64 && code != FLOAT32 && !isSmallInt(code) && !isFixedInt(code))
+                return super.float64(t, td);
+            td.accept(t, float64());
+            return TemplateBinaryWire.this;
+        }
+    }
+}
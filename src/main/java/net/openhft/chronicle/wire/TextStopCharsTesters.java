@@ -31,4 +31,11 @@ enum TextStopCharsTesters implements StopCharsTester {
             return (ch == ':' || ch == ',') && (ch2 <= ' ' || ch2 == '"');
         }
     },
+    END_OF_FLOW_TEXT {
+        @Override
+        public boolean isStopChar(int ch, int ch2) throws IllegalStateException {
+            // inside [ ] or { } a comma or closing bracket always ends a plain scalar.
+            return ch == ',' || ch == ']' || END_OF_TEXT.isStopChar(ch, ch2);
+        }
+    },
 }
@@ -17,7 +17,6 @@ package net.openhft.chronicle.wire;
 
 import net.openhft.chronicle.bytes.*;
 import net.openhft.chronicle.core.Maths;
-import net.openhft.chronicle.core.io.IOTools;
 import net.openhft.chronicle.core.pool.ClassAliasPool;
 import net.openhft.chronicle.core.util.*;
 import net.openhft.chronicle.core.values.IntValue;
@@ -58,6 +57,12 @@ public class TextWire implements Wire, InternalWireIn {
     static final ThreadLocal<StopCharTester> ESCAPED_QUOTES = ThreadLocal.withInitial(() -> StopCharTesters.QUOTES.escaping());
     static final ThreadLocal<StopCharTester> ESCAPED_SINGLE_QUOTES = ThreadLocal.withInitial(() -> StopCharTesters.SINGLE_QUOTES.escaping());
     static final ThreadLocal<StopCharsTester> ESCAPED_END_OF_TEXT = ThreadLocal.withInitial(() -> TextStopCharsTesters.END_OF_TEXT.escaping());
+    static final StopCharScanner QUOTES_SCANNER = StopCharScanner.escaping(StopCharTesters.QUOTES);
+    static final StopCharScanner SINGLE_QUOTES_SCANNER = StopCharScanner.escaping(StopCharTesters.SINGLE_QUOTES);
+    static final StopCharScanner END_OF_TEXT_SCANNER = StopCharScanner.escaping(TextStopCharsTesters.END_OF_TEXT);
+    static final StopCharScanner END_OF_FLOW_TEXT_SCANNER = StopCharScanner.of(TextStopCharsTesters.END_OF_FLOW_TEXT);
+    private static final long DOUBLE_QUOTES = ByteScanner.pattern('"');
+    private static final long SINGLE_QUOTES = ByteScanner.pattern('\'');
     static final BytesStore COMMA_SPACE = BytesStore.wrap(", ");
     static final BytesStore COMMA_NEW_LINE = BytesStore.wrap(",\n");
     static final BytesStore NEW_LINE = BytesStore.wrap("\n");
@@ -78,6 +83,15 @@ public class TextWire implements Wire, InternalWireIn {
     protected final boolean use8bit;
     protected long lineStart = 0;
     private boolean ready;
+    private boolean unorderedFields;
+    @Nullable
+    private TextTokenCursor tokens;
+    // one index per level of nested marshallable, created on demand.
+    private FieldOffsetIndex[] fieldIndexes;
+    int fieldIndexDepth;
+    // set when reading a file too large to map.
+    @Nullable
+    FileInput input;
 
     public TextWire(Bytes bytes, boolean use8bit) {
         this.bytes = bytes;
@@ -88,8 +102,15 @@ public class TextWire implements Wire, InternalWireIn {
         this(bytes, false);
     }
 
+    /**
+     * Read a file, memory mapped rather than loaded onto the heap. A file over 2 GB is read
+     * 16 MB at a time, so its records must be no larger than that.
+     */
     public static TextWire fromFile(String name) throws IOException {
-        return new TextWire(Bytes.wrapForRead(IOTools.readFile(name)), true);
+        FileInput input = FileInput.open(name, false);
+        TextWire wire = new TextWire(input.bytes(), true);
+        wire.input = input;
+        return wire;
     }
 
     @NotNull
@@ -173,6 +194,20 @@ public class TextWire implements Wire, InternalWireIn {
         this.ready = ready;
     }
 
+    public boolean unorderedFields() {
+        return unorderedFields;
+    }
+
+    /**
+     * When enabled, a read(WireKey) for a key which is not next scans the current { } block once,
+     * recording where each key starts, and reads it from there instead of throwing.
+     */
+    @NotNull
+    public TextWire unorderedFields(boolean unorderedFields) {
+        this.unorderedFields = unorderedFields;
+        return this;
+    }
+
     @Override
     public void copyTo(@NotNull WireOut wire) {
         wire.bytes().write(bytes, bytes().readPosition(), bytes().readLimit());
@@ -181,6 +216,7 @@ public class TextWire implements Wire, InternalWireIn {
     @NotNull
     @Override
     public ValueIn read() {
+        refill();
         readField(WireInternal.acquireStringBuilder());
         return valueIn;
     }
@@ -197,7 +233,8 @@ public class TextWire implements Wire, InternalWireIn {
             if (ch == '"') {
                 bytes.readSkip(1);
 
-                parseUntil(sb, getEscapingQuotes());
+                if (!QUOTES_SCANNER.tryParse(bytes, sb, use8bit))
+                    parseUntil(sb, getEscapingQuotes());
 
                 consumeWhiteSpace();
                 ch = readCode();
@@ -208,7 +245,7 @@ public class TextWire implements Wire, InternalWireIn {
                 sb.setLength(0);
                 return sb;
 
-            } else {
+            } else if (!END_OF_TEXT_SCANNER.tryParse(bytes, sb, use8bit)) {
                 parseUntil(sb, getEscapingEndOfText());
             }
             unescape(sb);
@@ -266,7 +303,10 @@ public class TextWire implements Wire, InternalWireIn {
     }
 
     int peekCode() {
-        return bytes.peekUnsignedByte();
+        int code = bytes.peekUnsignedByte();
+        if (code < 0 && input != null)
+            input.endOfBytes();
+        return code;
     }
 
     /**
@@ -297,31 +337,207 @@ public class TextWire implements Wire, InternalWireIn {
     }
 
     private int readCode() {
-        if (bytes.readRemaining() < 1)
+        if (bytes.readRemaining() < 1) {
+            if (input != null)
+                input.endOfBytes();
             return -1;
+        }
         return bytes.readUnsignedByte();
     }
 
     @NotNull
     @Override
     public ValueIn read(@NotNull WireKey key) {
+        refill();
         long position = bytes.readPosition();
         StringBuilder sb = readField(WireInternal.acquireStringBuilder());
-        if (sb.length() == 0 || StringUtils.isEqual(sb, key.name()))
+        if (sb.length() == 0) {
+            // at the end of the block the key could still be earlier in it.
+            if (unorderedFields && bytes.readRemaining() == 0)
+                readIndexedField(key, position);
+            return valueIn;
+        }
+        if (StringUtils.isEqual(sb, key.name()))
             return valueIn;
         bytes.readPosition(position);
+        if (unorderedFields && readIndexedField(key, position))
+            return valueIn;
         throw new UnsupportedOperationException("Unordered fields not supported yet. key=" + key
                 .name() + ", was=" + sb + ", data='" + sb + "'");
     }
 
+    /**
+     * Looks the key up in the index of the current block, leaving the position at its value if found.
+     */
+    boolean readIndexedField(@NotNull WireKey key, long position) {
+        long limit = bytes.readLimit();
+        FieldOffsetIndex index = fieldIndex(fieldIndexDepth);
+        if (!index.isFor(position, limit))
+            index.reset(position, limit);
+        if (!index.isBuilt()) {
+            buildFieldIndex(index);
+        } else if (!findIndexedField(index, key)) {
+            // the index might be for an earlier document which had the same limit.
+            index.reset(position, limit);
+            buildFieldIndex(index);
+        } else {
+            return true;
+        }
+        if (findIndexedField(index, key))
+            return true;
+        bytes.readPosition(position);
+        return false;
+    }
+
+    @NotNull
+    FieldOffsetIndex fieldIndex(int depth) {
+        if (fieldIndexes == null)
+            fieldIndexes = new FieldOffsetIndex[4];
+        else if (depth >= fieldIndexes.length)
+            fieldIndexes = Arrays.copyOf(fieldIndexes, depth * 2);
+        FieldOffsetIndex index = fieldIndexes[depth];
+        if (index == null)
+            fieldIndexes[depth] = index = new FieldOffsetIndex();
+        return index;
+    }
+
+    /**
+     * Called once the read limit has been set to the end of a { } block.
+     *
+     * @return true if the caller needs to decrement fieldIndexDepth when the block has been read.
+     */
+    boolean enterFieldScope(long limit) {
+        if (!unorderedFields)
+            return false;
+        fieldIndex(++fieldIndexDepth).reset(bytes.readPosition(), limit);
+        return true;
+    }
+
+    private void buildFieldIndex(@NotNull FieldOffsetIndex index) {
+        bytes.readPosition(index.start());
+        StringBuilder sb = WireInternal.acquireStringBuilder();
+        while (true) {
+            consumeWhiteSpace();
+            long offset = bytes.readPosition();
+            int ch = peekCode();
+            if (ch < 0 || ch == '}' || ch == ']')
+                break;
+            readField(sb);
+            if (sb.length() == 0 || bytes.readPosition() == offset)
+                break;
+            index.add(FieldOffsetIndex.nameCode(sb), offset);
+            skipValue();
+        }
+        index.built();
+    }
+
+    private boolean findIndexedField(@NotNull FieldOffsetIndex index, @NotNull WireKey key) {
+        CharSequence name = key.name();
+        int code = FieldOffsetIndex.nameCode(name);
+        for (int slot = index.firstSlot(code); ; slot = index.nextSlot(slot)) {
+            long offset = index.offset(slot);
+            if (offset == FieldOffsetIndex.NOT_FOUND)
+                return false;
+            if (index.code(slot) == code) {
+                bytes.readPosition(offset);
+                if (StringUtils.isEqual(readField(WireInternal.acquireStringBuilder()), name))
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Skip the whitespace, and any commas, before the next token of a flow map or sequence.
+     */
+    void skipSeparators() {
+        consumeWhiteSpace();
+    }
+
+    /**
+     * Step over the next value by counting brackets and quotes rather than decoding it.
+     */
+    void skipValue() {
+        consumeWhiteSpace();
+        int ch = peekCode();
+        if (ch == '!') {
+            // a type prefix applies to the value which follows it.
+            while (peekCode() > ' ')
+                bytes.readSkip(1);
+            consumeWhiteSpace();
+            ch = peekCode();
+        }
+        switch (ch) {
+            case '{':
+            case '[':
+                skipBlock();
+                break;
+            case '"':
+            case '\'':
+                bytes.readPosition(skipQuoted(ch, bytes.readPosition() + 1, bytes.readLimit()));
+                break;
+            default:
+                while (true) {
+                    ch = peekCode();
+                    if (ch < 0 || ch == '\n' || ch == '\r' || ch == '}' || ch == ']')
+                        break;
+                    if (ch == ',') {
+                        int ch2 = bytes.readRemaining() > 1 ? bytes.readUnsignedByte(bytes.readPosition() + 1) : -1;
+                        if (ch2 <= ' ' || ch2 == '"')
+                            break;
+                    }
+                    bytes.readSkip(1);
+                }
+                break;
+        }
+    }
+
+    private void skipBlock() {
+        long position = bytes.readPosition() + 1, limit = bytes.readLimit();
+        int depth = 1;
+        while (depth > 0) {
+            long next = ByteScanner.indexOfBracket(bytes, position, limit, DOUBLE_QUOTES, SINGLE_QUOTES);
+            if (next >= limit) {
+                position = limit;
+                break;
+            }
+            int ch = bytes.readUnsignedByte(next);
+            position = next + 1;
+            if (ch == '"' || ch == '\'')
+                position = skipQuoted(ch, position, limit);
+            else if (ch == '{' || ch == '[')
+                depth++;
+            else
+                depth--;
+        }
+        bytes.readPosition(position);
+    }
+
+    /**
+     * @return the position after the closing quote, or limit if there isn't one.
+     */
+    private long skipQuoted(int quote, long position, long limit) {
+        // only a double quoted string has escapes, a '' in a single quoted one is two strings back to back.
+        if (quote == '"')
+            return JSONTokenizer.skipString(bytes, position, limit);
+        long end = ByteScanner.indexOf(bytes, position, limit, SINGLE_QUOTES, SINGLE_QUOTES);
+        return end >= limit ? limit : end + 1;
+    }
+
     @NotNull
     @Override
     public ValueIn read(@NotNull StringBuilder name) {
+        refill();
         consumeWhiteSpace();
         readField(name);
         return valueIn;
     }
 
+    @Override
+    public boolean readDocument(@Nullable ReadMarshallable metaDataConsumer, @Nullable ReadMarshallable dataConsumer) {
+        refill();
+        return WireInternal.readData(this, metaDataConsumer, dataConsumer);
+    }
+
     @NotNull
     @Override
     public ValueIn getValueIn() {
@@ -337,6 +553,9 @@ public class TextWire implements Wire, InternalWireIn {
     @Override
     public void clear() {
         bytes.clear();
+        fieldIndexDepth = 0;
+        if (fieldIndexes != null)
+            fieldIndex(0).reset(FieldOffsetIndex.NOT_FOUND, FieldOffsetIndex.NOT_FOUND);
     }
 
     @NotNull
@@ -347,11 +566,27 @@ public class TextWire implements Wire, InternalWireIn {
 
     @Override
     public boolean hasMore() {
+        refill();
         consumeWhiteSpace();
 
         return bytes.readRemaining() > 0;
     }
 
+    /**
+     * Read more of a file too large to map, between records.
+     */
+    void refill() {
+        if (input == null)
+            return;
+        long shift = input.refill();
+        if (shift == 0)
+            return;
+        lineStart -= shift;
+        // the top level index is of what was in the buffer before.
+        if (fieldIndexes != null)
+            fieldIndex(0).reset(FieldOffsetIndex.NOT_FOUND, FieldOffsetIndex.NOT_FOUND);
+    }
+
     @NotNull
     @Override
     public ValueOut write() {
@@ -494,6 +729,9 @@ public class TextWire implements Wire, InternalWireIn {
     }
 
     public void parseUntil(StringBuilder sb, StopCharTester testers) {
+        StopCharScanner scanner = StopCharScanner.of(testers);
+        if (scanner != null && scanner.tryParse(bytes, sb, use8bit))
+            return;
         if (use8bit)
             bytes.parse8bit(sb, testers);
         else
@@ -501,6 +739,9 @@ public class TextWire implements Wire, InternalWireIn {
     }
 
     public void parseUntil(StringBuilder sb, StopCharsTester testers) {
+        StopCharScanner scanner = StopCharScanner.of(testers);
+        if (scanner != null && scanner.tryParse(bytes, sb, use8bit))
+            return;
         sb.setLength(0);
         if (use8bit) {
             AppendableUtil.read8bitAndAppend(bytes, sb, testers);
@@ -625,6 +866,297 @@ public class TextWire implements Wire, InternalWireIn {
         }
         return map;
     }
+    /**
+     * Read a document as readObject does, but pass each map, sequence and scalar to the visitor
+     * as it is read rather than building Maps and Lists, or interning keys and boxing values.
+     */
+    public void visit(@NotNull YamlVisitor visitor) {
+        TokenCursor tokens = tokens();
+        for (WireToken token; (token = tokens.nextToken()) != WireToken.NONE; ) {
+            switch (token) {
+                case FIELD:
+                    visitor.key(tokens.text());
+                    break;
+                case TYPE_PREFIX:
+                    visitor.typePrefix(tokens.text());
+                    break;
+                case START_MAP:
+                    visitor.startMap();
+                    break;
+                case START_SEQUENCE:
+                    visitor.startSequence();
+                    break;
+                case END:
+                    visitor.end();
+                    break;
+                case TEXT:
+                    visitor.text(tokens.text());
+                    break;
+                case INT64:
+                    visitor.int64(tokens.int64());
+                    break;
+                case FLOAT64:
+                    visitor.float64(tokens.float64());
+                    break;
+                case BOOL:
+                    visitor.bool(tokens.bool());
+                    break;
+                case NULL:
+                    visitor.nullValue();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Tokens from the current position to the end of the document, with block maps and lists
+     * ending where the indentation does, as readObject reads them.
+     */
+    @NotNull
+    @Override
+    public TokenCursor tokens() {
+        if (tokens == null)
+            tokens = new TextTokenCursor();
+        tokens.reset();
+        return tokens;
+    }
+
+    private final class TextTokenCursor extends AbstractTokenCursor {
+        private static final int BLOCK_MAP = 0, BLOCK_SEQUENCE = 1, FLOW_MAP = 2, FLOW_SEQUENCE = 3;
+
+        // what each map or sequence the current token is in is, and the indentation of a block.
+        private int[] kinds = new int[8];
+        private int[] indents = new int[8];
+        private boolean started;
+        // a FIELD or TYPE_PREFIX is followed by its value.
+        private boolean valuePending;
+        // the key of a map starting on the line of a list item has been read.
+        private boolean keyPending;
+        private int valueIndent;
+        private boolean valueFlow;
+        private long valueLineStart;
+
+        void reset() {
+            depth = 0;
+            started = false;
+            valuePending = false;
+            keyPending = false;
+            token(WireToken.NONE);
+        }
+
+        @NotNull
+        @Override
+        public WireToken nextToken() {
+            for (; ; ) {
+                if (keyPending) {
+                    keyPending = false;
+                    return field(indents[depth - 1], false);
+                }
+                if (valuePending) {
+                    valuePending = false;
+                    return value(valueIndent, valueFlow, valueLineStart);
+                }
+                if (depth == 0) {
+                    if (started)
+                        return token(WireToken.NONE);
+                    started = true;
+                    consumeWhiteSpace();
+                    consumeDocumentStart();
+                    WireToken token = object(0);
+                    return token == null ? token(WireToken.NONE) : token;
+                }
+                int indent = indents[depth - 1];
+                switch (kinds[depth - 1]) {
+                    case BLOCK_MAP:
+                        consumeWhiteSpace();
+                        if (bytes.readRemaining() == 0 || indentation() < indent)
+                            return end();
+                        read(text);
+                        if (StringUtils.isEqual(text, "..."))
+                            return end();
+                        return field(indent, false);
+
+                    case BLOCK_SEQUENCE: {
+                        consumeWhiteSpace();
+                        if (peekCode() != '-' || indentation() < indent || peekNextCode() == '-')
+                            return end();
+                        long ls = lineStart;
+                        bytes.readSkip(1);
+                        consumeWhiteSpace();
+                        if (lineStart == ls)
+                            return value(indent, false, ls);
+                        WireToken token = object(indent);
+                        if (token != null)
+                            return token;
+                        // nothing under this item.
+                        continue;
+                    }
+
+                    case FLOW_MAP:
+                        skipSeparators();
+                        if (bytes.readRemaining() == 0)
+                            return end();
+                        if (peekCode() == '}') {
+                            bytes.readSkip(1);
+                            return end();
+                        }
+                        read(text);
+                        return field(0, true);
+
+                    default:
+                        skipSeparators();
+                        if (bytes.readRemaining() == 0)
+                            return end();
+                        if (peekCode() == ']') {
+                            bytes.readSkip(1);
+                            return end();
+                        }
+                        return value(0, true, lineStart);
+                }
+            }
+        }
+
+        /**
+         * @return the token starting an object, or null if there isn't one at this indentation.
+         */
+        @Nullable
+        private WireToken object(int indent) {
+            consumeWhiteSpace();
+            int code = peekCode();
+            int indentation = indentation();
+            if (bytes.readRemaining() == 0 || indentation < indent)
+                return null;
+            switch (code) {
+                case '-':
+                    if (peekNextCode() == '-')
+                        return null;
+                    return push(BLOCK_SEQUENCE, indentation, WireToken.START_SEQUENCE);
+                case '[':
+                    bytes.readSkip(1);
+                    return push(FLOW_SEQUENCE, 0, WireToken.START_SEQUENCE);
+                case '{':
+                    bytes.readSkip(1);
+                    return push(FLOW_MAP, 0, WireToken.START_MAP);
+                case '!':
+                    return value(indent, false, lineStart);
+                default:
+                    return push(BLOCK_MAP, indentation, WireToken.START_MAP);
+            }
+        }
+
+        /**
+         * @param indent the indentation of the key or list item the value belongs to.
+         * @param flow   whether the value is inside [ ] or { }
+         * @param ls     the start of the line the key or list item is on.
+         */
+        @NotNull
+        private WireToken value(int indent, boolean flow, long ls) {
+            consumeWhiteSpace();
+            int code = peekCode();
+            if (code == '!' && peekNextCode() != '!') {
+                bytes.readSkip(1);
+                parseUntil(text, TextStopCharTesters.END_OF_TYPE);
+                if (bytes.readUnsignedByte(bytes.readPosition() - 1) == '\n')
+                    lineStart = bytes.readPosition();
+                valuePending = true;
+                valueIndent = indent;
+                valueFlow = flow;
+                valueLineStart = ls;
+                return token(WireToken.TYPE_PREFIX);
+            }
+            if (bytes.readRemaining() == 0)
+                return token(WireToken.NULL);
+            if (!flow && lineStart != ls) {
+                // the value is on the lines which follow, if they are indented.
+                int indentation = indentation();
+                if (indentation < indent || (indentation == indent && code != '-'))
+                    return token(WireToken.NULL);
+                WireToken token = object(indentation);
+                return token == null ? token(WireToken.NULL) : token;
+            }
+            switch (code) {
+                case '-':
+                    if (peekNextCode() == ' ')
+                        return push(BLOCK_SEQUENCE, indentation(), WireToken.START_SEQUENCE);
+                    break;
+                case '[':
+                    bytes.readSkip(1);
+                    return push(FLOW_SEQUENCE, 0, WireToken.START_SEQUENCE);
+                case '{':
+                    bytes.readSkip(1);
+                    return push(FLOW_MAP, 0, WireToken.START_MAP);
+            }
+
+            long start = bytes.readPosition();
+            if (code == '"' || code == '\'' || code == '!') {
+                return valueIn.textTo(text) == null
+                        ? token(WireToken.NULL)
+                        : token(WireToken.TEXT);
+            }
+            if (flow) {
+                readFlowScalar();
+            } else {
+                int indentation = indentation();
+                valueIn.textTo(text);
+                if (peekCode() == ':') {
+                    // a key, e.g. "- key: value", starting a map at its indentation.
+                    bytes.readSkip(1);
+                    keyPending = true;
+                    return push(BLOCK_MAP, indentation, WireToken.START_MAP);
+                }
+            }
+            return plainToken(bytes, start);
+        }
+
+        private void readFlowScalar() {
+            StringBuilder sb = text;
+            if (!END_OF_FLOW_TEXT_SCANNER.tryParse(bytes, sb, use8bit)) {
+                if (use8bit)
+                    bytes.parse8bit(sb, TextStopCharsTesters.END_OF_FLOW_TEXT);
+                else
+                    bytes.parseUTF(sb, TextStopCharsTesters.END_OF_FLOW_TEXT);
+            }
+            while (sb.length() > 0 && Character.isWhitespace(sb.charAt(sb.length() - 1)))
+                sb.setLength(sb.length() - 1);
+            // leave a closing bracket for the sequence or map.
+            int prev = bytes.readUnsignedByte(bytes.readPosition() - 1);
+            if (prev == ']' || prev == '}' || prev == ':' || prev == '#')
+                bytes.readSkip(-1);
+            else if (prev == '\n')
+                lineStart = bytes.readPosition();
+        }
+
+        @NotNull
+        private WireToken field(int indent, boolean flow) {
+            valuePending = true;
+            valueIndent = indent;
+            valueFlow = flow;
+            valueLineStart = lineStart;
+            return token(WireToken.FIELD);
+        }
+
+        @NotNull
+        private WireToken push(int kind, int indent, @NotNull WireToken token) {
+            if (depth == kinds.length) {
+                kinds = Arrays.copyOf(kinds, depth * 2);
+                indents = Arrays.copyOf(indents, depth * 2);
+            }
+            kinds[depth] = kind;
+            indents[depth] = indent;
+            depth++;
+            return token(token);
+        }
+
+        @NotNull
+        private WireToken end() {
+            depth--;
+            return token(WireToken.END);
+        }
+
+        private int peekNextCode() {
+            return bytes.readRemaining() > 1 ? bytes.readUnsignedByte(bytes.readPosition() + 1) : -1;
+        }
+    }
 
     public void writeObject(Object o) {
         if (o instanceof Iterable) {
@@ -880,7 +1412,7 @@ public class TextWire implements Wire, InternalWireIn {
         @Override
         public WireOut float32(float f) {
             prependSeparator();
-            bytes.append(f);
+            DoubleText.append(bytes, f);
             elementSeparator();
 
             return TextWire.this;
@@ -890,7 +1422,7 @@ public class TextWire implements Wire, InternalWireIn {
         @Override
         public WireOut float64(double d) {
             prependSeparator();
-            bytes.append(d);
+            DoubleText.append(bytes, d);
             elementSeparator();
 
             return TextWire.this;
@@ -1130,6 +1662,11 @@ public class TextWire implements Wire, InternalWireIn {
 
         @NotNull
         public ValueOut write(@NotNull WireKey key) {
+            if (key instanceof EncodedWireKey) {
+                prependSeparator();
+                bytes.write(((EncodedWireKey) key).textField());
+                return this;
+            }
             CharSequence name = key.name();
             if (name == null) name = Integer.toString(key.code());
             prependSeparator();
@@ -1192,11 +1729,14 @@ public class TextWire implements Wire, InternalWireIn {
                 }
                 case '"': {
                     bytes.readSkip(1);
-                    if (use8bit)
-                        bytes.parse8bit(a, getEscapingQuotes());
-                    else
-                        bytes.parseUTF(a, getEscapingQuotes());
-                    unescape(a);
+                    // without a backslash there is nothing to unescape.
+                    if (!QUOTES_SCANNER.tryParse(bytes, a, use8bit)) {
+                        if (use8bit)
+                            bytes.parse8bit(a, getEscapingQuotes());
+                        else
+                            bytes.parseUTF(a, getEscapingQuotes());
+                        unescape(a);
+                    }
                     int code = peekCode();
                     if (code == '"')
                         readCode();
@@ -1205,11 +1745,13 @@ public class TextWire implements Wire, InternalWireIn {
                 }
                 case '\'': {
                     bytes.readSkip(1);
-                    if (use8bit)
-                        bytes.parse8bit(a, getEscapingSingleQuotes());
-                    else
-                        bytes.parseUTF(a, getEscapingSingleQuotes());
-                    unescape(a);
+                    if (!SINGLE_QUOTES_SCANNER.tryParse(bytes, a, use8bit)) {
+                        if (use8bit)
+                            bytes.parse8bit(a, getEscapingSingleQuotes());
+                        else
+                            bytes.parseUTF(a, getEscapingSingleQuotes());
+                        unescape(a);
+                    }
                     int code = peekCode();
                     if (code == '\'')
                         readCode();
@@ -1246,10 +1788,12 @@ public class TextWire implements Wire, InternalWireIn {
                 }
                 default: {
                     if (bytes.readRemaining() > 0) {
-                        if (a instanceof Bytes || use8bit)
-                            bytes.parse8bit(a, getEscapingEndOfText());
-                        else
-                            bytes.parseUTF(a, getEscapingEndOfText());
+                        if (!END_OF_TEXT_SCANNER.tryParse(bytes, a, a instanceof Bytes || use8bit)) {
+                            if (a instanceof Bytes || use8bit)
+                                bytes.parse8bit(a, getEscapingEndOfText());
+                            else
+                                bytes.parseUTF(a, getEscapingEndOfText());
+                        }
 
                     } else {
                         AppendableUtil.setLength(a, 0);
@@ -1399,6 +1943,13 @@ public class TextWire implements Wire, InternalWireIn {
             return TextWire.this;
         }
 
+        @NotNull
+        @Override
+        public WireIn skipValue() {
+            TextWire.this.skipValue();
+            return TextWire.this;
+        }
+
         @Override
         public long readLength() {
             consumeWhiteSpace();
@@ -1551,7 +2102,7 @@ public class TextWire implements Wire, InternalWireIn {
         @Override
         public <T> WireIn float32(@NotNull T t, @NotNull ObjFloatConsumer<T> tf) {
             consumeWhiteSpace();
-            tf.accept(t, (float) bytes.parseDouble());
+            tf.accept(t, (float) DoubleText.parse(bytes));
             return TextWire.this;
         }
 
@@ -1559,7 +2110,7 @@ public class TextWire implements Wire, InternalWireIn {
         @Override
         public <T> WireIn float64(@NotNull T t, @NotNull ObjDoubleConsumer<T> td) {
             consumeWhiteSpace();
-            td.accept(t, bytes.parseDouble());
+            td.accept(t, DoubleText.parse(bytes));
             return TextWire.this;
         }
 
@@ -1823,14 +2374,18 @@ public class TextWire implements Wire, InternalWireIn {
             final long position = bytes.readPosition();
 
             final long newLimit = position - 1 + len;
+            boolean indexed = false;
             try {
                 // ensure that you can read past the end of this marshable object
 
                 bytes.readLimit(newLimit);
                 bytes.readSkip(1); // skip the {
                 consumeWhiteSpace();
+                indexed = enterFieldScope(newLimit);
                 object.readMarshallable(TextWire.this);
             } finally {
+                if (indexed)
+                    fieldIndexDepth--;
                 bytes.readLimit(limit);
                 bytes.readPosition(newLimit);
             }
@@ -2002,17 +2557,19 @@ public class TextWire implements Wire, InternalWireIn {
         @Override
         public double float64() {
             consumeWhiteSpace();
-            return bytes.parseDouble();
+            return DoubleText.parse(bytes);
         }
 
         @Override
         public float float32() {
 
             double d = float64();
-            if ((double) (((float) d)) != d)
+            float f = (float) d;
+            // the shortest text for a float is rarely exactly a double, so only reject overflow.
+            if (Float.isInfinite(f) && !Double.isInfinite(d))
                 throw new IllegalStateException("value=" + d + " can not be represented as a float");
 
-            return (float) d;
+            return f;
         }
 
         /**
@@ -2203,7 +2760,7 @@ public class TextWire implements Wire, InternalWireIn {
         }
 
         @NotNull
-        private Object readSequence(@NotNull Class clazz) {
+        Object readSequence(@NotNull Class clazz) {
             if (clazz == Object[].class || clazz == Object.class) {
                 //todo should this use reflection so that all array types can be handled
                 List<Object> list = new ArrayList<>();
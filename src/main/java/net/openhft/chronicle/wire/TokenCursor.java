@@ -0,0 +1,69 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads a document one token at a time, without knowing its shape in advance, e.g. to filter,
+ * convert or compare documents of any wire type. The value of the current token is held by the
+ * cursor and reused for the next one, so walking a document creates no objects.
+ */
+public interface TokenCursor {
+    /**
+     * Read the next token.
+     *
+     * @return its type, or NONE at the end of the document.
+     */
+    @NotNull
+    WireToken nextToken();
+
+    @NotNull
+    WireToken tokenType();
+
+    /**
+     * @return how many maps and sequences the current token is in, including one it starts.
+     */
+    int depth();
+
+    /**
+     * @return the name of a FIELD or TYPE_PREFIX, or the value of a TEXT, until the next token.
+     */
+    @NotNull
+    CharSequence text();
+
+    /**
+     * @throws IllegalStateException if the current token isn't a number.
+     */
+    long int64();
+
+    /**
+     * @throws IllegalStateException if the current token isn't a number.
+     */
+    double float64();
+
+    /**
+     * @throws IllegalStateException if the current token isn't a BOOL.
+     */
+    boolean bool();
+
+    /**
+     * @return the content of a BYTES token, until the next token.
+     */
+    @NotNull
+    Bytes<?> bytes();
+}
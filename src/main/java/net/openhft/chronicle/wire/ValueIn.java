@@ -91,6 +91,17 @@ public interface ValueIn {
     @NotNull
     WireIn wireIn();
 
+    /**
+     * Step over the next value, including any type prefix, without decoding it.
+     * <p>
+     * TextWire, its JSON, CSV and query variants, and BinaryWire support this. RawWire and
+     * FIXED_LAYOUT don't record types, so they can't tell how long a value is.
+     *
+     * @throws UnsupportedOperationException if this wire can't tell how long a value is.
+     */
+    @NotNull
+    WireIn skipValue();
+
     /**
      * the length of the field as bytes including any encoding and header character
      */
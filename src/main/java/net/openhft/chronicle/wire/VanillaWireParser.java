@@ -15,34 +15,166 @@
  */
 package net.openhft.chronicle.wire;
 
-import net.openhft.chronicle.core.util.CharSequenceComparator;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.function.Consumer;
 
 /**
  * A simple parser to associate actions based on events/field names received.
+ * <p>
+ * The first lookup after registration builds open addressing tables sized so that, where possible,
+ * every name and code has a slot of its own. A lookup is then one hash, one probe and one
+ * comparison, without boxing.
  */
 public class VanillaWireParser implements WireParser {
-    private final Map<CharSequence, Consumer<ValueIn>> namedConsumer = new TreeMap<>(CharSequenceComparator.INSTANCE);
-    private final Map<Integer, Consumer<ValueIn>> numberedConsumer = new HashMap<>();
+    // the largest table, relative to the number of keys, tried when looking for a collision free size.
+    private static final int MAX_SPREAD = 16;
+
+    private final Map<String, Consumer<ValueIn>> namedConsumer = new LinkedHashMap<>();
+    private final Map<Integer, Consumer<ValueIn>> numberedConsumer = new LinkedHashMap<>();
+
+    // built on the first lookup after a register.
+    @Nullable
+    private NameTable names;
+    @Nullable
+    private CodeTable codes;
+
+    static int tableSize(@NotNull int[] hashes) {
+        int size = 2;
+        while (size < hashes.length * 2)
+            size <<= 1;
+        int maxSize = size * MAX_SPREAD;
+        long[] used = new long[((maxSize - 1) >>> 6) + 1];
+        for (int s = size; s <= maxSize; s <<= 1)
+            if (isCollisionFree(hashes, s - 1, used))
+                return s;
+        // no perfect hash, fall back to linear probing.
+        return size;
+    }
+
+    private static boolean isCollisionFree(@NotNull int[] hashes, int mask, @NotNull long[] used) {
+        Arrays.fill(used, 0, (mask >>> 6) + 1, 0L);
+        for (int hash : hashes) {
+            int slot = slot(hash, mask);
+            if ((used[slot >>> 6] & (1L << slot)) != 0)
+                return false;
+            used[slot >>> 6] |= 1L << slot;
+        }
+        return true;
+    }
+
+    static int slot(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
 
     @Override
     public void register(@NotNull WireKey key, Consumer<ValueIn> valueInConsumer) {
-        namedConsumer.put(key.name(), valueInConsumer);
+        namedConsumer.put(key.name().toString(), valueInConsumer);
         numberedConsumer.put(key.code(), valueInConsumer);
+        names = null;
+        codes = null;
     }
 
     @Override
     public Consumer<ValueIn> lookup(CharSequence name) {
-        return namedConsumer.get(name);
+        NameTable names = this.names;
+        if (names == null)
+            this.names = names = new NameTable(namedConsumer);
+        return names.lookup(name);
     }
 
     @Override
     public Consumer<ValueIn> lookup(int number) {
-        return numberedConsumer.get(number);
+        CodeTable codes = this.codes;
+        if (codes == null)
+            this.codes = codes = new CodeTable(numberedConsumer);
+        return codes.lookup(number);
+    }
+
+    static final class NameTable {
+        private final String[] keys;
+        private final Consumer<ValueIn>[] values;
+        private final int mask;
+
+        @SuppressWarnings("unchecked")
+        NameTable(@NotNull Map<String, Consumer<ValueIn>> map) {
+            int[] hashes = new int[map.size()];
+            int i = 0;
+            for (String name : map.keySet())
+                hashes[i++] = name.hashCode();
+            int size = tableSize(hashes);
+            keys = new String[size];
+            values = new Consumer[size];
+            mask = size - 1;
+            for (Map.Entry<String, Consumer<ValueIn>> entry : map.entrySet()) {
+                if (entry.getValue() == null)
+                    continue;
+                int slot = slot(entry.getKey().hashCode(), mask);
+                while (keys[slot] != null)
+                    slot = (slot + 1) & mask;
+                keys[slot] = entry.getKey();
+                values[slot] = entry.getValue();
+            }
+        }
+
+        @Nullable
+        Consumer<ValueIn> lookup(@NotNull CharSequence name) {
+            int length = name.length();
+            for (int slot = slot(FieldOffsetIndex.nameCode(name), mask); ; slot = (slot + 1) & mask) {
+                String key = keys[slot];
+                if (key == null)
+                    return null;
+                if (key.length() == length && equals(key, name))
+                    return values[slot];
+            }
+        }
+
+        private static boolean equals(@NotNull String key, @NotNull CharSequence name) {
+            for (int i = 0; i < key.length(); i++)
+                if (key.charAt(i) != name.charAt(i))
+                    return false;
+            return true;
+        }
+    }
+
+    static final class CodeTable {
+        private final int[] keys;
+        private final Consumer<ValueIn>[] values;
+        private final int mask;
+
+        @SuppressWarnings("unchecked")
+        CodeTable(@NotNull Map<Integer, Consumer<ValueIn>> map) {
+            int[] hashes = new int[map.size()];
+            int i = 0;
+            for (int code : map.keySet())
+                hashes[i++] = code;
+            int size = tableSize(hashes);
+            keys = new int[size];
+            values = new Consumer[size];
+            mask = size - 1;
+            for (Map.Entry<Integer, Consumer<ValueIn>> entry : map.entrySet()) {
+                if (entry.getValue() == null)
+                    continue;
+                int code = entry.getKey();
+                int slot = slot(code, mask);
+                while (values[slot] != null)
+                    slot = (slot + 1) & mask;
+                keys[slot] = code;
+                values[slot] = entry.getValue();
+            }
+        }
+
+        @Nullable
+        Consumer<ValueIn> lookup(int code) {
+            for (int slot = slot(code, mask); ; slot = (slot + 1) & mask) {
+                Consumer<ValueIn> value = values[slot];
+                if (value == null || keys[slot] == code)
+                    return value;
+            }
+        }
     }
 }
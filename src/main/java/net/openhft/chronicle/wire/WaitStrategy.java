@@ -0,0 +1,68 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a DocumentTailer waits when no document is ready.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+    /**
+     * Lowest latency, using a whole core.
+     */
+    @NotNull
+    static WaitStrategy busySpin() {
+        return attempts -> {
+        };
+    }
+
+    @NotNull
+    static WaitStrategy yielding() {
+        return attempts -> Thread.yield();
+    }
+
+    @NotNull
+    static WaitStrategy parking(long parkNanos) {
+        return attempts -> LockSupport.parkNanos(parkNanos);
+    }
+
+    /**
+     * Spin, then yield, then park for twice as long each time, from one microsecond up to
+     * maxParkNanos.
+     */
+    @NotNull
+    static WaitStrategy backoff(int spins, int yields, long maxParkNanos) {
+        return attempts -> {
+            if (attempts <= spins)
+                return;
+            if (attempts <= spins + yields) {
+                Thread.yield();
+                return;
+            }
+            int parks = Math.min(attempts - spins - yields - 1, 30);
+            LockSupport.parkNanos(Math.min(1000L << parks, maxParkNanos));
+        };
+    }
+
+    /**
+     * @param attempts the number of times in a row no document was ready, from 1.
+     */
+    void idle(int attempts);
+}
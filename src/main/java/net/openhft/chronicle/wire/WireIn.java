@@ -27,6 +27,18 @@ public interface WireIn extends WireCommon {
 
     void copyTo(@NotNull WireOut wire);
 
+    /**
+     * Read from the current position one token at a time, without knowing the shape of the
+     * document. The cursor is reused, so only one walk at a time is possible per wire.
+     * <p>
+     * TextWire, its JSON, CSV and query variants, and BinaryWire support tokens. RawWire and
+     * FIXED_LAYOUT don't record field names or types, so they can't.
+     *
+     * @throws UnsupportedOperationException if this wire doesn't support tokens.
+     */
+    @NotNull
+    TokenCursor tokens();
+
     /**
      * Read the field if present, or empty string if not present.
      */
@@ -83,6 +83,38 @@ enum WireInternal {
         bytes.writeOrderedInt(position, length | (notReady ? Wires.NOT_READY : 0));
     }
 
+    public static void writeDocuments(@NotNull WireOut wireOut, boolean metaData, int count, @NotNull WriteMarshallable writer) {
+        long position = wireOut.bytes().writePosition();
+        int header = writeBatch(wireOut, metaData, count, writer);
+        wireOut.bytes().writeOrderedInt(position, header);
+    }
+
+    /**
+     * Write count documents back to back, leaving the first header with an unknown length so
+     * readers stop there. As no reader gets past it, the other headers are written without a
+     * fence.
+     *
+     * @return the header to publish the batch with.
+     */
+    static int writeBatch(@NotNull WireOut wireOut, boolean metaData, int count, @NotNull WriteMarshallable writer) {
+        if (count < 1)
+            throw new IllegalArgumentException("count " + count + " must be positive");
+        Bytes bytes = wireOut.bytes();
+        int metaDataBit = metaData ? Wires.META_DATA : 0;
+        int first = 0;
+        for (int i = 0; i < count; i++) {
+            long position = bytes.writePosition();
+            bytes.writeInt(metaDataBit | Wires.NOT_READY | Wires.UNKNOWN_LENGTH);
+            writer.writeMarshallable(wireOut);
+            int length = metaDataBit | toIntU30(bytes.writePosition() - position - 4, "Document length %,d out of 30-bit int range.");
+            if (i == 0)
+                first = length;
+            else
+                bytes.writeInt(position, length);
+        }
+        return first;
+    }
+
     public static void writeDataOnce(@NotNull WireOut wireOut, boolean metaData, @NotNull WriteMarshallable writer) {
         Bytes bytes = wireOut.bytes();
         long position = bytes.writePosition();
@@ -138,24 +170,21 @@ enum WireInternal {
                     return true;
                 }
             } else {
-
-                if (metaDataConsumer == null) {
-                    // skip the header
-                    bytes.readSkip(len);
-                } else {
-                    // bytes.readWithLength(len, b -> metaDataConsumer.accept(wireIn));
-                    // inlined to avoid garbage
-                    if ((long) len > bytes.readRemaining())
-                        throw new BufferUnderflowException();
-                    long limit0 = bytes.readLimit();
-                    long limit = bytes.readPosition() + (long) len;
-                    try {
-                        bytes.readLimit(limit);
+                // bytes.readWithLength(len, b -> metaDataConsumer.accept(wireIn));
+                // inlined to avoid garbage
+                if ((long) len > bytes.readRemaining())
+                    throw new BufferUnderflowException();
+                long limit0 = bytes.readLimit();
+                long limit = bytes.readPosition() + (long) len;
+                try {
+                    bytes.readLimit(limit);
+                    // meta data the wire wrote for itself isn't passed on.
+                    boolean wireMetaData = wireIn instanceof InternalWireIn && ((InternalWireIn) wireIn).readWireMetaData();
+                    if (!wireMetaData && metaDataConsumer != null)
                         metaDataConsumer.readMarshallable(wireIn);
-                    } finally {
-                        bytes.readLimit(limit0);
-                        bytes.readPosition(limit);
-                    }
+                } finally {
+                    bytes.readLimit(limit0);
+                    bytes.readPosition(limit);
                 }
 
                 if (dataConsumer == null)
@@ -250,7 +279,7 @@ enum WireInternal {
         }
     }
 
-    private static boolean isKnownLength(long len) {
+    static boolean isKnownLength(long len) {
         return (len & (Wires.META_DATA | Wires.LENGTH_MASK)) != Wires.UNKNOWN_LENGTH;
     }
 
@@ -80,4 +80,13 @@ public interface WireOut extends WireCommon {
     default void writeNotReadyDocument(boolean metaData, @NotNull WriteMarshallable writer) {
         WireInternal.writeData(this, metaData, true, writer);
     }
+
+    /**
+     * Write count documents back to back, calling the writer once for each, e.g. to drain a
+     * queue. They are published together by one ordered write of the first header, so a reader
+     * sees all of them or none.
+     */
+    default void writeDocuments(boolean metaData, int count, @NotNull WriteMarshallable writer) {
+        WireInternal.writeDocuments(this, metaData, count, writer);
+    }
 }
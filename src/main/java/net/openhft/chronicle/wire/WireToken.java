@@ -0,0 +1,46 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+/**
+ * The kinds of token a TokenCursor reads.
+ */
+public enum WireToken {
+    /**
+     * Before the first token, or after the end of the document.
+     */
+    NONE,
+    /**
+     * The name of the value which follows.
+     */
+    FIELD,
+    /**
+     * The type of the value which follows.
+     */
+    TYPE_PREFIX,
+    START_MAP,
+    START_SEQUENCE,
+    /**
+     * The end of the innermost map or sequence.
+     */
+    END,
+    TEXT,
+    INT64,
+    FLOAT64,
+    BOOL,
+    NULL,
+    BYTES
+}
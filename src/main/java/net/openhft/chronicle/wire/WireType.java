@@ -55,6 +55,12 @@ public enum WireType implements Function<Bytes, Wire> {
         public Wire apply(Bytes bytes) {
             return new RawWire(bytes);
         }
+    }, FIXED_LAYOUT {
+        @NotNull
+        @Override
+        public Wire apply(Bytes bytes) {
+            return new FixedLayoutWire(bytes);
+        }
     }, READ_ANY {
         @Override
         public Wire apply(@NotNull Bytes bytes) {
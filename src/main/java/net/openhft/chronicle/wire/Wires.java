@@ -17,9 +17,19 @@
 package net.openhft.chronicle.wire;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.IORuntimeException;
 import net.openhft.chronicle.core.pool.StringBuilderPool;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Created by peter on 31/08/15.
  */
@@ -43,6 +53,41 @@ public enum Wires {
         return WireInternal.fromSizePrefixedBlobs(bytes, position, bytes.readRemaining());
     }
 
+    /**
+     * The data documents from start to end of the store, e.g. as written by writeDocument, as a
+     * Stream which can be read in parallel. Each part of the range is read by its own wire, so
+     * the WireIn passed on is only valid until the next document. A BinaryWire fieldDictionary
+     * or stringTable can't be read this way.
+     */
+    @NotNull
+    public static Stream<WireIn> documents(@NotNull BytesStore store, long start, long end, @NotNull Function<Bytes, Wire> wireType) {
+        return StreamSupport.stream(new DocumentSpliterator(store::bytesForRead, wireType, start, end), false);
+    }
+
+    /**
+     * The data documents of a file as a Stream which can be read in parallel, each part of the
+     * file being mapped read only, a window at a time. Close the Stream to close the file.
+     */
+    @NotNull
+    public static Stream<WireIn> documents(@NotNull File file, @NotNull Function<Bytes, Wire> wireType) {
+        FileChannel channel;
+        long size;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            size = channel.size();
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+        return StreamSupport.stream(new DocumentSpliterator(channel, wireType, 0, size), false)
+                .onClose(() -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new IORuntimeException(e);
+                    }
+                });
+    }
+
     public static StringBuilder acquireStringBuilder() {
         return SBP.acquireStringBuilder();
     }
@@ -0,0 +1,62 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Events for a YAML document read by TextWire.visit, in the order they appear, without building
+ * the Maps and Lists readObject would. Override only the events needed.
+ * <p>
+ * A CharSequence passed is reused, so it is only valid during the call.
+ */
+public interface YamlVisitor {
+    default void startMap() {
+    }
+
+    default void key(@NotNull CharSequence key) {
+    }
+
+    default void startSequence() {
+    }
+
+    /**
+     * The end of the innermost map or sequence.
+     */
+    default void end() {
+    }
+
+    /**
+     * Precedes the value of a !type.
+     */
+    default void typePrefix(@NotNull CharSequence typeName) {
+    }
+
+    default void text(@NotNull CharSequence text) {
+    }
+
+    default void int64(long value) {
+    }
+
+    default void float64(double value) {
+    }
+
+    default void bool(boolean value) {
+    }
+
+    default void nullValue() {
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryFlyweightTest {
+    private static Bytes position(String symbol, long qty, double price) {
+        Wire wire = new BinaryWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "symbol").text(symbol)
+                .write(() -> "note").text("ünïcode \uD83D\uDE00, then skipped")
+                .write(() -> "qty").int64(qty)
+                .write(() -> "price").float64(price)
+                .write(() -> "limits").marshallable(w -> w.write(() -> "max").int64(qty * 2))
+                .write(() -> "active").bool(true);
+        return wire.bytes();
+    }
+
+    private static void bind(Byteable view, Bytes bytes) {
+        view.bytesStore(bytes, bytes.readPosition(), bytes.readRemaining());
+    }
+
+    @Test
+    public void subclass() {
+        PositionView view = new PositionView();
+        bind(view, position("EURUSD", 1_000_000, 1.125));
+        assertEquals(1.125, view.price(), 0.0);
+        assertEquals(1_000_000, view.qty());
+        assertFalse(view.hasField(2));
+
+        bind(view, position("GBPUSD", -3, 1.5));
+        assertEquals(-3, view.qty());
+        assertEquals(1.5, view.price(), 0.0);
+    }
+
+    @Test
+    public void interfaceView() {
+        Position view = BinaryFlyweight.view(Position.class);
+        bind((Byteable) view, position("EURUSD", 100, 1.25));
+        assertEquals("EURUSD", view.symbol());
+        assertEquals(100, view.qty());
+        assertEquals(1.25, view.price(), 0.0);
+        assertTrue(view.active());
+        assertEquals(200, view.limits().max());
+        assertEquals(0, view.missing());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyGetters() {
+        BinaryFlyweight.view(NotAView.class);
+    }
+
+    interface Position {
+        String symbol();
+
+        long qty();
+
+        double price();
+
+        boolean active();
+
+        Limits limits();
+
+        int missing();
+    }
+
+    interface Limits {
+        long max();
+    }
+
+    interface NotAView {
+        void qty(long qty);
+    }
+
+    static class PositionView extends BinaryFlyweight {
+        PositionView() {
+            super("qty", "price", "missing");
+        }
+
+        long qty() {
+            return int64(0);
+        }
+
+        double price() {
+            return float64(1);
+        }
+    }
+}
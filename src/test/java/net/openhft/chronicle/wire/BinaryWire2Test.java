@@ -16,16 +16,23 @@
 package net.openhft.chronicle.wire;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import static net.openhft.chronicle.bytes.NativeBytes.nativeBytes;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Created by peter.lawrey on 06/02/15.
@@ -234,4 +241,289 @@ reply: !UpdatedEvent {
                         .read(() -> "oldValue").object(String.class, "error", Assert::assertNull)
                         .read(() -> "value").object(String.class, this, (o, s) -> Assert.assertEquals("world2", s))));
     }
+
+    @Test
+    public void unorderedFields() {
+        Wire wire = createWire().unorderedFields(true);
+        wire.writeDocument(false, w -> w.write(() -> "price").float64(1.5)
+                .write(() -> "quote").marshallable(m -> m.write(() -> "bid").int32(10)
+                        .write(() -> "ask").int32(11))
+                .write(() -> "name").text("hello world, this is a longer name")
+                .write(() -> "id").int64(128));
+
+        wire.readDocument(null, w -> w.read(() -> "id").int64(this, (o, i) -> assertEquals(128L, i))
+                .read(() -> "quote").marshallable(m -> m.read(() -> "ask").int32(this, (o, i) -> assertEquals(11, i))
+                        .read(() -> "bid").int32(this, (o, i) -> assertEquals(10, i)))
+                .read(() -> "name").text(this, (o, s) -> assertEquals("hello world, this is a longer name", s))
+                .read(() -> "price").float64(this, (o, d) -> assertEquals(1.5, d, 0.0)));
+    }
+
+    @Test
+    public void unorderedNumericFields() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes, false, true, false).unorderedFields(true);
+        wire.write(Fields.THREE).int32(3)
+                .write(Fields.TWO).text("two")
+                .write(Fields.ONE).int32(1);
+
+        wire.read(Fields.ONE).int32(this, (o, i) -> assertEquals(1, i))
+                .read(Fields.TWO).text(this, (o, s) -> assertEquals("two", s))
+                .read(Fields.THREE).int32(this, (o, i) -> assertEquals(3, i));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unorderedFieldsDisabled() {
+        Wire wire = createWire();
+        wire.write(() -> "one").int32(1)
+                .write(() -> "two").int32(2);
+
+        wire.read(() -> "two");
+    }
+
+    @Test
+    public void encodedWireKeys() {
+        EncodedWireKey[] keys = EncodedWireKey.of(Fields.values());
+        for (boolean numericFields : new boolean[]{false, true}) {
+            bytes.clear();
+            new BinaryWire(bytes, false, numericFields, false)
+                    .write(Fields.ONE).int32(1)
+                    .write(Fields.TWO).text("two");
+            String expected = bytes.toHexString();
+
+            bytes.clear();
+            BinaryWire wire = new BinaryWire(bytes, false, numericFields, false);
+            wire.write(keys[0]).int32(1)
+                    .write(keys[1]).text("two");
+            assertEquals(expected, bytes.toHexString());
+
+            wire.read(Fields.ONE).int32(this, (o, i) -> assertEquals(1, i))
+                    .read(keys[1]).text(this, (o, s) -> assertEquals("two", s));
+        }
+    }
+
+    @Test
+    public void fieldDictionary() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).fieldDictionary(true);
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            wire.writeDocument(false, w -> w.write(() -> "bidPrice").float64(1.5 + n)
+                    .write(() -> "askPrice").float64(2.5 + n)
+                    .write(() -> "quote").marshallable(m -> m.write(() -> "bidPrice").int32(n)));
+        }
+        wire.writeDocument(true, w -> w.write(() -> "header").text("user meta data"));
+        wire.writeDocument(false, w -> w.write(() -> "askPrice").float64(9.5)
+                .write(() -> "venue").text("LSE"));
+        long dictionaryLength = bytes.readRemaining();
+
+        // a separate reader only learns the names from the meta data documents.
+        BinaryWire reader = new BinaryWire(bytes);
+        List<String> metaData = new ArrayList<>();
+        ReadMarshallable metaDataConsumer = w -> metaData.add(w.read(() -> "header").text());
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            assertTrue(reader.readDocument(metaDataConsumer, w -> w.read(() -> "bidPrice").float64(this, (o, d) -> assertEquals(1.5 + n, d, 0.0))
+                    .read(() -> "askPrice").float64(this, (o, d) -> assertEquals(2.5 + n, d, 0.0))
+                    .read(() -> "quote").marshallable(m -> m.read(() -> "bidPrice").int32(this, (o, x) -> assertEquals(n, x)))));
+        }
+        reader.unorderedFields(true);
+        assertTrue(reader.readDocument(metaDataConsumer, w -> w.read(() -> "venue").text(this, (o, s) -> assertEquals("LSE", s))
+                .read(() -> "askPrice").float64(this, (o, d) -> assertEquals(9.5, d, 0.0))));
+        assertEquals(Arrays.asList("user meta data"), metaData);
+
+        bytes.clear();
+        BinaryWire plain = new BinaryWire(bytes);
+        for (int i = 0; i < 5; i++)
+            plain.writeDocument(false, w -> w.write(() -> "bidPrice").float64(1.5)
+                    .write(() -> "askPrice").float64(2.5)
+                    .write(() -> "quote").marshallable(m -> m.write(() -> "bidPrice").int32(1)));
+        plain.writeDocument(true, w -> w.write(() -> "header").text("user meta data"));
+        plain.writeDocument(false, w -> w.write(() -> "askPrice").float64(9.5)
+                .write(() -> "venue").text("LSE"));
+        assertTrue(dictionaryLength + " < " + bytes.readRemaining(), dictionaryLength < bytes.readRemaining());
+    }
+
+    @Test
+    public void fieldDictionaryDropsNamesOfFailedDocuments() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).fieldDictionary(true);
+        try {
+            wire.writeDocument(false, w -> {
+                w.write(() -> "lost").int32(1);
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException expected) {
+            bytes.clear();
+        }
+        wire.writeDocument(false, w -> w.write(() -> "kept").int32(2));
+
+        BinaryWire reader = new BinaryWire(bytes);
+        assertTrue(reader.readDocument(null, w -> w.read(() -> "kept").int32(this, (o, x) -> assertEquals(2, x))));
+    }
+
+    @Test
+    public void stringTable() {
+        bytes.clear();
+        String[] symbols = {"EURUSD", "GBPUSD", "USDJPY"};
+        BinaryWire wire = new BinaryWire(bytes).stringTable(16);
+        for (int i = 0; i < 30; i++) {
+            String symbol = symbols[i % symbols.length];
+            wire.writeDocument(false, w -> w.write(() -> "symbol").text(symbol)
+                    .write(() -> "venue").text("XLON")
+                    .write(() -> "id").text("ab"));
+        }
+        long tableLength = bytes.readRemaining();
+
+        // a separate reader gets the same String for each reference.
+        BinaryWire reader = new BinaryWire(bytes);
+        String[] read = new String[30];
+        for (int i = 0; i < 30; i++) {
+            int n = i;
+            assertTrue(reader.readDocument(null, w -> {
+                read[n] = w.read(() -> "symbol").text();
+                assertEquals("XLON", w.read(() -> "venue").text());
+                assertEquals("ab", w.read(() -> "id").text());
+            }));
+            assertEquals(symbols[i % symbols.length], read[i]);
+        }
+        assertSame(read[0], read[3]);
+
+        bytes.clear();
+        BinaryWire plain = new BinaryWire(bytes);
+        for (int i = 0; i < 30; i++) {
+            String symbol = symbols[i % symbols.length];
+            plain.writeDocument(false, w -> w.write(() -> "symbol").text(symbol)
+                    .write(() -> "venue").text("XLON")
+                    .write(() -> "id").text("ab"));
+        }
+        assertTrue(tableLength + " < " + bytes.readRemaining(), tableLength < bytes.readRemaining());
+    }
+
+    @Test
+    public void stringTableEvicts() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).stringTable(2, 16, false);
+        String[] symbols = {"EURUSD", "GBPUSD", "EURUSD", "USDJPY", "GBPUSD", "EURUSD", "A very long symbol name"};
+        for (String symbol : symbols)
+            wire.writeDocument(false, w -> w.write(() -> "symbol").text(symbol));
+
+        BinaryWire reader = new BinaryWire(bytes);
+        for (String symbol : symbols)
+            assertTrue(reader.readDocument(null, w -> assertEquals(symbol, w.read(() -> "symbol").text())));
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void stringTableMustBeReadFromTheStart() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).stringTable(16);
+        wire.writeDocument(false, w -> w.write(() -> "symbol").text("EURUSD"));
+        wire.writeDocument(false, w -> w.write(() -> "symbol").text("EURUSD"));
+
+        // skip the first document as the reader started after it.
+        bytes.readSkip(4 + Wires.lengthOf(bytes.readInt(bytes.readPosition())));
+        new BinaryWire(bytes).readDocument(null, w -> w.read(() -> "symbol").text());
+    }
+
+    @Test
+    public void stringTableDefinitionsSurviveSkippedDocuments() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).stringTable(16);
+        wire.writeDocument(false, w -> w.write(() -> "symbol").text("EURUSD")
+                .write(() -> "price").text("1.125")
+                .write(() -> "qty").text("123456"));
+        wire.writeDocument(false, w -> w.write(() -> "symbol").text("EURUSD")
+                .write(() -> "price").text("1.125")
+                .write(() -> "qty").text("123456"));
+
+        // the first document isn't read at all, but the strings it used were defined ahead of it.
+        BinaryWire reader = new BinaryWire(bytes);
+        assertTrue(reader.readDocument(null, w -> {
+        }));
+        assertTrue(reader.readDocument(null, w -> {
+            assertEquals("EURUSD", w.read(() -> "symbol").text());
+            assertEquals(1.125, w.read(() -> "price").float64(), 0.0);
+            assertEquals(123456, w.read(() -> "qty").int64());
+        }));
+    }
+
+    @Test
+    public void stringTableDefinitionsFillTheRoomReserved() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).stringTable(64);
+        // a new string each time, one too long for the room reserved, then none at all.
+        String[] symbols = new String[12];
+        for (int i = 0; i < symbols.length; i++)
+            symbols[i] = i == 5 ? "A symbol much longer than the room reserved for the last one, which was only a few more bytes than it needed" : "SYM" + i;
+        symbols[10] = symbols[9];
+        symbols[11] = symbols[9];
+        for (String symbol : symbols)
+            wire.writeDocument(false, w -> w.write(() -> "symbol").text(symbol));
+
+        // the padding isn't passed on as meta data.
+        BinaryWire reader = new BinaryWire(bytes);
+        for (String symbol : symbols)
+            assertTrue(reader.readDocument(w -> fail("meta data"), w -> assertEquals(symbol, w.read(() -> "symbol").text())));
+        assertFalse(reader.readDocument(w -> fail("meta data"), w -> fail("data")));
+    }
+
+    @Test
+    public void writeDocumentsArePublishedTogether() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes);
+        int[] written = {0};
+        wire.writeDocuments(false, 3, w -> {
+            // none of the batch can be read until all of it has been written.
+            assertFalse(new BinaryWire(bytes).readDocument(null, r -> {
+            }));
+            w.write(() -> "seq").int32(written[0]++);
+        });
+        assertEquals(3, written[0]);
+
+        BinaryWire reader = new BinaryWire(bytes);
+        for (int i = 0; i < 3; i++) {
+            int n = i;
+            assertTrue(reader.readDocument(null, r -> assertEquals(n, r.read(() -> "seq").int32())));
+        }
+        assertFalse(reader.readDocument(null, r -> {
+        }));
+    }
+
+    @Test
+    public void writeDocumentsWithFieldDictionary() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).fieldDictionary(true);
+        int[] written = {0};
+        wire.writeDocuments(false, 2, w -> w.write(() -> "seq").int32(written[0]++)
+                .write(() -> "venue").text("XLON"));
+
+        BinaryWire reader = new BinaryWire(bytes);
+        for (int i = 0; i < 2; i++) {
+            int n = i;
+            assertTrue(reader.readDocument(null, r -> {
+                assertEquals(n, r.read(() -> "seq").int32());
+                assertEquals("XLON", r.read(() -> "venue").text());
+            }));
+        }
+    }
+
+    @Test
+    public void writeNotReadyDocumentWithFieldDictionary() {
+        bytes.clear();
+        BinaryWire wire = new BinaryWire(bytes).fieldDictionary(true);
+        wire.writeNotReadyDocument(false, w -> w.write(() -> "seq").int32(1));
+
+        // the names are defined, but the document they were inserted ahead of is still not ready.
+        long length = 4 + Wires.lengthOf(bytes.readInt(bytes.readPosition()));
+        assertTrue(Wires.isReady(bytes.readInt(bytes.readPosition())));
+        assertFalse(Wires.isReady(bytes.readInt(bytes.readPosition() + length)));
+    }
+
+    enum Fields implements WireKey {
+        ONE, TWO, THREE;
+
+        @Override
+        public int code() {
+            return ordinal() + 1;
+        }
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteScannerTest {
+    @Test
+    public void zeroBytesFlagsOnlyZeroBytes() {
+        // a zero byte next to 0x01 and 0x80 bytes is where the borrow of the usual trick goes wrong.
+        long word = 0x0100800001008000L;
+        assertEquals(0x0000008000000080L | 0x0080000000800000L, ByteScanner.zeroBytes(word));
+        assertEquals(0, ByteScanner.zeroBytes(-1L));
+        assertEquals(0x8080808080808080L, ByteScanner.zeroBytes(0L));
+    }
+
+    @Test
+    public void indexOfAtEveryOffset() {
+        long quotes = ByteScanner.pattern('"'), backslashes = ByteScanner.pattern('\\');
+        for (int length = 0; length < 24; length++) {
+            for (int at = 0; at <= length; at++) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < length; i++)
+                    sb.append(i == at ? '"' : (char) ('a' + i));
+                Bytes bytes = Bytes.from(sb.toString());
+                assertEquals(at, ByteScanner.indexOf(bytes, 0, length, quotes, backslashes));
+                assertEquals(at, ByteScanner.indexOf(bytes, 0, length, backslashes, ByteScanner.pattern('{'), quotes));
+            }
+        }
+    }
+
+    @Test
+    public void isAscii() {
+        Bytes bytes = Bytes.from("plain text é more");
+        assertTrue(ByteScanner.isAscii(bytes, 0, 11));
+        assertFalse(ByteScanner.isAscii(bytes, 0, bytes.readLimit()));
+    }
+}
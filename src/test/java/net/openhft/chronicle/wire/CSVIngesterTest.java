@@ -0,0 +1,92 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class CSVIngesterTest {
+    private static final int ROWS = 10000;
+
+    @NotNull
+    private static File writeRows() throws IOException {
+        File file = File.createTempFile("rows", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("name,seq,price\n");
+            for (int i = 0; i < ROWS; i++)
+                writer.write("row" + i + "," + i + "," + (i + 0.5) + "\n");
+        }
+        return file;
+    }
+
+    @NotNull
+    private static Wire readDocuments(@NotNull File binary) throws IOException {
+        return new BinaryWire(Bytes.wrapForRead(Files.readAllBytes(binary.toPath())));
+    }
+
+    @Test
+    public void ingestsInOrder() throws IOException {
+        File binary = File.createTempFile("rows", ".data");
+        binary.deleteOnExit();
+        // small chunks so many are parsed at once.
+        long rows = new CSVIngester(4).chunkSize(1000).ingest(writeRows(), binary);
+        assertEquals(ROWS, rows);
+
+        Wire wire = readDocuments(binary);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            int n = i;
+            assertTrue(wire.readDocument(null, w -> {
+                w.read(() -> "name").textTo(name);
+                assertEquals("row" + n, name.toString());
+                assertEquals(Integer.toString(n), w.read(() -> "seq").text());
+                assertEquals(Double.toString(n + 0.5), w.read(() -> "price").text());
+            }));
+        }
+        assertFalse(wire.readDocument(null, w -> fail()));
+    }
+
+    @Test
+    public void rowWriter() throws IOException {
+        File binary = File.createTempFile("rows", ".data");
+        binary.deleteOnExit();
+        new CSVIngester(2).chunkSize(4096)
+                .rowWriter((csv, out) -> csv.readEventName(new StringBuilder()).marshallable(row -> {
+                    out.write(() -> "seq").int64(row.read(() -> "seq").int64());
+                    out.write(() -> "price").float64(row.read(() -> "price").float64());
+                }))
+                .ingest(writeRows(), binary);
+
+        Wire wire = readDocuments(binary);
+        for (int i = 0; i < ROWS; i++) {
+            int n = i;
+            assertTrue(wire.readDocument(null, w -> {
+                assertEquals(n, w.read(() -> "seq").int64());
+                assertEquals(n + 0.5, w.read(() -> "price").float64(), 0.0);
+            }));
+        }
+    }
+}
@@ -16,8 +16,14 @@
 
 package net.openhft.chronicle.wire;
 
+import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
 import static org.junit.Assert.*;
 
 /**
@@ -84,4 +90,78 @@ public class CSVWireTest {
         });
         assertFalse(wire.hasMore());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void project() {
+        CSVWire wire = CSVWire.from(
+                "name,seq,price,note\n" +
+                        "a,1,1.5,\"x, y\"\n" +
+                        ",2,2.5,z\n" +
+                        "c,3\n");
+        WireKey name = () -> "name", price = () -> "price", note = () -> "note";
+        wire.project(price, note, name);
+
+        assertTrue(wire.readRow(w -> {
+            assertEquals("x, y", w.read(note).text());
+            assertEquals(1.5, w.read(price).float64(), 0.0);
+            assertEquals("a", w.read(name).text());
+        }));
+        assertTrue(wire.readRow(w -> {
+            assertEquals("", w.read(name).text());
+            assertEquals("z", w.read(() -> "note").text());
+            assertEquals(2.5, w.read(price).float64(), 0.0);
+        }));
+        assertTrue(wire.readRow(w -> {
+            assertEquals("", w.read(note).text());
+            assertEquals("c", w.read(name).text());
+        }));
+        assertFalse(wire.readRow(w -> fail()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectUnknownColumn() {
+        CSVWire.from("name,seq\n").project(() -> "price");
+    }
+
+    @NotNull
+    private static File writeRows(int rows) throws IOException {
+        File file = File.createTempFile("rows", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("name,seq,price\n");
+            for (int i = 0; i < rows; i++)
+                writer.write("row" + i + "," + i + "," + (i + 0.5) + "\n");
+        }
+        return file;
+    }
+
+    private void assertRows(@NotNull Wire wire, int rows) {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            int n = i;
+            assertTrue(wire.hasMore());
+            wire.readEventName(row).marshallable(w -> {
+                assertEquals("row" + n, row.toString());
+                w.read(() -> "seq").int32(this, (o, x) -> assertEquals(n, x))
+                        .read(() -> "price").float64(this, (o, d) -> assertEquals(n + 0.5, d, 0.0));
+            });
+        }
+        assertFalse(wire.hasMore());
+    }
+
+    @Test
+    public void fromFile() throws IOException {
+        File file = writeRows(1000);
+        assertRows(CSVWire.fromFile(file.getPath()), 1000);
+        assertRows(Wire.fromFile(file.getPath()), 1000);
+    }
+
+    @Test
+    public void fromFileInChunks() throws IOException {
+        File file = writeRows(1000);
+        FileInput input = FileInput.chunked(file, 256, true);
+        CSVWire wire = new CSVWire(input.bytes(), true);
+        wire.input = input;
+        assertRows(wire, 1000);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static net.openhft.chronicle.bytes.NativeBytes.nativeBytes;
+import static org.junit.Assert.assertEquals;
+
+public class CompiledBinaryReaderTest {
+    @NotNull
+    Bytes bytes = nativeBytes();
+
+    private void assertRead(@NotNull Wire wire, @NotNull CompiledBinaryReader reader, @NotNull Order expected) {
+        Order order = new Order();
+        wire.readDocument(null, w -> reader.read(w, order));
+        assertEquals(expected, order);
+    }
+
+    @Test
+    public void fixedWidthMessagesMatch() {
+        Wire wire = new BinaryWire(bytes, true, false, false);
+        CompiledBinaryReader reader = new CompiledBinaryReader();
+        for (int i = 0; i < 10; i++) {
+            Order order = new Order(i * 1000000007L, 100.25 + i, i * 100, i % 2 == 0, "EURUSD", 1.5 * i, 1.25 * i);
+            wire.writeDocument(false, order);
+            assertRead(wire, reader, order);
+        }
+        // the first was recorded.
+        assertEquals(9, reader.matched());
+        assertEquals(0, reader.unmatched());
+    }
+
+    @Test
+    public void compactNumbersWhichKeepTheirShapeMatch() {
+        Wire wire = new BinaryWire(bytes);
+        CompiledBinaryReader reader = new CompiledBinaryReader();
+        for (int i = 0; i < 10; i++) {
+            Order order = new Order(i, i + 0.5, 100 + i, i % 2 == 0, "GBPUSD", 1.5, 2.5);
+            wire.writeDocument(false, order);
+            assertRead(wire, reader, order);
+        }
+        assertEquals(9, reader.matched());
+    }
+
+    @Test
+    public void differentShapesReadTheUsualWay() {
+        Wire wire = new BinaryWire(bytes, true, false, false);
+        CompiledBinaryReader reader = new CompiledBinaryReader();
+        Order first = new Order(1, 1.5, 10, true, "EURUSD", 1, 2);
+        wire.writeDocument(false, first);
+        assertRead(wire, reader, first);
+
+        // a longer symbol changes the length of the document
+        Order longer = new Order(2, 2.5, 20, false, "EURUSD.SPOT", 3, 4);
+        wire.writeDocument(false, longer);
+        assertRead(wire, reader, longer);
+
+        // fields in a different order
+        wire.writeDocument(false, w -> w.write(() -> "qty").int32(30)
+                .write(() -> "id").int64(3)
+                .write(() -> "price").float64(3.5)
+                .write(() -> "buy").bool(true)
+                .write(() -> "symbol").text("USDJPY")
+                .write(() -> "quote").marshallable(m -> m.write(() -> "bid").float64(5)
+                        .write(() -> "ask").float64(6)));
+        BinaryWire binaryWire = (BinaryWire) wire;
+        binaryWire.unorderedFields(true);
+        assertRead(wire, reader, new Order(3, 3.5, 30, true, "USDJPY", 5, 6));
+
+        assertEquals(0, reader.matched());
+        assertEquals(2, reader.unmatched());
+
+        Order same = new Order(4, 4.5, 40, false, "GBPUSD", 7, 8);
+        wire.writeDocument(false, same);
+        assertRead(wire, reader, same);
+        assertEquals(1, reader.matched());
+    }
+
+    @Test
+    public void recordsAgainWhenMostDoNotMatch() {
+        Wire wire = new BinaryWire(bytes, true, false, false);
+        CompiledBinaryReader reader = new CompiledBinaryReader();
+        Order first = new Order(1, 1.5, 10, true, "EUR", 1, 2);
+        wire.writeDocument(false, first);
+        assertRead(wire, reader, first);
+
+        for (int i = 0; i < 20; i++) {
+            Order order = new Order(i, i, i, true, "EURUSD", i, i);
+            wire.writeDocument(false, order);
+            assertRead(wire, reader, order);
+        }
+        // 15 didn't match, the 16th was recorded and the rest matched.
+        assertEquals(4, reader.matched());
+        assertEquals(0, reader.unmatched());
+    }
+
+    @Test
+    public void otherWiresReadTheUsualWay() {
+        Wire wire = new TextWire(bytes);
+        CompiledBinaryReader reader = new CompiledBinaryReader();
+        Order order = new Order(1, 1.5, 10, true, "EURUSD", 1, 2);
+        wire.writeDocument(false, order);
+        assertRead(wire, reader, order);
+        wire.writeDocument(false, order);
+        assertRead(wire, reader, order);
+        assertEquals(0, reader.matched());
+    }
+
+    static class Order implements Marshallable {
+        long id;
+        double price;
+        int qty;
+        boolean buy;
+        String symbol;
+        final Quote quote = new Quote();
+
+        Order() {
+        }
+
+        Order(long id, double price, int qty, boolean buy, String symbol, double bid, double ask) {
+            this.id = id;
+            this.price = price;
+            this.qty = qty;
+            this.buy = buy;
+            this.symbol = symbol;
+            quote.bid = bid;
+            quote.ask = ask;
+        }
+
+        @Override
+        public void readMarshallable(@NotNull WireIn wire) {
+            wire.read(() -> "id").int64(this, (o, x) -> o.id = x)
+                    .read(() -> "price").float64(this, (o, x) -> o.price = x)
+                    .read(() -> "qty").int32(this, (o, x) -> o.qty = x)
+                    .read(() -> "buy").bool(this, (o, x) -> o.buy = x)
+                    .read(() -> "symbol").text(this, (o, x) -> o.symbol = x)
+                    .read(() -> "quote").marshallable(quote);
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire) {
+            wire.write(() -> "id").int64(id)
+                    .write(() -> "price").float64(price)
+                    .write(() -> "qty").int32(qty)
+                    .write(() -> "buy").bool(buy)
+                    .write(() -> "symbol").text(symbol)
+                    .write(() -> "quote").marshallable(quote);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Order && toString().equals(o.toString());
+        }
+
+        @Override
+        public int hashCode() {
+            return toString().hashCode();
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "Order{id=" + id + ", price=" + price + ", qty=" + qty + ", buy=" + buy +
+                    ", symbol='" + symbol + "', bid=" + quote.bid + ", ask=" + quote.ask + '}';
+        }
+    }
+
+    static class Quote implements Marshallable {
+        double bid;
+        double ask;
+
+        @Override
+        public void readMarshallable(@NotNull WireIn wire) {
+            wire.read(() -> "bid").float64(this, (o, x) -> o.bid = x)
+                    .read(() -> "ask").float64(this, (o, x) -> o.ask = x);
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire) {
+            wire.write(() -> "bid").float64(bid)
+                    .write(() -> "ask").float64(ask);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeltaWireTest {
+    @Test
+    public void writesOnlyWhatChanged() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        DeltaWire writer = new DeltaWire(new BinaryWire(bytes), 3);
+        Quote quote = new Quote("EURUSD", 1.1, 1.2, 1_000_000);
+        assertTrue(writer.write("EURUSD", quote));
+        long snapshot = bytes.writePosition();
+
+        quote.bid = 1.15;
+        assertTrue(writer.write("EURUSD", quote));
+        assertTrue(bytes.writePosition() - snapshot < snapshot);
+        assertFalse(writer.write("EURUSD", quote));
+
+        assertTrue(writer.write("GBPUSD", new Quote("GBPUSD", 1.3, 1.4, 5)));
+        quote.ask = 1.25;
+        quote.size = 2;
+        assertTrue(writer.write("EURUSD", quote));
+        // the third value since the last snapshot is written in full.
+        quote.size = 3;
+        assertTrue(writer.write("EURUSD", quote));
+
+        DeltaWire reader = new DeltaWire(new BinaryWire(bytes));
+        Quote read = new Quote(null, 0, 0, 0);
+        assertRead(reader, read, "EURUSD", 1.1, 1.2, 1_000_000);
+        assertRead(reader, read, "EURUSD", 1.15, 1.2, 1_000_000);
+        assertRead(reader, read, "GBPUSD", 1.3, 1.4, 5);
+        assertRead(reader, read, "EURUSD", 1.15, 1.25, 2);
+        assertRead(reader, read, "EURUSD", 1.15, 1.25, 3);
+        assertFalse(reader.readDocument(read));
+        writer.close();
+        reader.close();
+    }
+
+    @Test
+    public void resyncsOnTheNextSnapshot() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        DeltaWire writer = new DeltaWire(new TextWire(bytes), 2);
+        Quote quote = new Quote("EURUSD", 1.1, 1.2, 10);
+        writer.write("EURUSD", quote);
+        long joined = bytes.writePosition();
+        quote.size = 11;
+        writer.write("EURUSD", quote);
+        quote.size = 12;
+        writer.write("EURUSD", quote);
+
+        bytes.readPosition(joined);
+        DeltaWire reader = new DeltaWire(new TextWire(bytes));
+        Quote read = new Quote(null, 0, 0, 0);
+        assertTrue(reader.readDocument(read));
+        assertNull(reader.key());
+        assertRead(reader, read, "EURUSD", 1.1, 1.2, 12);
+        writer.close();
+        reader.close();
+    }
+
+    private static void assertRead(DeltaWire reader, Quote read, String key, double bid, double ask, long size) {
+        assertTrue(reader.readDocument(read));
+        assertEquals(key, reader.key());
+        assertEquals(key, read.symbol);
+        assertEquals(bid, read.bid, 0.0);
+        assertEquals(ask, read.ask, 0.0);
+        assertEquals(size, read.size);
+    }
+
+    static class Quote implements Marshallable {
+        String symbol;
+        double bid, ask;
+        long size;
+
+        Quote(String symbol, double bid, double ask, long size) {
+            this.symbol = symbol;
+            this.bid = bid;
+            this.ask = ask;
+            this.size = size;
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire) {
+            wire.write(() -> "symbol").text(symbol)
+                    .write(() -> "bid").float64(bid)
+                    .write(() -> "ask").float64(ask)
+                    .write(() -> "size").int64(size);
+        }
+
+        @Override
+        public void readMarshallable(@NotNull WireIn wire) {
+            symbol = wire.read(() -> "symbol").text();
+            bid = wire.read(() -> "bid").float64();
+            ask = wire.read(() -> "ask").float64();
+            size = wire.read(() -> "size").int64();
+        }
+    }
+}
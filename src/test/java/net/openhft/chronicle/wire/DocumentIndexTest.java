@@ -0,0 +1,62 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import static net.openhft.chronicle.bytes.NativeBytes.nativeBytes;
+import static org.junit.Assert.*;
+
+public class DocumentIndexTest {
+    @Test
+    public void findsDocumentsBySequence() {
+        Bytes indexBytes = nativeBytes();
+        DocumentIndex.write(indexBytes, 16, 64);
+        assertEquals(DocumentIndex.length(64), indexBytes.readRemaining());
+        DocumentIndex index = new DocumentIndex(indexBytes, 0);
+        assertEquals(16, index.stride());
+
+        Bytes bytes = nativeBytes();
+        Wire wire = new BinaryWire(bytes);
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            assertEquals(i, index.writeDocument(wire, w -> w.write(() -> "seq").int32(n)));
+            // meta-data documents aren't counted.
+            if (i % 7 == 0)
+                wire.writeDocument(true, w -> w.write(() -> "header").text("meta data " + n));
+        }
+        assertEquals(1000, index.documents());
+
+        Wire reader = new BinaryWire(bytes);
+        for (int i : new int[]{0, 1, 15, 16, 17, 500, 999}) {
+            int n = i;
+            assertTrue(index.readDocument(reader, i, w -> assertEquals(n, w.read(() -> "seq").int32())));
+        }
+        assertEquals(-1, index.positionOf(bytes, 1000));
+        assertFalse(index.readDocument(reader, 1000, w -> fail()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwsWhenFull() {
+        Bytes indexBytes = nativeBytes();
+        DocumentIndex.write(indexBytes, 4, 2);
+        DocumentIndex index = new DocumentIndex(indexBytes, 0);
+        Wire wire = new BinaryWire(nativeBytes());
+        for (int i = 0; i < 9; i++)
+            index.writeDocument(wire, w -> w.write(() -> "seq").int32(1));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MappedBytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+import static net.openhft.chronicle.bytes.NativeBytes.nativeBytes;
+import static org.junit.Assert.*;
+
+public class DocumentSpliteratorTest {
+    private static final int COUNT = 20000;
+
+    private static void writeDocuments(@NotNull Wire wire) {
+        for (int i = 0; i < COUNT; i++) {
+            int n = i;
+            wire.writeDocument(false, w -> w.write(() -> "seq").int64(n)
+                    .write(() -> "text").text("some text to make it longer"));
+            if (i % 100 == 0)
+                wire.writeDocument(true, w -> w.write(() -> "header").text("skipped"));
+        }
+    }
+
+    private static void assertAllRead(@NotNull Stream<WireIn> documents) {
+        try (Stream<WireIn> stream = documents) {
+            long[] seqs = stream.parallel()
+                    .mapToLong(w -> w.read(() -> "seq").int64())
+                    .toArray();
+            assertEquals(COUNT, seqs.length);
+            for (int i = 0; i < COUNT; i++)
+                assertEquals(i, seqs[i]);
+        }
+    }
+
+    @Test
+    public void readsEveryDocumentInParallel() {
+        for (WireType wireType : new WireType[]{WireType.BINARY, WireType.TEXT}) {
+            Bytes bytes = nativeBytes();
+            writeDocuments(wireType.apply(bytes));
+            assertAllRead(Wires.documents(bytes, 0, bytes.writePosition(), wireType));
+        }
+    }
+
+    @Test
+    public void splitsOnHeaders() {
+        Bytes bytes = nativeBytes();
+        writeDocuments(new BinaryWire(bytes));
+        Spliterator<WireIn> suffix = new DocumentSpliterator(bytes::bytesForRead, WireType.BINARY, 0, bytes.writePosition());
+        Spliterator<WireIn> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        long[] count = {0, 0};
+        prefix.forEachRemaining(w -> count[0]++);
+        suffix.forEachRemaining(w -> count[1]++);
+        assertTrue(count[0] > 0 && count[1] > 0);
+        assertEquals(COUNT, count[0] + count[1]);
+    }
+
+    @Test
+    public void stopsAtAnIncompleteDocument() {
+        Bytes bytes = nativeBytes();
+        Wire wire = new BinaryWire(bytes);
+        wire.writeDocument(false, w -> w.write(() -> "seq").int64(0));
+        long incomplete = bytes.writePosition();
+        wire.writeDocument(false, w -> w.write(() -> "seq").int64(1));
+        bytes.writeInt(incomplete, Wires.NOT_READY | Wires.UNKNOWN_LENGTH);
+        assertEquals(1, Wires.documents(bytes, 0, bytes.writePosition(), WireType.BINARY).count());
+    }
+
+    @Test
+    public void readsAFile() throws IOException {
+        File file = File.createTempFile("documents", ".data");
+        file.deleteOnExit();
+        MappedBytes bytes = MappedBytes.mappedBytes(file, 64 << 10);
+        writeDocuments(new BinaryWire(bytes));
+        bytes.release();
+        // the rest of the last chunk is zeros.
+        long length = file.length();
+        assertTrue(file.setReadOnly());
+        assertAllRead(Wires.documents(file, WireType.BINARY));
+        assertEquals(length, file.length());
+    }
+}
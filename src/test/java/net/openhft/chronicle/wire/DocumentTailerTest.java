@@ -0,0 +1,82 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.MappedBytes;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DocumentTailerTest {
+    private static final long CHUNK_SIZE = 64 << 10;
+
+    @Test
+    public void followsTheFileAcrossChunksAndResumes() throws IOException {
+        File file = File.createTempFile("tailer", ".data");
+        File positionFile = File.createTempFile("tailer", ".position");
+        file.deleteOnExit();
+        positionFile.deleteOnExit();
+
+        MappedBytes bytes = MappedBytes.mappedBytes(file, CHUNK_SIZE);
+        Wire writer = new BinaryWire(bytes);
+        List<Integer> seqs = new ArrayList<>();
+        ReadMarshallable reader = w -> seqs.add(w.read(() -> "seq").int32());
+        try (DocumentTailer tailer = new DocumentTailer(file, WireType.BINARY, positionFile, CHUNK_SIZE)) {
+            assertFalse(tailer.readDocument(null, reader));
+            // enough to need several chunks.
+            for (int i = 0; i < 10000; i++) {
+                int n = i;
+                writer.writeDocument(false, w -> w.write(() -> "seq").int32(n)
+                        .write(() -> "text").text("0123456789012345678901234567890123456789"));
+                if (i % 100 == 0)
+                    while (tailer.readDocument(null, reader)) {
+                    }
+            }
+            while (tailer.readDocument(null, reader)) {
+            }
+            assertEquals(10000, seqs.size());
+            for (int i = 0; i < seqs.size(); i++)
+                assertEquals(i, (int) seqs.get(i));
+        }
+
+        writer.writeDocument(false, w -> w.write(() -> "seq").int32(10000));
+        try (DocumentTailer tailer = new DocumentTailer(file, WireType.BINARY, positionFile, CHUNK_SIZE)) {
+            assertTrue(tailer.readDocument(null, reader));
+            assertEquals(10000, (int) seqs.get(seqs.size() - 1));
+            assertFalse(tailer.readDocument(null, reader));
+        }
+        bytes.release();
+    }
+
+    @Test
+    public void awaitDocumentTimesOut() throws IOException {
+        File file = File.createTempFile("tailer", ".data");
+        file.deleteOnExit();
+        try (DocumentTailer tailer = new DocumentTailer(file, WireType.BINARY)
+                .waitStrategy(WaitStrategy.parking(TimeUnit.MICROSECONDS.toNanos(100)))) {
+            long start = System.nanoTime();
+            assertFalse(tailer.awaitDocument(null, w -> fail(), 10, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+            assertEquals(0, tailer.position());
+        }
+    }
+}
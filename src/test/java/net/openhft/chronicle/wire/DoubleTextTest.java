@@ -0,0 +1,105 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DoubleTextTest {
+    private static String text(double d) {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        DoubleText.append(bytes, d);
+        return bytes.toString();
+    }
+
+    private static String text(float f) {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        DoubleText.append(bytes, f);
+        return bytes.toString();
+    }
+
+    @Test
+    public void writesTheShortestText() {
+        assertEquals("0.0", text(0.0));
+        assertEquals("-0.0", text(-0.0));
+        assertEquals("1.0", text(1.0));
+        assertEquals("0.1", text(0.1));
+        assertEquals("0.001", text(0.001));
+        assertEquals("1.0E-4", text(1e-4));
+        assertEquals("123.456", text(123.456));
+        assertEquals("9999999.0", text(9999999.0));
+        assertEquals("1.0E7", text(1e7));
+        assertEquals("1.0E23", text(1e23));
+        assertEquals("4.9E-324", text(Double.MIN_VALUE));
+        assertEquals("9.9E-324", text(2 * Double.MIN_VALUE));
+        assertEquals("1.7976931348623157E308", text(Double.MAX_VALUE));
+        assertEquals("NaN", text(Double.NaN));
+        assertEquals("-Infinity", text(Double.NEGATIVE_INFINITY));
+
+        assertEquals("0.1", text(0.1f));
+        assertEquals("1.6777216E7", text(16777216f));
+        assertEquals("1.4E-45", text(Float.MIN_VALUE));
+        assertEquals("3.4028235E38", text(Float.MAX_VALUE));
+    }
+
+    @Test
+    public void roundTrips() {
+        Random random = new Random(1);
+        Bytes bytes = Bytes.elasticByteBuffer();
+        for (int i = 0; i < 100_000; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(d))
+                continue;
+            bytes.clear();
+            DoubleText.append(bytes, d);
+            String text = bytes.toString();
+            assertEquals(text, d, Double.parseDouble(text), 0.0);
+            assertEquals(text, d, DoubleText.parse(bytes), 0.0);
+        }
+    }
+
+    @Test
+    public void parsesAsDoubleParseDoubleDoes() {
+        String[] texts = {"0", "-1", "1.5", ".5", "0.1", "1e10", "1E-10", "123456789012345678", "9007199254740993",
+                "-97657018180034.88572", "2.2250738585072011e-308", "4.9e-324", "1.7976931348623157e308",
+                "1e400", "1e-400", "0.000000000000000000000000001234"};
+        for (String text : texts) {
+            Bytes bytes = Bytes.from(text);
+            assertEquals(text, Double.parseDouble(text), DoubleText.parse(bytes), 0.0);
+        }
+    }
+
+    @Test
+    public void leavesTheTerminatorUnread() {
+        Bytes bytes = Bytes.from("1.25, 2");
+        assertEquals(1.25, DoubleText.parse(bytes), 0.0);
+        assertEquals(',', bytes.readUnsignedByte());
+    }
+
+    @Test
+    public void readsAFloatWrittenAsItsShortestText() {
+        Wire wire = new TextWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "f").float32(0.1f)
+                .write(() -> "d").float64(0.1);
+        assertEquals("f: 0.1\nd: 0.1\n", wire.bytes().toString());
+        assertEquals(0.1f, wire.read(() -> "f").float32(), 0.0f);
+        assertEquals(0.1, wire.read(() -> "d").float64(), 0.0);
+    }
+}
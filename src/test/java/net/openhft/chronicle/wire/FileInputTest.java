@@ -0,0 +1,111 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+public class FileInputTest {
+    @NotNull
+    private static File write(String text) throws IOException {
+        File file = File.createTempFile("records", ".yaml");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(text);
+        }
+        return file;
+    }
+
+    @NotNull
+    private static TextWire chunked(File file, int chunkSize) throws IOException {
+        FileInput input = FileInput.chunked(file, chunkSize, false);
+        TextWire wire = new TextWire(input.bytes(), true);
+        wire.input = input;
+        return wire;
+    }
+
+    @Test
+    public void refillsBeforeTheLastRecordInTheBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            text.append("# order ").append(i).append("\n")
+                    .append("order").append(i).append(": {\n")
+                    .append("  seq: ").append(i).append(",\n")
+                    .append("  side: BUY\n")
+                    .append("}\n");
+        TextWire wire = chunked(write(text.toString()), 128);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            assertTrue(wire.hasMore());
+            wire.readEventName(name).marshallable(w -> {
+                assertEquals(n, w.read(() -> "seq").int32());
+                assertEquals("BUY", w.read(() -> "side").text());
+            });
+            assertEquals("order" + i, name.toString());
+        }
+        assertFalse(wire.hasMore());
+    }
+
+    @Test
+    public void readingTopLevelFieldsRefills() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            text.append("field").append(i).append(": ").append(i).append("\n");
+        TextWire wire = chunked(write(text.toString()), 64);
+        // without hasMore() between them.
+        for (int i = 0; i < 100; i++) {
+            String name = "field" + i;
+            assertEquals(i, wire.read(() -> name).int32());
+        }
+    }
+
+    @Test
+    public void quotedCellsAreNotSplit() throws IOException {
+        StringBuilder text = new StringBuilder("name,note\n");
+        for (int i = 0; i < 50; i++)
+            text.append("row").append(i).append(",\"first line\nsecond line ").append(i).append("\"\n");
+        FileInput input = FileInput.chunked(write(text.toString()), 96, true);
+        CSVWire wire = new CSVWire(input.bytes(), true);
+        wire.input = input;
+        WireKey note = () -> "note";
+        wire.project(note);
+        for (int i = 0; i < 50; i++) {
+            String expected = "first line\nsecond line " + i;
+            assertTrue(wire.readRow(w -> assertEquals(expected, w.read(note).text())));
+        }
+        assertFalse(wire.readRow(w -> fail()));
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void recordLargerThanTheBuffer() throws IOException {
+        StringBuilder text = new StringBuilder("small: 1\nlarge: {\n");
+        for (int i = 0; i < 20; i++)
+            text.append("  field").append(i).append(": ").append(i).append(",\n");
+        text.append("}\nlast: 2\n");
+        TextWire wire = chunked(write(text.toString()), 128);
+        assertEquals(1, wire.read(() -> "small").int32());
+        wire.hasMore();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.values.LongValue;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FixedLayoutWireTest {
+    @Test
+    public void everyRecordHasTheSameLayout() {
+        FixedLayoutWire wire = (FixedLayoutWire) WireType.FIXED_LAYOUT.apply(Bytes.elasticByteBuffer());
+        wire.writeRecord(new Order("EURUSD", 1_000_000, 1.125, 5));
+        long size = wire.bytes().writePosition();
+        wire.writeRecord(new Order(null, -1, 0.5, 6));
+        assertEquals(2 * size, wire.bytes().writePosition());
+        assertEquals(0, size % FixedLayoutWire.RECORD_ALIGNMENT);
+
+        FixedLayout layout = FixedLayout.of(new Order("", 0, 0, 0));
+        assertEquals(size, layout.recordSize());
+        assertEquals("[symbol, qty, price, limits, limits.max]", layout.fields().toString());
+        // the text slot of 2 + 32 bytes is padded to 40, and limits has 4 bytes of padding before its length.
+        assertEquals(40, layout.offset("qty"));
+        assertEquals(64, layout.offset("limits.max"));
+
+        Order order = new Order(null, 0, 0, 0);
+        wire.readRecord(order);
+        assertEquals("EURUSD", order.symbol);
+        assertEquals(1_000_000, order.qty);
+        assertEquals(1.125, order.price, 0.0);
+        assertEquals(5, order.limit.max);
+        wire.readRecord(order);
+        assertNull(order.symbol);
+        assertEquals(-1, order.qty);
+        assertEquals(6, order.limit.max);
+    }
+
+    @Test
+    public void updateInPlace() {
+        FixedLayoutWire wire = new FixedLayoutWire(Bytes.elasticByteBuffer(), 8);
+        for (int i = 0; i < 3; i++)
+            wire.writeRecord(new Order("ABC", i, i, i));
+        FixedLayout layout = FixedLayout.of(new Order("", 0, 0, 0), 8);
+
+        Bytes bytes = wire.bytes();
+        LongValue qty = layout.bind(new BinaryLongReference(), bytes, layout.recordSize(), () -> "qty");
+        qty.setOrderedValue(qty.getValue() + 100);
+        LongValue max = layout.bind(new BinaryLongReference(), bytes, 2 * layout.recordSize(), () -> "limits.max");
+        max.setOrderedValue(42);
+
+        Order order = new Order(null, 0, 0, 0);
+        wire.readRecord(order);
+        assertEquals(0, order.qty);
+        wire.readRecord(order);
+        assertEquals(101, order.qty);
+        wire.readRecord(order);
+        assertEquals(42, order.limit.max);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void textLongerThanItsSlot() {
+        new FixedLayoutWire(Bytes.elasticByteBuffer(), 4).writeRecord(new Order("EURUSD", 1, 1, 1));
+    }
+
+    @Test
+    public void textTooLongLeavesTheRecordUnchanged() {
+        FixedLayoutWire wire = new FixedLayoutWire(Bytes.elasticByteBuffer(), 8);
+        wire.writeRecord(new Order("ABC", 7, 1.5, 9));
+        Bytes bytes = wire.bytes();
+        long end = bytes.writePosition();
+        // five two byte chars don't fit in eight bytes.
+        bytes.writePosition(0);
+        try {
+            wire.getValueOut().text("\u00e9\u00e9\u00e9\u00e9\u00e9");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // nothing was written.
+        }
+        bytes.writePosition(end);
+
+        Order order = new Order(null, 0, 0, 0);
+        wire.readRecord(order);
+        assertEquals("ABC", order.symbol);
+        assertEquals(7, order.qty);
+        assertEquals(9, order.limit.max);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void longAfterAnIntIsNotAligned() {
+        FixedLayout.of(w -> w.write(() -> "count").int32(1)
+                .write(() -> "price").int64(2));
+    }
+
+    static class Limit implements Marshallable {
+        long max;
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire) {
+            wire.write(() -> "max").int64(max);
+        }
+
+        @Override
+        public void readMarshallable(@NotNull WireIn wire) {
+            max = wire.read(() -> "max").int64();
+        }
+    }
+
+    static class Order implements Marshallable {
+        String symbol;
+        long qty;
+        double price;
+        final Limit limit = new Limit();
+
+        Order(String symbol, long qty, double price, long max) {
+            this.symbol = symbol;
+            this.qty = qty;
+            this.price = price;
+            limit.max = max;
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire) {
+            wire.write(() -> "symbol").text(symbol)
+                    .write(() -> "qty").int64(qty)
+                    .write(() -> "price").float64(price)
+                    .write(() -> "limits").marshallable(limit);
+        }
+
+        @Override
+        public void readMarshallable(@NotNull WireIn wire) {
+            symbol = wire.read(() -> "symbol").text();
+            qty = wire.read(() -> "qty").int64();
+            price = wire.read(() -> "price").float64();
+            wire.read(() -> "limits").marshallable(limit);
+        }
+    }
+}
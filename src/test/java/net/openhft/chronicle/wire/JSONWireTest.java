@@ -0,0 +1,158 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.IORuntimeException;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class JSONWireTest {
+    @Test
+    public void unorderedFields() {
+        TextWire wire = JSONWire.from("{\"b\": 2, \"list\": [1, {\"x\": \"]\"}], \"a\": \"hello\", \"c\": {\"d\": 4}}")
+                .unorderedFields(true);
+
+        wire.getValueIn().marshallable(m -> {
+            m.read(() -> "c").marshallable(c -> assertEquals(4, c.read(() -> "d").int32()));
+            assertEquals("hello", m.read(() -> "a").text());
+            assertEquals(2, m.read(() -> "b").int32());
+        });
+    }
+
+    @Test
+    public void strings() {
+        JSONWire wire = JSONWire.from("{\"a\": \"plain text longer than a word\", " +
+                "\"esc\\\"aped\": \"tab\\there \\\"quoted\\\" \\\\ \\/ \\u00e9\\ud83d\\ude00\", " +
+                "\"utf8\": \"caf\u00e9 \u20ac\", \"empty\": \"\"}");
+        wire.getValueIn().marshallable(m -> {
+            assertEquals("plain text longer than a word", m.read(() -> "a").text());
+            assertEquals("tab\there \"quoted\" \\ / \u00e9\ud83d\ude00", m.read(() -> "esc\"aped").text());
+            assertEquals("caf\u00e9 \u20ac", m.read(() -> "utf8").text());
+            assertEquals("", m.read(() -> "empty").text());
+        });
+    }
+
+    @Test
+    public void skipsStringsWhenUnordered() {
+        TextWire wire = JSONWire.from("{\"a\": \"x\\\"}, \\\\\", \"b\": 2}").unorderedFields(true);
+        wire.getValueIn().marshallable(m -> {
+            assertEquals(2, m.read(() -> "b").int32());
+            assertEquals("x\"}, \\", m.read(() -> "a").text());
+        });
+    }
+
+    @Test
+    public void encodedWireKeys() {
+        WireKey[] keys = {() -> "field", () -> "with space", () -> "quote\"d"};
+        for (Function<Bytes, Wire> wireType : Arrays.<Function<Bytes, Wire>>asList(TextWire::new, JSONWire::new)) {
+            Wire wire = wireType.apply(Bytes.elasticByteBuffer());
+            for (WireKey key : keys)
+                wire.write(key).int32(1);
+
+            Wire wire2 = wireType.apply(Bytes.elasticByteBuffer());
+            for (WireKey key : keys)
+                wire2.write(EncodedWireKey.of(key)).int32(1);
+            assertEquals(wire.toString(), wire2.toString());
+        }
+    }
+
+    @Test
+    public void readsJSONValues() {
+        Map<String, Object> map = (Map<String, Object>) JSONWire.from("{\"i\": -12, \"big\": 12345678901234567890, " +
+                "\"d\": 1.5e3, \"t\": true, \"n\": null, \"o\": {\"a\": [1, 2.5, \"x\", []]}}")
+                .getValueIn().object(Object.class);
+        assertEquals(-12L, map.get("i"));
+        assertEquals(1.2345678901234567E19, map.get("big"));
+        assertEquals(1500.0, map.get("d"));
+        assertEquals(Boolean.TRUE, map.get("t"));
+        assertTrue(map.containsKey("n"));
+        assertNull(map.get("n"));
+        Object[] a = (Object[]) ((Map) map.get("o")).get("a");
+        assertEquals(4, a.length);
+        assertEquals(1L, a[0]);
+        assertEquals(2.5, a[1]);
+        assertEquals("x", a[2]);
+        assertEquals(0, ((Object[]) a[3]).length);
+    }
+
+    @Test
+    public void readsWhatItWrites() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("k1", "v1");
+        map.put("k2", null);
+        Wire wire = new JSONWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "text").text("a \"b\"")
+                .write(() -> "none").text(null)
+                .write(() -> "int").int32(-5)
+                .write(() -> "ratio").float64(0.25)
+                .write(() -> "flag").bool(true)
+                .write(() -> "date").date(LocalDate.of(2016, 3, 14))
+                .write(() -> "bytes").bytes(new byte[]{0, 1, 2, -1})
+                .write(() -> "list").sequence(v -> {
+                    v.int32(1);
+                    v.marshallable(m -> m.write(() -> "x").int32(2));
+                })
+                .write(() -> "map").map(map)
+                .write(() -> "last").int32(3);
+
+        assertEquals("a \"b\"", wire.read(() -> "text").text());
+        assertNull(wire.read(() -> "none").text());
+        assertEquals(-5, wire.read(() -> "int").int32());
+        assertEquals(0.25, wire.read(() -> "ratio").float64(), 0.0);
+        assertTrue(wire.read(() -> "flag").bool());
+        List<LocalDate> dates = new ArrayList<>();
+        wire.read(() -> "date").date(dates, List::add);
+        assertEquals(Collections.singletonList(LocalDate.of(2016, 3, 14)), dates);
+        assertArrayEquals(new byte[]{0, 1, 2, -1}, wire.read(() -> "bytes").bytes());
+        List<Integer> values = new ArrayList<>();
+        wire.read(() -> "list").sequence(values, (l, v) -> {
+            l.add(v.int32());
+            v.marshallable(m -> l.add(m.read(() -> "x").int32()));
+        });
+        assertEquals(Arrays.asList(1, 2), values);
+        assertEquals(map, wire.read(() -> "map").map(String.class, String.class, new LinkedHashMap<>()));
+        assertEquals(3, wire.read(() -> "last").int32());
+        assertFalse(wire.hasMore());
+    }
+
+    @Test
+    public void rejectsWhatIsNotJSON() {
+        for (String json : new String[]{
+                "{a: 1}",
+                "{\"a\": 1 \"b\": 2}",
+                "{\"a\": 1,}",
+                "{\"a\": [1, 2,]}",
+                "{\"a\": 01}",
+                "{\"a\": 1.}",
+                "{\"a\": +1}",
+                "{\"a\": [1, 2}}",
+                "{\"a\": 'single'}",
+                "{\"a\": yes}"}) {
+            try {
+                JSONWire.from(json).getValueIn().object(Object.class);
+                fail(json);
+            } catch (IORuntimeException expected) {
+                // not JSON
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MultiWriterAppenderTest {
+    @NotNull
+    private static Bytes<?> sharedBytes(int capacity) {
+        Bytes<?> bytes = Bytes.allocateDirect(capacity);
+        bytes.zeroOut(0, capacity);
+        return bytes;
+    }
+
+    @NotNull
+    private static Wire reader(@NotNull Bytes<?> bytes, @NotNull MultiWriterAppender appender) {
+        Bytes<?> readBytes = bytes.bytesStore().bytesForRead();
+        readBytes.readPosition(appender.documentsStart());
+        readBytes.readLimit(bytes.realCapacity());
+        return new BinaryWire(readBytes);
+    }
+
+    @Test
+    public void concurrentWritersAppendEveryDocument() throws Exception {
+        Bytes<?> bytes = sharedBytes(1 << 20);
+        int threads = 8, count = 1000;
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            futures.add(es.submit(() -> {
+                MultiWriterAppender appender = new MultiWriterAppender(bytes, 0, WireType.BINARY);
+                for (int i = 0; i < count; i++) {
+                    int n = i;
+                    appender.append(false, w -> w.write(() -> "writer").int32(writer)
+                            .write(() -> "seq").int32(n));
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.SECONDS));
+
+        Wire wire = reader(bytes, new MultiWriterAppender(bytes, 0, WireType.BINARY));
+        int[] next = new int[threads];
+        while (MultiWriterAppender.readDocument(wire, null, w -> {
+            int writer = w.read(() -> "writer").int32();
+            // each writer's documents are in the order it wrote them.
+            assertEquals(next[writer]++, w.read(() -> "seq").int32());
+        })) {
+        }
+        for (int n : next)
+            assertEquals(count, n);
+    }
+
+    @Test
+    public void readersStopAtUnwrittenDocumentsUntilAbandoned() {
+        Bytes<?> bytes = sharedBytes(1 << 12);
+        MultiWriterAppender appender = new MultiWriterAppender(bytes, 0, WireType.BINARY);
+        appender.append(false, w -> w.write(() -> "seq").int32(1));
+        // a writer which died after claiming its document.
+        long dead = bytes.readVolatileLong(0);
+        bytes.writeInt(dead, Wires.NOT_READY | 8);
+        bytes.writeOrderedLong(0, dead + 12);
+        long third = appender.append(false, w -> w.write(() -> "seq").int32(3));
+        assertEquals(dead + 12, third);
+
+        Wire wire = reader(bytes, appender);
+        List<Integer> seqs = new ArrayList<>();
+        ReadMarshallable reader = w -> seqs.add(w.read(() -> "seq").int32());
+        assertTrue(MultiWriterAppender.readDocument(wire, null, reader));
+        assertFalse(MultiWriterAppender.readDocument(wire, null, reader));
+        assertEquals(dead, wire.bytes().readPosition());
+
+        assertTrue(MultiWriterAppender.abandon(bytes, dead));
+        assertFalse(MultiWriterAppender.abandon(bytes, third));
+        assertTrue(MultiWriterAppender.readDocument(wire, null, reader));
+        assertEquals("[1, 3]", seqs.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void writersThrowWhenTheRegionIsFull() {
+        Bytes<?> bytes = sharedBytes(64);
+        MultiWriterAppender appender = new MultiWriterAppender(bytes, 0, WireType.BINARY);
+        for (int i = 0; i < 10; i++)
+            appender.append(false, w -> w.write(() -> "text").text("0123456789"));
+    }
+}
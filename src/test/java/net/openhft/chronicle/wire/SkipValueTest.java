@@ -0,0 +1,73 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SkipValueTest {
+    @Test
+    public void text() {
+        Wire wire = new TextWire(Bytes.from("a: { x: [ 1, '}' ], y: \"]\\\"\" }\n" +
+                "b: !type [ [ 1 ], { c: 3 } ]\n" +
+                "c: plain text\n" +
+                "d: 4\n"));
+        wire.read(() -> "a").skipValue();
+        wire.read(() -> "b").skipValue();
+        wire.read(() -> "c").skipValue();
+        assertEquals(4, wire.read(() -> "d").int32());
+    }
+
+    @Test
+    public void json() {
+        Wire wire = new JSONWire(Bytes.from("\"a\": [ 1, { \"x\": \"]\" } ], \"b\": \"q\\\"uote\", \"c\": { \"d\": [ ] }, \"e\": 5"));
+        wire.read(() -> "a").skipValue();
+        wire.read(() -> "b").skipValue();
+        wire.read(() -> "c").skipValue();
+        assertEquals(5, wire.read(() -> "e").int32());
+    }
+
+    @Test
+    public void binary() {
+        Wire wire = new BinaryWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "a").text("héllo wörld")
+                .write(() -> "b").marshallable(w -> w.write(() -> "x").float64(1.5).write(() -> "y").text("why"))
+                .write(() -> "c").int64(1L << 40)
+                .write(() -> "d").int32(6);
+        wire.read(() -> "a").skipValue();
+        wire.read(() -> "b").skipValue();
+        wire.read(() -> "c").skipValue();
+        assertEquals(6, wire.read(() -> "d").int32());
+    }
+
+    @Test
+    public void binaryOutsideTheBasicMultilingualPlane() {
+        Wire wire = new BinaryWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "a").text("\uD83D\uDE00 smile \uD83C\uDF89")
+                .write(() -> "b").int32(7);
+        wire.read(() -> "a").skipValue();
+        assertEquals(7, wire.read(() -> "b").int32());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rawHasNoLengths() {
+        Wire wire = new RawWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "a").int32(1);
+        wire.read(() -> "a").skipValue();
+    }
+}
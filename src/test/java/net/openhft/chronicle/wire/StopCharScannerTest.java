@@ -0,0 +1,81 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.StopCharTesters;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StopCharScannerTest {
+    private static final String[] TEXTS = {
+            "", "a", "short\"", "a longer value than one word\" rest",
+            "key: value", "a:b, c: d", "two, three", "ends with a colon:", "brace} here", "# comment"
+    };
+
+    @Test
+    public void parsesAsTheTesterDoes() {
+        StopCharScanner quotes = StopCharScanner.escaping(StopCharTesters.QUOTES);
+        StopCharScanner endOfText = StopCharScanner.escaping(TextStopCharsTesters.END_OF_TEXT);
+        for (String text : TEXTS) {
+            for (boolean use8bit : new boolean[]{false, true}) {
+                Bytes expected = Bytes.from(text), actual = Bytes.from(text);
+                StringBuilder sb1 = new StringBuilder(), sb2 = new StringBuilder("old");
+                if (text.isEmpty()) {
+                    assertFalse(quotes.tryParse(actual, sb2, use8bit));
+                    continue;
+                }
+                expected.parseUTF(sb1, StopCharTesters.QUOTES.escaping());
+                assertTrue(quotes.tryParse(actual, sb2, use8bit));
+                assertEquals(text, sb1.toString(), sb2.toString());
+                assertEquals(text, expected.readPosition(), actual.readPosition());
+
+                expected = Bytes.from(text);
+                actual = Bytes.from(text);
+                expected.parseUTF(sb1, TextStopCharsTesters.END_OF_TEXT.escaping());
+                assertTrue(endOfText.tryParse(actual, sb2, use8bit));
+                assertEquals(text, sb1.toString(), sb2.toString());
+                assertEquals(text, expected.readPosition(), actual.readPosition());
+            }
+        }
+    }
+
+    @Test
+    public void leavesEscapesToTheTester() {
+        StopCharScanner quotes = StopCharScanner.escaping(StopCharTesters.QUOTES);
+        Bytes bytes = Bytes.from("with an \\\" escaped quote\"");
+        assertFalse(quotes.tryParse(bytes, new StringBuilder(), false));
+        assertEquals(0, bytes.readPosition());
+    }
+
+    @Test
+    public void leavesMultiByteCharactersToTheTester() {
+        StopCharScanner quotes = StopCharScanner.escaping(StopCharTesters.QUOTES);
+        Bytes bytes = Bytes.elasticByteBuffer();
+        bytes.appendUtf8("café au lait\"");
+        assertFalse(quotes.tryParse(bytes, new StringBuilder(), false));
+        StringBuilder sb = new StringBuilder();
+        assertTrue(quotes.tryParse(bytes, sb, true));
+        assertEquals(13, sb.length());
+    }
+
+    @Test
+    public void sharesScannersForEnums() {
+        assertSame(StopCharScanner.of(StopCharTesters.SPACE_STOP), StopCharScanner.of(StopCharTesters.SPACE_STOP));
+        assertNull(StopCharScanner.of(StopCharTesters.QUOTES.escaping()));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StringTableTest {
+    @Test
+    public void findsByContent() {
+        StringTable table = new StringTable(4, 16, true);
+        assertEquals(-1, table.slotOf("EURUSD"));
+        assertEquals(0, table.add("EURUSD"));
+        assertEquals(1, table.add(new StringBuilder("GBPUSD")));
+        assertEquals(0, table.slotOf(new StringBuilder("EURUSD")));
+        assertEquals(1, table.slotOf("GBPUSD"));
+        assertEquals(-1, table.slotOf("USDJPY"));
+    }
+
+    @Test
+    public void acceptsOnlyLengthsWorthReferencing() {
+        StringTable table = new StringTable(4, 8, true);
+        assertFalse(table.accepts("ab"));
+        assertTrue(table.accepts("abcd"));
+        assertTrue(table.accepts("abcdefgh"));
+        assertFalse(table.accepts("abcdefghi"));
+    }
+
+    @Test
+    public void evictsTheOldest() {
+        StringTable table = new StringTable(2, 16, false);
+        table.add("EURUSD");
+        table.add("GBPUSD");
+        table.pendingDefined();
+        table.slotOf("EURUSD");
+        assertEquals(0, table.add("USDJPY"));
+        assertEquals(-1, table.slotOf("EURUSD"));
+        assertEquals(1, table.slotOf("GBPUSD"));
+        assertEquals(0, table.slotOf("USDJPY"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        StringTable table = new StringTable(2, 16, true);
+        table.add("EURUSD");
+        table.add("GBPUSD");
+        table.pendingDefined();
+        table.slotOf("EURUSD");
+        assertEquals(1, table.add("USDJPY"));
+        assertEquals(0, table.slotOf("EURUSD"));
+        assertEquals(-1, table.slotOf("GBPUSD"));
+        assertEquals(1, table.slotOf("USDJPY"));
+    }
+
+    @Test
+    public void findsTheRestAfterRemovingFromAChain() {
+        StringTable table = new StringTable(16, 16, false);
+        for (int i = 0; i < 16; i++)
+            table.add("symbol" + i);
+        table.pendingDefined();
+        for (int i = 16; i < 48; i++) {
+            table.add("symbol" + i);
+            table.pendingDefined();
+            for (int j = i - 15; j <= i; j++)
+                assertEquals("symbol" + j, j % 16, table.slotOf("symbol" + j));
+            assertEquals(-1, table.slotOf("symbol" + (i - 16)));
+        }
+    }
+
+    @Test
+    public void keepsPendingStrings() {
+        StringTable table = new StringTable(2, 16, false);
+        table.add("EURUSD");
+        table.pendingDefined();
+        table.add("GBPUSD");
+        // only the defined string can be replaced.
+        assertEquals(0, table.add("USDJPY"));
+        assertEquals(-1, table.add("AUDUSD"));
+        assertEquals(2, table.pendingCount());
+        table.pendingDefined();
+        assertEquals(1, table.add("AUDUSD"));
+    }
+}
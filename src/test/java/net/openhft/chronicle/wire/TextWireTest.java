@@ -1041,4 +1041,115 @@ public class TextWireTest {
 
     }
 
+    @Test
+    public void unorderedFields() {
+        TextWire wire = TextWire.from("price: 1.5\n" +
+                "quote: { bid: 10, ask: 11, note: \"a, b}\" }\n" +
+                "tags: [ x, { y: 1 } ]\n" +
+                "id: 128\n").unorderedFields(true);
+
+        assertEquals(128, wire.read(() -> "id").int64());
+        wire.read(() -> "quote").marshallable(m -> {
+            assertEquals(11, m.read(() -> "ask").int32());
+            assertEquals("a, b}", m.read(() -> "note").text());
+            assertEquals(10, m.read(() -> "bid").int32());
+        });
+        assertEquals(1.5, wire.read(() -> "price").float64(), 0.0);
+    }
+
+    @Test
+    public void visit() {
+        TextWire wire = TextWire.from("name: server\n" +
+                "port: 8080\n" +
+                "ratio: 0.75\n" +
+                "enabled: true\n" +
+                "hosts:\n" +
+                "  - alpha\n" +
+                "  - beta\n" +
+                "limits: { min: 1, max: [2, 3] }\n");
+        assertEquals("map key:name text:server key:port int:8080 key:ratio float:0.75 key:enabled bool:true " +
+                        "key:hosts seq text:alpha text:beta end " +
+                        "key:limits map key:min int:1 key:max seq int:2 int:3 end end end",
+                events(wire));
+    }
+
+    @Test
+    public void visitTypesAndNulls() {
+        TextWire wire = TextWire.from("---\n" +
+                "a: !MyType { x: \"1\" }\n" +
+                "b:\n" +
+                "c: 'quoted'\n");
+        assertEquals("map key:a type:MyType map key:x text:1 end key:b null key:c text:quoted end",
+                events(wire));
+    }
+
+    @Test
+    public void visitQuotedAndPlainScalars() {
+        TextWire wire = TextWire.from("a: 'true'\n" +
+                "b: \"false\"\n" +
+                "c: null\n" +
+                "d: ~\n" +
+                "e: [ null, ~, false ]\n" +
+                "f: \"12\"\n");
+        assertEquals("map key:a text:true key:b text:false key:c null key:d null " +
+                        "key:e seq null null bool:false end key:f text:12 end",
+                events(wire));
+    }
+
+    @NotNull
+    private static String events(@NotNull TextWire wire) {
+        StringBuilder events = new StringBuilder();
+        wire.visit(new YamlVisitor() {
+            @Override
+            public void startMap() {
+                events.append("map ");
+            }
+
+            @Override
+            public void key(@NotNull CharSequence key) {
+                events.append("key:").append(key).append(' ');
+            }
+
+            @Override
+            public void startSequence() {
+                events.append("seq ");
+            }
+
+            @Override
+            public void end() {
+                events.append("end ");
+            }
+
+            @Override
+            public void typePrefix(@NotNull CharSequence typeName) {
+                events.append("type:").append(typeName).append(' ');
+            }
+
+            @Override
+            public void text(@NotNull CharSequence text) {
+                events.append("text:").append(text).append(' ');
+            }
+
+            @Override
+            public void int64(long value) {
+                events.append("int:").append(value).append(' ');
+            }
+
+            @Override
+            public void float64(double value) {
+                events.append("float:").append(value).append(' ');
+            }
+
+            @Override
+            public void bool(boolean value) {
+                events.append("bool:").append(value).append(' ');
+            }
+
+            @Override
+            public void nullValue() {
+                events.append("null ");
+            }
+        });
+        return events.toString().trim();
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenCursorTest {
+    private static final String TOKENS = "map key:name text:server key:port int:8080 key:ratio float:0.75 " +
+            "key:tags seq text:a text:b end end";
+
+    @NotNull
+    private static String tokens(@NotNull WireIn wire) {
+        StringBuilder sb = new StringBuilder();
+        TokenCursor tokens = wire.tokens();
+        for (WireToken token; (token = tokens.nextToken()) != WireToken.NONE; ) {
+            switch (token) {
+                case START_MAP:
+                    sb.append("map");
+                    break;
+                case START_SEQUENCE:
+                    sb.append("seq");
+                    break;
+                case END:
+                    sb.append("end");
+                    break;
+                case FIELD:
+                    sb.append("key:").append(tokens.text());
+                    break;
+                case TYPE_PREFIX:
+                    sb.append("type:").append(tokens.text());
+                    break;
+                case TEXT:
+                    sb.append("text:").append(tokens.text());
+                    break;
+                case INT64:
+                    sb.append("int:").append(tokens.int64());
+                    break;
+                case FLOAT64:
+                    sb.append("float:").append(tokens.float64());
+                    break;
+                case BOOL:
+                    sb.append("bool:").append(tokens.bool());
+                    break;
+                case NULL:
+                    sb.append("null");
+                    break;
+                case BYTES:
+                    sb.append("bytes:").append(tokens.bytes().readRemaining());
+                    break;
+            }
+            sb.append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    @Test
+    public void text() {
+        assertEquals(TOKENS, tokens(TextWire.from("name: server\n" +
+                "port: 8080\n" +
+                "ratio: 0.75\n" +
+                "tags: [ a, b ]\n")));
+    }
+
+    @Test
+    public void json() {
+        assertEquals(TOKENS, tokens(JSONWire.from("{\"name\": \"server\", \"port\": 8080, \"ratio\": 0.75, " +
+                "\"tags\": [\"a\", \"b\"]}")));
+    }
+
+    @Test
+    public void binary() {
+        Wire wire = new BinaryWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "name").text("server")
+                .write(() -> "port").int32(8080)
+                .write(() -> "ratio").float64(0.75)
+                .write(() -> "tags").sequence(v -> {
+                    v.text("a");
+                    v.text("b");
+                });
+        assertEquals(TOKENS, tokens(wire));
+    }
+
+    @Test
+    public void binaryTimesAndUuids() {
+        Wire wire = new BinaryWire(Bytes.elasticByteBuffer());
+        wire.write(() -> "date").date(LocalDate.of(2016, 3, 14))
+                .write(() -> "time").time(LocalTime.of(12, 30))
+                .write(() -> "id").uuid(new UUID(1, 2))
+                .write(() -> "counts").int64array(2);
+        assertEquals("map key:date text:2016-03-14 key:time text:12:30 " +
+                "key:id text:00000000-0000-0001-0000-000000000002 key:counts bytes:24 end", tokens(wire));
+    }
+
+    @Test
+    public void csv() {
+        CSVWire wire = CSVWire.from("name,port\n" +
+                "server,8080\n" +
+                "\"a, b\",1.5\n");
+        assertEquals("seq map key:name text:server key:port int:8080 end " +
+                "map key:name text:a, b key:port float:1.5 end end", tokens(wire));
+    }
+
+    @Test
+    public void nestedBlocks() {
+        assertEquals("map key:a map key:b seq int:1 map key:c bool:false end end end key:d null end",
+                tokens(TextWire.from("a:\n" +
+                        "  b:\n" +
+                        "  - 1\n" +
+                        "  - c: false\n" +
+                        "d: ~\n")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rawHasNoTokens() {
+        new RawWire(Bytes.elasticByteBuffer()).tokens();
+    }
+}
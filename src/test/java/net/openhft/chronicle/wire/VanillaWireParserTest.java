@@ -0,0 +1,59 @@
+/*
+ *     Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.wire;
+
+import org.junit.Test;
+
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class VanillaWireParserTest {
+    @Test
+    public void lookupManyEvents() {
+        WireParser wp = WireParser.wireParser();
+        Consumer[] consumers = new Consumer[150];
+        for (int i = 0; i < consumers.length; i++) {
+            String name = "event" + i;
+            int code = i * 7;
+            consumers[i] = v -> {
+            };
+            wp.register(new WireKey() {
+                @Override
+                public CharSequence name() {
+                    return name;
+                }
+
+                @Override
+                public int code() {
+                    return code;
+                }
+            }, consumers[i]);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < consumers.length; i++) {
+            sb.setLength(0);
+            sb.append("event").append(i);
+            assertSame(consumers[i], wp.lookup(sb));
+            assertSame(consumers[i], wp.lookup(i * 7));
+        }
+        assertNull(wp.lookup("event150"));
+        assertNull(wp.lookup("event"));
+        assertNull(wp.lookup(1));
+    }
+}